@@ -0,0 +1,87 @@
+package com.example.EncryptedFileSharing.benchmark;
+
+import com.example.EncryptedFileSharing.service.CryptoEngine;
+import com.example.EncryptedFileSharing.service.KeyRing;
+import com.example.EncryptedFileSharing.util.AeadAlgorithm;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypt/decrypt throughput of the segmented container across payload sizes. The
+ * {@link Bytes} counter turns into a bytes/s rate next to the ops/s score; run with
+ * {@code -prof gc} (the profile default) to see the allocation rate per operation.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class CryptoBenchmark {
+
+    @Param({"1KB", "64KB", "1MB", "64MB", "1GB"})
+    public String payloadSize;
+
+    @Param({"AES_GCM", "CHACHA20_POLY1305"})
+    public AeadAlgorithm algorithm;
+
+    private CryptoEngine engine;
+    private byte[] dataKey;
+    private byte[] block;
+    private long size;
+    private Path ciphertext;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        engine = new CryptoEngine("MySecretKey12345", algorithm);
+        dataKey = new byte[KeyRing.DATA_KEY_LENGTH];
+        new SecureRandom().nextBytes(dataKey);
+        block = Payloads.block(42);
+        size = Payloads.bytes(payloadSize);
+
+        // Ciphertext goes to a temp file: 1 GB does not fit the forked heap. Re-reads come from the page cache.
+        ciphertext = Files.createTempFile("efs-bench-", ".enc");
+        try (OutputStream out = engine.encryptingStream(Files.newOutputStream(ciphertext), dataKey)) {
+            Payloads.write(out, block, size);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(ciphertext);
+    }
+
+    @Benchmark
+    public void encrypt(Bytes counter) throws IOException {
+        try (OutputStream out = engine.encryptingStream(OutputStream.nullOutputStream(), dataKey)) {
+            Payloads.write(out, block, size);
+        }
+        counter.bytes += size;
+    }
+
+    @Benchmark
+    public void decrypt(Bytes counter) throws IOException {
+        try (InputStream in = engine.decryptingStream(new BufferedInputStream(Files.newInputStream(ciphertext)), dataKey)) {
+            counter.bytes += in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.EncryptedFileSharing.benchmark;
+
+import com.example.EncryptedFileSharing.EncryptedFileSharingApplication;
+import com.example.EncryptedFileSharing.dto.FileMetadata;
+import com.example.EncryptedFileSharing.model.StoredFile;
+import com.example.EncryptedFileSharing.repository.StoredFileRepository;
+import com.example.EncryptedFileSharing.service.FileEncryptionService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end upload and download through FileEncryptionService with the real blob store,
+ * against an in-memory H2 database (test classpath). Measures what the controllers add on
+ * top of {@link CryptoBenchmark}: blob I/O, checksumming and the metadata round trip.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class FilePipelineBenchmark {
+
+    private static final String USER = "bench@example.com";
+    private static final long RANGE_LENGTH = 64 * 1024;
+
+    @Param({"1KB", "64KB", "1MB", "64MB", "1GB"})
+    public String payloadSize;
+
+    private ConfigurableApplicationContext context;
+    private FileEncryptionService fileService;
+    private StoredFileRepository fileRepository;
+    private Path blobRoot;
+    private byte[] block;
+    private long size;
+    private FileMetadata downloadTarget;
+    private final List<StoredFile> uploaded = new ArrayList<>();
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Bytes {
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        blobRoot = Files.createTempDirectory("efs-bench-blobs");
+        SpringApplication app = new SpringApplication(EncryptedFileSharingApplication.class);
+        app.setWebApplicationType(WebApplicationType.NONE);
+        context = app.run("--app.storage.root=" + blobRoot, "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN");
+        fileService = context.getBean(FileEncryptionService.class);
+        fileRepository = context.getBean(StoredFileRepository.class);
+
+        block = Payloads.block(7);
+        size = Payloads.bytes(payloadSize);
+        StoredFile file = fileService.uploadFile(new GeneratedFile(block, size), USER);
+        downloadTarget = fileRepository.findMetadataById(file.getId()).orElseThrow();
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteUploads() throws IOException {
+        for (StoredFile file : uploaded) {
+            fileService.deleteFile(fileRepository.findMetadataById(file.getId()).orElseThrow());
+        }
+        uploaded.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(blobRoot);
+    }
+
+    // Uploads are deduplicated per owner, so each one comes from a new owner to measure real encryption and storage
+    @Benchmark
+    public void upload(Bytes counter) throws Exception {
+        uploaded.add(fileService.uploadFile(new GeneratedFile(block, size), USER + "-" + uploaded.size()));
+        counter.bytes += size;
+    }
+
+    // The same content again from the same owner: hash pass plus a reference-count bump
+    @Benchmark
+    public void duplicateUpload(Bytes counter) throws Exception {
+        uploaded.add(fileService.uploadFile(new GeneratedFile(block, size), USER));
+        counter.bytes += size;
+    }
+
+    @Benchmark
+    public void download(Bytes counter) throws IOException {
+        fileService.streamFile(downloadTarget, OutputStream.nullOutputStream());
+        counter.bytes += size;
+    }
+
+    // A 64 KB Range request from the middle of the file, as a seeking video player would issue
+    @Benchmark
+    public void rangeDownload(Bytes counter) throws IOException {
+        long start = size / 2;
+        long end = Math.min(size, start + RANGE_LENGTH) - 1;
+        fileService.streamRange(downloadTarget, start, end, OutputStream.nullOutputStream());
+        counter.bytes += end - start + 1;
+    }
+
+    // Streams generated content instead of buffering the whole payload like MockMultipartFile
+    private record GeneratedFile(byte[] block, long size) implements MultipartFile {
+
+        @Override
+        public String getName() {
+            return "file";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return "bench.bin";
+        }
+
+        @Override
+        public String getContentType() {
+            return "application/octet-stream";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public byte[] getBytes() throws IOException {
+            return getInputStream().readAllBytes();
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return Payloads.stream(block, size);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            try (InputStream in = getInputStream()) {
+                Files.copy(in, dest.toPath());
+            }
+        }
+    }
+}
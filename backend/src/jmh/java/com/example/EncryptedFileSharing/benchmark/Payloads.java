@@ -0,0 +1,61 @@
+package com.example.EncryptedFileSharing.benchmark;
+
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+
+// Deterministic payloads of any size without holding them in memory
+final class Payloads {
+
+    private static final int BLOCK = 1024 * 1024;
+
+    private Payloads() {
+    }
+
+    static long bytes(String size) {
+        return DataSize.parse(size).toBytes();
+    }
+
+    static byte[] block(long seed) {
+        byte[] block = new byte[BLOCK];
+        new Random(seed).nextBytes(block);
+        return block;
+    }
+
+    // Writes size bytes by repeating block
+    static void write(OutputStream out, byte[] block, long size) throws IOException {
+        long remaining = size;
+        while (remaining > 0) {
+            int n = (int) Math.min(block.length, remaining);
+            out.write(block, 0, n);
+            remaining -= n;
+        }
+    }
+
+    // Reads as size bytes of repeated block
+    static InputStream stream(byte[] block, long size) {
+        return new InputStream() {
+            private long position;
+
+            @Override
+            public int read() {
+                return position < size ? block[(int) (position++ % block.length)] & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (position >= size) {
+                    return -1;
+                }
+                int offset = (int) (position % block.length);
+                int n = (int) Math.min(Math.min(len, block.length - offset), size - position);
+                System.arraycopy(block, offset, b, off, n);
+                position += n;
+                return n;
+            }
+        };
+    }
+}
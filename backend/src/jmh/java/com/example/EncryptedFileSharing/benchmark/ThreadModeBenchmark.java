@@ -0,0 +1,230 @@
+package com.example.EncryptedFileSharing.benchmark;
+
+import com.example.EncryptedFileSharing.EncryptedFileSharingApplication;
+import com.example.EncryptedFileSharing.repository.UserRepository;
+import com.example.EncryptedFileSharing.security.JwtUtil;
+import com.example.EncryptedFileSharing.util.UserDetails;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.SequenceInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Many slow clients at once against the real server, with request handling on platform
+ * threads and then on virtual threads (spring.threads.virtual.enabled). Clients pace their
+ * transfers like a WAN link would, so every transfer holds its server thread for most of its
+ * duration and the thread model, not CPU, decides how many run at once.
+ *
+ * Compare the p0.99 of the two runs, and the "peak concurrent downloads" printed after each
+ * iteration: downloads the server was actively streaming at the same moment.
+ *
+ *   ./mvnw -Pbenchmarks verify -DskipTests -Djmh.args="ThreadModeBenchmark -tg 448,64"
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class ThreadModeBenchmark {
+
+    private static final String USER = "load@example.com";
+    private static final int CHUNK = 64 * 1024;
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"256KB"})
+    public String payloadSize;
+
+    // Client pause after every 64 KB, i.e. a ~3 MB/s link at the default
+    @Param({"20"})
+    public int pauseMillis;
+
+    private ConfigurableApplicationContext context;
+    private Path blobRoot;
+    private HttpClient http;
+    private String baseUrl;
+    private String token;
+    private byte[] block;
+    private long size;
+    private long downloadId;
+    private final AtomicLong uploadSequence = new AtomicLong();
+    private final AtomicInteger streaming = new AtomicInteger();
+    private final AtomicInteger peakStreaming = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        blobRoot = Files.createTempDirectory("efs-bench-blobs");
+        context = new SpringApplication(EncryptedFileSharingApplication.class).run(
+                "--server.port=0",
+                "--spring.threads.virtual.enabled=" + threads.equals("virtual"),
+                "--app.storage.root=" + blobRoot,
+                "--app.rate-limit.enabled=false",
+                "--spring.servlet.multipart.max-file-size=-1",
+                "--spring.servlet.multipart.max-request-size=-1",
+                "--spring.jpa.show-sql=false",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN");
+        context.getBean(UserRepository.class).save(UserDetails.builder()
+                .username(USER).email(USER).password("unused").enabled(true).build());
+        token = context.getBean(JwtUtil.class).generateToken(USER);
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+        http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        block = Payloads.block(11);
+        size = Payloads.bytes(payloadSize);
+        downloadId = upload(0);
+    }
+
+    // Kept short: every other benchmark thread spins until iteration teardown is over
+    @TearDown(Level.Iteration)
+    public void report() {
+        System.out.println("peak concurrent downloads: " + peakStreaming.getAndSet(0));
+    }
+
+    // Uploads are not deleted one by one; the in-memory database goes with the context
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        FileSystemUtils.deleteRecursively(blobRoot.toFile());
+    }
+
+    @Benchmark
+    @Group("transfers")
+    @GroupThreads(224)
+    public long download() throws Exception {
+        HttpResponse<InputStream> response = http.send(
+                request("/files/download/" + downloadId).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        check(response.statusCode());
+        long received = 0;
+        boolean started = false;
+        byte[] buffer = new byte[CHUNK];
+        try (InputStream body = response.body()) {
+            int n;
+            while ((n = body.readNBytes(buffer, 0, CHUNK)) > 0) {
+                if (!started) {
+                    started = true;
+                    peakStreaming.accumulateAndGet(streaming.incrementAndGet(), Math::max);
+                }
+                received += n;
+                Thread.sleep(pauseMillis);
+            }
+        } finally {
+            if (started) {
+                streaming.decrementAndGet();
+            }
+        }
+        return received;
+    }
+
+    @Benchmark
+    @Group("transfers")
+    @GroupThreads(32)
+    public long upload() throws Exception {
+        return upload(pauseMillis);
+    }
+
+    // Each body starts with a fresh sequence number so deduplication does not short-cut it
+    private long upload(int pause) throws Exception {
+        String boundary = "bench-" + uploadSequence.get();
+        byte[] head = ("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"load.bin\""
+                + "\r\nContent-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] sequence = ByteBuffer.allocate(Long.BYTES).putLong(uploadSequence.incrementAndGet()).array();
+
+        HttpResponse<String> response = http.send(request("/files/upload")
+                        .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                        .POST(HttpRequest.BodyPublishers.ofInputStream(() -> new PacedInputStream(
+                                new SequenceInputStream(Collections.enumeration(List.of(
+                                        new ByteArrayInputStream(head),
+                                        new ByteArrayInputStream(sequence),
+                                        Payloads.stream(block, size - Long.BYTES),
+                                        new ByteArrayInputStream(tail)))),
+                                pause)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        check(response.statusCode());
+        Matcher matcher = ID.matcher(response.body());
+        if (!matcher.find()) {
+            throw new IllegalStateException("No file id in upload response: " + response.body());
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Authorization", "Bearer " + token);
+    }
+
+    private static void check(int status) {
+        if (status != 200) {
+            throw new IllegalStateException("HTTP " + status);
+        }
+    }
+
+    // Sleeps after every CHUNK bytes it hands out
+    private static final class PacedInputStream extends InputStream {
+
+        private final InputStream in;
+        private final int pauseMillis;
+        private int sincePause;
+
+        PacedInputStream(InputStream in, int pauseMillis) {
+            this.in = in;
+            this.pauseMillis = pauseMillis;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (sincePause == CHUNK) {
+                sincePause = 0;
+                try {
+                    Thread.sleep(pauseMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+            }
+            int n = in.read(b, off, Math.min(len, CHUNK - sincePause));
+            if (n > 0) {
+                sincePause += n;
+            }
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
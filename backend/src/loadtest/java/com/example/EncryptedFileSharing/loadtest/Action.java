@@ -0,0 +1,22 @@
+package com.example.EncryptedFileSharing.loadtest;
+
+// What a simulated user can do in the steady phase, with the endpoint it is reported under
+enum Action {
+
+    DOWNLOAD("GET /files/download/{id}"),
+    REVALIDATE("GET /files/download/{id} If-None-Match"),
+    LIST("GET /files/my-files"),
+    SHARED("GET /files/shared-with-me"),
+    SEARCH("GET /files/search"),
+    UPLOAD("POST /files/upload"),
+    SHARE("POST /files/share"),
+    LOGIN("POST /auth/login"),
+    // request-otp, wait for the mail, verify-otp; each step is reported on its own
+    OTP("POST /auth/request-otp");
+
+    final String endpoint;
+
+    Action(String endpoint) {
+        this.endpoint = endpoint;
+    }
+}
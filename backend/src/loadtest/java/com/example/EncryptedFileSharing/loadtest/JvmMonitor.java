@@ -0,0 +1,128 @@
+package com.example.EncryptedFileSharing.loadtest;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.HdrHistogram.Histogram;
+
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Heap high-water mark and GC pauses over the measured window. Heap use is sampled every
+ * few milliseconds; the pools' own peak counters are reported alongside as an upper bound
+ * (pools peak at different moments). Pauses come from GC notifications; concurrent
+ * collector cycles (ZGC / Shenandoah "Cycles") are not pauses and are left out.
+ *
+ * The application and the simulated clients share this JVM, so both count here; the clients
+ * keep little per request, and the share is the same from run to run.
+ */
+final class JvmMonitor implements AutoCloseable {
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final AtomicLong heapHighWater = new AtomicLong();
+    private final Histogram pauses = new Histogram(3);
+    private final NotificationListener listener = this::onGc;
+    private final Thread sampler;
+    private volatile boolean running = true;
+    private long gcCountAtReset;
+    private long gcMillisAtReset;
+
+    JvmMonitor() {
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            ((NotificationEmitter) gc).addNotificationListener(listener, null, null);
+        }
+        sampler = Thread.ofPlatform().name("heap-sampler").daemon().start(() -> {
+            while (running) {
+                heapHighWater.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        });
+    }
+
+    // Start of the measured window
+    synchronized void reset() {
+        pauses.reset();
+        heapHighWater.set(memory.getHeapMemoryUsage().getUsed());
+        ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+        gcCountAtReset = gcCount();
+        gcMillisAtReset = gcMillis();
+    }
+
+    synchronized Map<String, Object> heap() {
+        long poolPeaks = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .mapToLong(pool -> pool.getPeakUsage().getUsed())
+                .sum();
+        Map<String, Object> heap = new LinkedHashMap<>();
+        heap.put("highWaterMB", heapHighWater.get() / 1_048_576.0);
+        heap.put("poolPeaksMB", poolPeaks / 1_048_576.0);
+        heap.put("maxMB", memory.getHeapMemoryUsage().getMax() / 1_048_576.0);
+        return heap;
+    }
+
+    synchronized Map<String, Object> gc(double windowSeconds) {
+        Map<String, Object> gc = new LinkedHashMap<>();
+        gc.put("collections", gcCount() - gcCountAtReset);
+        gc.put("pauses", pauses.getTotalCount());
+        long totalMillis = gcMillis() - gcMillisAtReset;
+        gc.put("totalMillis", totalMillis);
+        gc.put("percentOfWallClock", windowSeconds > 0 ? 100.0 * totalMillis / (windowSeconds * 1000) : 0);
+        gc.put("p50Millis", pauses.getValueAtPercentile(50) / 1000.0);
+        gc.put("p99Millis", pauses.getValueAtPercentile(99) / 1000.0);
+        gc.put("maxMillis", pauses.getMaxValue() / 1000.0);
+        gc.put("collector", String.join(", ", ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .map(GarbageCollectorMXBean::getName).toList()));
+        return gc;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        sampler.interrupt();
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            try {
+                ((NotificationEmitter) gc).removeNotificationListener(listener);
+            } catch (Exception ignored) {
+                // already gone
+            }
+        }
+    }
+
+    private void onGc(javax.management.Notification notification, Object handback) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+        GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        if (info.getGcName().contains("Cycles")) {
+            return;
+        }
+        synchronized (this) {
+            // Durations are reported in whole milliseconds; kept in microseconds like the request latencies
+            pauses.recordValue(Math.max(1, info.getGcInfo().getDuration() * 1000));
+        }
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .filter(gc -> !gc.getName().contains("Cycles"))
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .filter(gc -> !gc.getName().contains("Cycles"))
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
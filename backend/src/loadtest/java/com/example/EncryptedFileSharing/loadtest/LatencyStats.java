@@ -0,0 +1,59 @@
+package com.example.EncryptedFileSharing.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-endpoint latency (microseconds, HdrHistogram) and error counts, recorded from many threads
+final class LatencyStats {
+
+    record Summary(long count, long errors, double p50, double p95, double p99, double max) {
+    }
+
+    private static final class Endpoint {
+        final Recorder recorder = new Recorder(3);
+        final LongAdder errors = new LongAdder();
+    }
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long nanos) {
+        endpoint(endpoint).recorder.recordValue(Math.max(1, nanos / 1_000));
+    }
+
+    void error(String endpoint) {
+        endpoint(endpoint).errors.increment();
+    }
+
+    // Drops everything recorded so far, e.g. at the end of the warmup
+    void reset() {
+        endpoints.values().forEach(endpoint -> {
+            endpoint.recorder.reset();
+            endpoint.errors.reset();
+        });
+    }
+
+    // Everything since the last reset, in milliseconds, by endpoint name
+    Map<String, Summary> summarize() {
+        Map<String, Summary> summaries = new TreeMap<>();
+        endpoints.forEach((name, endpoint) -> {
+            Histogram histogram = endpoint.recorder.getIntervalHistogram();
+            summaries.put(name, new Summary(
+                    histogram.getTotalCount(),
+                    endpoint.errors.sum(),
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(95) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getMaxValue() / 1000.0));
+        });
+        return summaries;
+    }
+
+    private Endpoint endpoint(String name) {
+        return endpoints.computeIfAbsent(name, n -> new Endpoint());
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.EncryptedFileSharing.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * What one run does, read from key=value arguments; anything left out keeps its default.
+ * The profile is written into the result file, and a comparison with a baseline warns when
+ * the two were not run with the same one.
+ *
+ *   users=50 duration=60s warmup=15s think=20ms seed=42 files-per-user=3
+ *   mix=download:40,revalidate:10,list:12,shared:8,search:10,upload:10,share:6,login:2,otp:2
+ *   sizes=16KB:60,256KB:30,2MB:10
+ *   out=target/loadtest-result.json baseline=path/to/earlier-result.json
+ *   max-setup-failures=0
+ *
+ * The run exits non-zero when more users than max-setup-failures could not be set up, so a
+ * run where signup, OTP or the first uploads broke does not pass as a result.
+ * Arguments starting with -- are passed to the application, e.g. --spring.threads.virtual.enabled=true.
+ */
+record LoadProfile(int users,
+                   Duration duration,
+                   Duration warmup,
+                   Duration think,
+                   long seed,
+                   int filesPerUser,
+                   int maxSetupFailures,
+                   Map<Action, Integer> mix,
+                   Map<Long, Integer> sizes,
+                   Path out,
+                   Path baseline,
+                   List<String> appArgs) {
+
+    static LoadProfile parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("users", "50");
+        values.put("duration", "60s");
+        values.put("warmup", "15s");
+        values.put("think", "20ms");
+        values.put("seed", "42");
+        values.put("files-per-user", "3");
+        values.put("mix", "download:40,revalidate:10,list:12,shared:8,search:10,upload:10,share:6,login:2,otp:2");
+        values.put("sizes", "16KB:60,256KB:30,2MB:10");
+        values.put("out", "target/loadtest-result.json");
+        values.put("baseline", "");
+        values.put("max-setup-failures", "0");
+        List<String> appArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                appArgs.add(arg);
+                continue;
+            }
+            int eq = arg.indexOf('=');
+            if (eq < 0 || !values.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("Unknown argument: " + arg + " (known: " + values.keySet() + ")");
+            }
+            values.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        Map<Action, Integer> mix = new EnumMap<>(Action.class);
+        weights(values.get("mix")).forEach((name, weight) -> mix.put(Action.valueOf(name.toUpperCase()), weight));
+        Map<Long, Integer> sizes = new LinkedHashMap<>();
+        weights(values.get("sizes")).forEach((size, weight) -> sizes.put(DataSize.parse(size).toBytes(), weight));
+        String baseline = values.get("baseline");
+        return new LoadProfile(
+                Integer.parseInt(values.get("users")),
+                DurationStyle.detectAndParse(values.get("duration")),
+                DurationStyle.detectAndParse(values.get("warmup")),
+                DurationStyle.detectAndParse(values.get("think")),
+                Long.parseLong(values.get("seed")),
+                Integer.parseInt(values.get("files-per-user")),
+                Integer.parseInt(values.get("max-setup-failures")),
+                mix,
+                sizes,
+                Path.of(values.get("out")),
+                baseline.isBlank() ? null : Path.of(baseline),
+                appArgs);
+    }
+
+    Action nextAction(Random random) {
+        return pick(mix, random);
+    }
+
+    long nextSize(Random random) {
+        return pick(sizes, random);
+    }
+
+    // For the result file: the settings that decide what a run measures
+    Map<String, Object> describe() {
+        Map<String, Object> description = new LinkedHashMap<>();
+        description.put("users", users);
+        description.put("durationSeconds", duration.toSeconds());
+        description.put("warmupSeconds", warmup.toSeconds());
+        description.put("thinkMillis", think.toMillis());
+        description.put("seed", seed);
+        description.put("filesPerUser", filesPerUser);
+        description.put("mix", mix.toString());
+        description.put("sizes", sizes.toString());
+        description.put("appArgs", String.join(" ", appArgs));
+        return description;
+    }
+
+    private static <T> T pick(Map<T, Integer> weighted, Random random) {
+        int total = weighted.values().stream().mapToInt(Integer::intValue).sum();
+        int roll = random.nextInt(total);
+        for (Map.Entry<T, Integer> entry : weighted.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty weights");
+    }
+
+    private static Map<String, Integer> weights(String spec) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            int weight = Integer.parseInt(pair[1].trim());
+            if (weight > 0) {
+                weights.put(pair[0].trim(), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("No positive weights in " + spec);
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,195 @@
+package com.example.EncryptedFileSharing.loadtest;
+
+import com.example.EncryptedFileSharing.EncryptedFileSharingApplication;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.server.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End-to-end load test that needs nothing outside this JVM: the application runs on an
+ * in-memory H2 database in MySQL mode, OTP mail goes to an embedded GreenMail SMTP server,
+ * and blobs go to a temporary directory. Simulated users sign up, verify through the OTP mail
+ * and then run a seeded mix of uploads, downloads, revalidations, listings, searches, shares
+ * and logins (see {@link LoadProfile}).
+ *
+ * Reported per endpoint: count, errors, throughput and p50/p95/p99/max latency, for the setup
+ * phase and for the measured window after the warmup; for the window also the heap high-water
+ * mark and GC pauses. The result is written as JSON, and compared against an earlier result
+ * when one is given, so a change can be checked for regressions on the same machine:
+ *
+ *   ./mvnw -Pload-test verify -DskipTests
+ *   ./mvnw -Pload-test verify -DskipTests -Dloadtest.args="users=100 duration=120s baseline=../before.json"
+ *
+ * The JVM settings come from loadtest.jvm in the pom and are part of what makes two runs
+ * comparable; loadtest.label names the run in the result (defaults to the git commit).
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadProfile profile = LoadProfile.parse(args);
+        // devtools would restart the application in its own class loader and run this method again
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        Path blobRoot = Files.createTempDirectory("efs-loadtest-blobs");
+        GreenMail mail = new GreenMail(ServerSetupTest.SMTP.dynamicPort());
+        mail.start();
+        ConfigurableApplicationContext context = null;
+        int failed;
+        try (JvmMonitor monitor = new JvmMonitor()) {
+            context = new SpringApplication(EncryptedFileSharingApplication.class).run(applicationArgs(profile, blobRoot, mail));
+            String baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+            failed = run(profile, baseUrl, mail, monitor);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            mail.stop();
+            FileSystemUtils.deleteRecursively(blobRoot.toFile());
+        }
+        if (failed > profile.maxSetupFailures()) {
+            System.err.printf("%d of %d users failed setup (max-setup-failures=%d)%n", failed, profile.users(), profile.maxSetupFailures());
+            System.exit(1);
+        }
+        System.exit(0);
+    }
+
+    // Returns how many users could not be set up
+    private static int run(LoadProfile profile, String baseUrl, GreenMail mail, JvmMonitor monitor) throws Exception {
+        HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        LatencyStats setupStats = new LatencyStats();
+        LatencyStats runStats = new LatencyStats();
+        List<VirtualUser> ready = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch setUp = new CountDownLatch(profile.users());
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger failed = new AtomicInteger();
+        Report report = new Report(profile, environment());
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        System.out.printf("Setting up %d users against %s%n", profile.users(), baseUrl);
+        long setupStarted = System.nanoTime();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < profile.users(); i++) {
+            VirtualUser user = new VirtualUser(i, profile, http, baseUrl, mail);
+            threads.add(Thread.ofPlatform().name("load-" + i).start(() -> {
+                try {
+                    user.setUp(setupStats, ready);
+                    ready.add(user);
+                } catch (Exception e) {
+                    failed.incrementAndGet();
+                    System.err.println("Setup failed for " + user.username + ": " + e.getMessage());
+                    return;
+                } finally {
+                    setUp.countDown();
+                }
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                user.run(runStats, running::get);
+            }));
+        }
+        setUp.await();
+        report.section("setup", setupStats.summarize(), (System.nanoTime() - setupStarted) / 1e9);
+        if (ready.isEmpty()) {
+            report.print(System.out);
+            return failed.get();
+        }
+
+        System.out.printf("%d users ready; warming up for %s%n", ready.size(), profile.warmup());
+        go.countDown();
+        Thread.sleep(profile.warmup());
+        runStats.reset();
+        monitor.reset();
+        long measureStarted = System.nanoTime();
+        System.out.printf("Measuring for %s%n", profile.duration());
+        Thread.sleep(profile.duration());
+        double seconds = (System.nanoTime() - measureStarted) / 1e9;
+        report.section("run", runStats.summarize(), seconds);
+        report.put("heap", monitor.heap());
+        report.put("gc", monitor.gc(seconds));
+
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join(30_000);
+            thread.interrupt();
+        }
+
+        report.print(System.out);
+        report.write(profile.out());
+        System.out.println("\nresult written to " + profile.out().toAbsolutePath());
+        if (profile.baseline() != null) {
+            report.compare(profile.baseline(), System.out);
+        }
+        return failed.get();
+    }
+
+    // Load-test defaults first; anything given on the command line with the same key replaces them
+    private static String[] applicationArgs(LoadProfile profile, Path blobRoot, GreenMail mail) {
+        Map<String, String> args = new LinkedHashMap<>();
+        args.put("server.port", "0");
+        args.put("spring.datasource.url", "jdbc:h2:mem:loadtest;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE");
+        args.put("spring.datasource.username", "sa");
+        args.put("spring.datasource.password", "");
+        args.put("spring.jpa.hibernate.ddl-auto", "create-drop");
+        args.put("spring.jpa.open-in-view", "false");
+        args.put("spring.jpa.show-sql", "false");
+        args.put("spring.mail.host", "localhost");
+        args.put("spring.mail.port", String.valueOf(mail.getSmtp().getPort()));
+        args.put("app.jwt.secret", "load-test-secret-load-test-secret-0123456789");
+        args.put("app.storage.root", blobRoot.toString());
+        // Measures the application, not the per-client limits or a background scrub pass
+        args.put("app.rate-limit.enabled", "false");
+        args.put("app.storage.scrub.enabled", "false");
+        args.put("spring.servlet.multipart.max-file-size", "-1");
+        args.put("spring.servlet.multipart.max-request-size", "-1");
+        args.put("spring.main.banner-mode", "off");
+        args.put("logging.level.root", "WARN");
+        for (String arg : profile.appArgs()) {
+            int eq = arg.indexOf('=');
+            args.put(arg.substring(2, eq < 0 ? arg.length() : eq), eq < 0 ? "true" : arg.substring(eq + 1));
+        }
+        return args.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new);
+    }
+
+    private static Map<String, Object> environment() {
+        Map<String, Object> environment = new LinkedHashMap<>();
+        String label = System.getProperty("loadtest.label", "");
+        environment.put("label", label.isBlank() ? commit() : label);
+        environment.put("java", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"));
+        environment.put("jvmArgs", String.join(" ", ManagementFactory.getRuntimeMXBean().getInputArguments()));
+        environment.put("processors", Runtime.getRuntime().availableProcessors());
+        environment.put("os", System.getProperty("os.name") + " " + System.getProperty("os.arch"));
+        return environment;
+    }
+
+    private static String commit() {
+        try {
+            Process git = new ProcessBuilder("git", "rev-parse", "--short", "HEAD").redirectErrorStream(true).start();
+            String out = new String(git.getInputStream().readAllBytes(), StandardCharsets.UTF_8).trim();
+            return git.waitFor() == 0 ? out : "unknown";
+        } catch (IOException | InterruptedException e) {
+            return "unknown";
+        }
+    }
+}
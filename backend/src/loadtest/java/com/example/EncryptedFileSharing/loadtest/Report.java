@@ -0,0 +1,122 @@
+package com.example.EncryptedFileSharing.loadtest;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.SerializationFeature;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Prints a run and writes it as JSON; with a baseline result, also prints how this run moved
+ * against it. The JSON keys are stable, so results from different commits can be compared
+ * with this class or any other tool.
+ */
+final class Report {
+
+    private static final JsonMapper MAPPER = JsonMapper.builder().enable(SerializationFeature.INDENT_OUTPUT).build();
+
+    private final Map<String, Object> result = new LinkedHashMap<>();
+
+    Report(LoadProfile profile, Map<String, Object> environment) {
+        result.put("profile", profile.describe());
+        result.put("environment", environment);
+    }
+
+    void section(String name, Map<String, LatencyStats.Summary> summaries, double seconds) {
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        long requests = 0;
+        long errors = 0;
+        for (Map.Entry<String, LatencyStats.Summary> entry : summaries.entrySet()) {
+            LatencyStats.Summary summary = entry.getValue();
+            Map<String, Object> endpoint = new LinkedHashMap<>();
+            endpoint.put("count", summary.count());
+            endpoint.put("errors", summary.errors());
+            endpoint.put("perSecond", summary.count() / seconds);
+            endpoint.put("p50Millis", summary.p50());
+            endpoint.put("p95Millis", summary.p95());
+            endpoint.put("p99Millis", summary.p99());
+            endpoint.put("maxMillis", summary.max());
+            endpoints.put(entry.getKey(), endpoint);
+            requests += summary.count();
+            errors += summary.errors();
+        }
+        Map<String, Object> section = new LinkedHashMap<>();
+        section.put("seconds", seconds);
+        section.put("requests", requests);
+        section.put("errors", errors);
+        section.put("perSecond", requests / seconds);
+        section.put("endpoints", endpoints);
+        result.put(name, section);
+    }
+
+    void put(String name, Map<String, Object> values) {
+        result.put(name, values);
+    }
+
+    void write(Path out) throws Exception {
+        if (out.toAbsolutePath().getParent() != null) {
+            Files.createDirectories(out.toAbsolutePath().getParent());
+        }
+        MAPPER.writeValue(out.toFile(), result);
+    }
+
+    @SuppressWarnings("unchecked")
+    void print(PrintStream out) {
+        for (String name : new String[]{"setup", "run"}) {
+            Map<String, Object> section = (Map<String, Object>) result.get(name);
+            if (section == null) {
+                continue;
+            }
+            out.printf("%n%s: %d requests, %d errors, %.1f req/s over %.1f s%n", name,
+                    section.get("requests"), section.get("errors"), section.get("perSecond"), section.get("seconds"));
+            out.printf("  %-42s %8s %6s %9s %9s %9s %9s %9s%n", "endpoint", "count", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms", "max ms");
+            ((Map<String, Map<String, Object>>) section.get("endpoints")).forEach((endpoint, values) ->
+                    out.printf("  %-42s %8d %6d %9.1f %9.2f %9.2f %9.2f %9.2f%n", endpoint,
+                            values.get("count"), values.get("errors"), values.get("perSecond"),
+                            values.get("p50Millis"), values.get("p95Millis"), values.get("p99Millis"), values.get("maxMillis")));
+        }
+        out.println("\nheap: " + result.get("heap"));
+        out.println("gc:   " + result.get("gc"));
+    }
+
+    // Relative change per endpoint and for heap and GC; positive means larger than the baseline
+    void compare(Path baselinePath, PrintStream out) throws Exception {
+        JsonNode baseline = MAPPER.readTree(baselinePath.toFile());
+        JsonNode current = MAPPER.valueToTree(result);
+        out.println("\nagainst " + baselinePath + (baseline.path("environment").has("label")
+                ? " (" + baseline.path("environment").path("label").asString() + ")" : ""));
+        if (!baseline.path("profile").equals(current.path("profile"))) {
+            out.println("  WARNING: the baseline was run with a different profile: " + baseline.path("profile"));
+        }
+        out.printf("  %-42s %10s %10s %10s %10s%n", "endpoint", "req/s", "p50", "p95", "p99");
+        JsonNode before = baseline.path("run").path("endpoints");
+        current.path("run").path("endpoints").properties().forEach(entry -> {
+            JsonNode now = entry.getValue();
+            JsonNode then = before.path(entry.getKey());
+            if (then.isMissingNode()) {
+                out.printf("  %-42s %10s%n", entry.getKey(), "new");
+                return;
+            }
+            out.printf("  %-42s %10s %10s %10s %10s%n", entry.getKey(),
+                    change(then, now, "perSecond"), change(then, now, "p50Millis"),
+                    change(then, now, "p95Millis"), change(then, now, "p99Millis"));
+        });
+        out.printf("  %-42s %10s%n", "total req/s", change(baseline.path("run"), current.path("run"), "perSecond"));
+        out.printf("  %-42s %10s%n", "heap high-water", change(baseline.path("heap"), current.path("heap"), "highWaterMB"));
+        out.printf("  %-42s %10s%n", "gc total pause", change(baseline.path("gc"), current.path("gc"), "totalMillis"));
+        out.printf("  %-42s %10s%n", "gc max pause", change(baseline.path("gc"), current.path("gc"), "maxMillis"));
+    }
+
+    private static String change(JsonNode then, JsonNode now, String field) {
+        double before = then.path(field).asDouble();
+        double after = now.path(field).asDouble();
+        if (before == 0) {
+            return after == 0 ? "0%" : "n/a";
+        }
+        return "%+.1f%%".formatted(100 * (after - before) / before);
+    }
+}
@@ -0,0 +1,279 @@
+package com.example.EncryptedFileSharing.loadtest;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import jakarta.mail.internet.MimeMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One simulated user on its own thread: signs up and verifies through the OTP mail, uploads a
+ * few files, then loops over the profile's action mix with a think time between requests.
+ * Every random choice comes from a generator seeded with the run seed and the user's number,
+ * so a given profile sends the same sequence of requests on every run.
+ */
+final class VirtualUser {
+
+    static final String PASSWORD = "load-test-password";
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+    private static final Pattern TOKEN = Pattern.compile("\"token\"\\s*:\\s*\"([^\"]+)\"");
+    private static final Pattern CODE = Pattern.compile("\\b(\\d{6})\\b");
+    private static final String[] WORDS = {"report", "invoice", "photo", "contract", "backup", "notes", "draft", "budget", "scan", "slides"};
+    private static final String[] EXTENSIONS = {"pdf", "docx", "jpg", "txt", "zip"};
+    private static final long MAIL_TIMEOUT_MILLIS = 30_000;
+
+    final String username;
+    private final String email;
+    private final LoadProfile profile;
+    private final HttpClient http;
+    private final String baseUrl;
+    private final GreenMail mail;
+    private LatencyStats stats;
+    private final Random random;
+    // Files shared with this user by others; drained into readable by the owning thread
+    private final Queue<Long> inbox = new ConcurrentLinkedQueue<>();
+    private final List<Long> own = new ArrayList<>();
+    private final List<Long> readable = new ArrayList<>();
+    private final Map<Long, String> etags = new HashMap<>();
+    private List<VirtualUser> everyone = List.of();
+    private String token;
+    private long uploads;
+
+    VirtualUser(int number, LoadProfile profile, HttpClient http, String baseUrl, GreenMail mail) {
+        this.username = "load-user-%05d".formatted(number);
+        // Fixed width, so no address is a suffix of another when the mailbox is searched
+        this.email = "load-%05d@loadtest.local".formatted(number);
+        this.profile = profile;
+        this.http = http;
+        this.baseUrl = baseUrl;
+        this.mail = mail;
+        this.random = new Random(profile.seed() * 31 + number);
+    }
+
+    // Signup, OTP round trip, first uploads; recorded into the setup statistics
+    void setUp(LatencyStats stats, List<VirtualUser> everyone) throws Exception {
+        this.stats = stats;
+        this.everyone = everyone;
+        send("POST /auth/signup", json("/auth/signup",
+                "{\"username\":\"%s\",\"email\":\"%s\",\"password\":\"%s\"}".formatted(username, email, PASSWORD)));
+        verifyByOtp();
+        for (int i = 0; i < profile.filesPerUser(); i++) {
+            upload();
+        }
+    }
+
+    void run(LatencyStats stats, BooleanSupplier running) {
+        this.stats = stats;
+        while (running.getAsBoolean()) {
+            Action action = profile.nextAction(random);
+            try {
+                perform(action);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Failed e) {
+                stats.error(e.endpoint);
+            } catch (Exception e) {
+                stats.error(action.endpoint);
+            }
+            try {
+                if (!profile.think().isZero()) {
+                    Thread.sleep(profile.think());
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void perform(Action action) throws Exception {
+        for (Long shared; (shared = inbox.poll()) != null; ) {
+            readable.add(shared);
+        }
+        if (own.isEmpty()) {
+            upload();
+            return;
+        }
+        switch (action) {
+            case DOWNLOAD -> download(any(readable));
+            case REVALIDATE -> revalidate();
+            case LIST -> send(action.endpoint, authorized("/files/my-files").GET().build());
+            case SHARED -> send(action.endpoint, authorized("/files/shared-with-me").GET().build());
+            case SEARCH -> send(action.endpoint, authorized("/files/search?q=" + any(WORDS).substring(0, 3)).GET().build());
+            case UPLOAD -> upload();
+            case SHARE -> share();
+            case LOGIN -> token = token(send(action.endpoint, json("/auth/login",
+                    "{\"username\":\"%s\",\"password\":\"%s\"}".formatted(username, PASSWORD))));
+            case OTP -> verifyByOtp();
+        }
+    }
+
+    private void verifyByOtp() throws Exception {
+        int before = mail.getReceivedMessagesForDomain(email).length;
+        send("POST /auth/request-otp", HttpRequest.newBuilder(uri("/auth/request-otp?usernameOrEmail=" + encode(username)))
+                .POST(HttpRequest.BodyPublishers.noBody()).build());
+
+        // Delivery goes through the outbox, so this is the user-visible wait for the code
+        long started = System.nanoTime();
+        MimeMessage[] messages;
+        while ((messages = mail.getReceivedMessagesForDomain(email)).length <= before) {
+            if (System.nanoTime() - started > MAIL_TIMEOUT_MILLIS * 1_000_000) {
+                throw new Failed("SMTP OTP delivery", "no OTP mail for " + username);
+            }
+            Thread.sleep(5);
+        }
+        stats.record("SMTP OTP delivery", System.nanoTime() - started);
+        Matcher code = CODE.matcher(GreenMailUtil.getBody(messages[messages.length - 1]));
+        if (!code.find()) {
+            throw new IllegalStateException("No code in OTP mail for " + username);
+        }
+        token = token(send("POST /auth/verify-otp", HttpRequest.newBuilder(
+                        uri("/auth/verify-otp?username=" + encode(username) + "&code=" + code.group(1)))
+                .POST(HttpRequest.BodyPublishers.noBody()).build()));
+    }
+
+    // Content starts with a per-user sequence number, so deduplication does not short-cut uploads
+    private void upload() throws Exception {
+        long size = profile.nextSize(random);
+        byte[] content = new byte[(int) size];
+        random.nextBytes(content);
+        ByteBuffer.wrap(content).putLong(++uploads);
+        String fileName = "%s_%s_%d.%s".formatted(any(WORDS), username, uploads, any(EXTENSIONS));
+
+        String boundary = "load-" + username + "-" + uploads;
+        byte[] head = ("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"" + fileName + "\""
+                + "\r\nContent-Type: application/octet-stream\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        HttpRequest request = authorized("/files/upload")
+                .header("Content-Type", "multipart/form-data; boundary=" + boundary)
+                .POST(HttpRequest.BodyPublishers.ofByteArrays(List.of(head, content, tail)))
+                .build();
+        Matcher id = ID.matcher(send(Action.UPLOAD.endpoint, request));
+        if (!id.find()) {
+            throw new IllegalStateException("No file id in upload response");
+        }
+        own.add(Long.parseLong(id.group(1)));
+        readable.add(Long.parseLong(id.group(1)));
+    }
+
+    private void download(long id) throws Exception {
+        long started = System.nanoTime();
+        HttpResponse<InputStream> response = http.send(authorized("/files/download/" + id).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (InputStream body = response.body()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+        check(Action.DOWNLOAD.endpoint, response.statusCode(), 200);
+        stats.record(Action.DOWNLOAD.endpoint, System.nanoTime() - started);
+        response.headers().firstValue("ETag").ifPresent(etag -> etags.put(id, etag));
+    }
+
+    // A repeat visit from a browser that already has the file; falls back to a download until it has one
+    private void revalidate() throws Exception {
+        long id = any(readable);
+        String etag = etags.get(id);
+        if (etag == null) {
+            download(id);
+            return;
+        }
+        long started = System.nanoTime();
+        HttpResponse<Void> response = http.send(authorized("/files/download/" + id).header("If-None-Match", etag).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+        check(Action.REVALIDATE.endpoint, response.statusCode(), 304);
+        stats.record(Action.REVALIDATE.endpoint, System.nanoTime() - started);
+    }
+
+    private void share() throws Exception {
+        if (everyone.size() < 2) {
+            return;
+        }
+        VirtualUser target;
+        do {
+            target = any(everyone);
+        } while (target == this);
+        long id = any(own);
+        send(Action.SHARE.endpoint, authorized("/files/share?fileId=" + id + "&usernameToShare=" + encode(target.username))
+                .POST(HttpRequest.BodyPublishers.noBody()).build());
+        target.inbox.add(id);
+    }
+
+    // A request that got an unexpected answer, counted against its endpoint
+    private static final class Failed extends IllegalStateException {
+        final String endpoint;
+
+        Failed(String endpoint, String message) {
+            super(endpoint + ": " + message);
+            this.endpoint = endpoint;
+        }
+    }
+
+    // Times one request including reading the whole body; anything but 200 counts as an error
+    private String send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+        check(endpoint, response.statusCode(), 200);
+        stats.record(endpoint, System.nanoTime() - started);
+        return response.body();
+    }
+
+    private static void check(String endpoint, int status, int expected) {
+        if (status != expected) {
+            throw new Failed(endpoint, "HTTP " + status);
+        }
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        return HttpRequest.newBuilder(uri(path)).header("Authorization", "Bearer " + token);
+    }
+
+    private HttpRequest json(String path, String body) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    private <T> T any(List<T> values) {
+        return values.get(random.nextInt(values.size()));
+    }
+
+    private <T> T any(T[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static String token(String body) {
+        Matcher matcher = TOKEN.matcher(body);
+        if (!matcher.find()) {
+            throw new IllegalStateException("No token in response");
+        }
+        return matcher.group(1);
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.EncryptedFileSharing.config;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Streamed response bodies (downloads, ZIPs) run on their own executor instead of Boot's
+ * shared task pool, which only has 8 platform threads. Each running download holds one
+ * thread for as long as the client takes to read it, so the pool is sized like Tomcat's.
+ */
+@Configuration
+public class AsyncDownloadConfig implements WebMvcConfigurer, DisposableBean {
+
+    private final ExecutorService executor;
+
+    public AsyncDownloadConfig(WorkerThreads workerThreads,
+                               @Value("${app.download.threads:200}") int threads) {
+        this.executor = workerThreads.boundedExecutor("download-", threads);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.EncryptedFileSharing.config;
+
+import com.example.EncryptedFileSharing.storage.BlobStore;
+import com.example.EncryptedFileSharing.storage.BlockCache;
+import com.example.EncryptedFileSharing.storage.CachingBlobStore;
+import com.example.EncryptedFileSharing.storage.LocalFileSystemBlobStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+
+// Blobs on the local filesystem, read through an off-heap block cache unless app.storage.cache.size is 0
+@Configuration
+public class BlobStoreConfig {
+
+    @Bean
+    public BlobStore blobStore(@Value("${app.storage.root:data/blobs}") String root,
+                               @Value("${app.storage.cache.size:128MB}") DataSize cacheSize,
+                               @Value("${app.storage.cache.block-size:64KB}") DataSize blockSize,
+                               MeterRegistry meterRegistry) throws IOException {
+        BlobStore store = new LocalFileSystemBlobStore(root);
+        if (cacheSize.toBytes() <= 0) {
+            return store;
+        }
+        return new CachingBlobStore(store, new BlockCache(cacheSize.toBytes(), Math.toIntExact(blockSize.toBytes()), meterRegistry));
+    }
+}
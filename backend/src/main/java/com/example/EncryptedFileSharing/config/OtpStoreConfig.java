@@ -0,0 +1,27 @@
+package com.example.EncryptedFileSharing.config;
+
+import com.example.EncryptedFileSharing.otp.InMemoryOtpStore;
+import com.example.EncryptedFileSharing.otp.JdbcOtpStore;
+import com.example.EncryptedFileSharing.otp.OtpStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+// app.otp.store=memory (default) for a single node, jdbc when several nodes share the OTP state
+@Configuration
+public class OtpStoreConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "app.otp.store", havingValue = "memory", matchIfMissing = true)
+    public OtpStore inMemoryOtpStore(@Value("${app.otp.max-attempts:5}") int maxAttempts) {
+        return new InMemoryOtpStore(maxAttempts);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.otp.store", havingValue = "jdbc")
+    public OtpStore jdbcOtpStore(JdbcTemplate jdbcTemplate, @Value("${app.otp.max-attempts:5}") int maxAttempts) {
+        return new JdbcOtpStore(jdbcTemplate, maxAttempts);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.EncryptedFileSharing.config;
+
+import org.springframework.boot.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Threads for our own worker pools, following spring.threads.virtual.enabled like Tomcat,
+ * the MVC async executor and the scheduler do. With virtual threads a worker blocked on
+ * JDBC, the blob store or SMTP no longer ties up an OS thread.
+ */
+@Component
+public class WorkerThreads {
+
+    private final boolean virtual;
+
+    public WorkerThreads(Environment environment) {
+        this.virtual = Threading.VIRTUAL.isActive(environment);
+    }
+
+    // Named "<prefix>0", "<prefix>1", ...; platform threads are daemons so they never hold up shutdown
+    public ThreadFactory factory(String prefix) {
+        return virtual
+                ? Thread.ofVirtual().name(prefix, 0).factory()
+                : Thread.ofPlatform().name(prefix, 0).daemon().factory();
+    }
+
+    // For short-lived tasks: a fresh virtual thread per task, or a cached pool of platform threads
+    public ExecutorService perTaskExecutor(String prefix) {
+        return virtual
+                ? Executors.newThreadPerTaskExecutor(factory(prefix))
+                : Executors.newCachedThreadPool(factory(prefix));
+    }
+
+    // For long-running tasks: a fresh virtual thread per task, or at most `threads` platform threads with the rest queued
+    public ExecutorService boundedExecutor(String prefix, int threads) {
+        return virtual
+                ? Executors.newThreadPerTaskExecutor(factory(prefix))
+                : Executors.newFixedThreadPool(threads, factory(prefix));
+    }
+}
@@ -9,11 +9,13 @@ import com.example.EncryptedFileSharing.security.JwtUtil;
 import com.example.EncryptedFileSharing.service.OtpService;
 import com.example.EncryptedFileSharing.service.UserService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Map;
 
+@Slf4j
 @RestController
 @RequestMapping("/auth")
 @RequiredArgsConstructor
@@ -42,23 +44,18 @@ public class AuthController {
     @PostMapping("/request-otp")
     public ResponseEntity<?> requestOtp(@RequestParam String usernameOrEmail) {
 
-        System.out.println("DEBUG: requestOtp HIT");
-
         UserDetails user = userRepository.findByUsername(usernameOrEmail)
                 .orElseGet(() ->
                         userRepository.findByEmail(usernameOrEmail).orElse(null)
                 );
 
         if (user == null) {
-            System.out.println("DEBUG: user not found");
+            log.debug("OTP requested for unknown user {}", usernameOrEmail);
             return ResponseEntity.badRequest().body("User not found");
         }
 
-        System.out.println("DEBUG: user found = " + user.getUsername());
-
         otpService.generateOtp(user.getUsername(), user.getEmail());
-
-        System.out.println("DEBUG: otpService called");
+        log.debug("OTP issued for {}", user.getUsername());
 
         return ResponseEntity.ok("OTP sent successfully");
     }
@@ -70,10 +67,7 @@ public class AuthController {
         }
 
 
-        userRepository.findByUsername(username).ifPresent(u -> {
-            u.setEnabled(true);
-            userRepository.save(u);
-        });
+        userService.setEnabled(username, true);
 
 
         String token = jwtUtil.generateToken(username);
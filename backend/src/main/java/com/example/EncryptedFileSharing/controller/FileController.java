@@ -1,45 +1,81 @@
 package com.example.EncryptedFileSharing.controller;
 
-import com.example.EncryptedFileSharing.model.FileAccess;
+import com.example.EncryptedFileSharing.dto.BulkShareRequest;
+import com.example.EncryptedFileSharing.dto.FileMetadata;
+import com.example.EncryptedFileSharing.dto.FileSummary;
+import com.example.EncryptedFileSharing.dto.PageCursor;
+import com.example.EncryptedFileSharing.dto.SharedFileSummary;
 import com.example.EncryptedFileSharing.model.StoredFile;
-import com.example.EncryptedFileSharing.repository.FileAccessRepository;
+import com.example.EncryptedFileSharing.model.UploadSession;
+import com.example.EncryptedFileSharing.ratelimit.RateLimiter;
 import com.example.EncryptedFileSharing.repository.StoredFileRepository;
+import com.example.EncryptedFileSharing.security.AccessControlIndex;
+import com.example.EncryptedFileSharing.service.ChunkedUploadService;
 import com.example.EncryptedFileSharing.service.FileEncryptionService;
+import com.example.EncryptedFileSharing.service.FileNameIndex;
+import com.example.EncryptedFileSharing.service.ShareService;
+import com.example.EncryptedFileSharing.service.TransferMetrics;
+import com.example.EncryptedFileSharing.service.ZipDownloadService;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
+@Slf4j
 @RestController
 @RequestMapping("/files")
 @RequiredArgsConstructor
 public class FileController {
 
     private final FileEncryptionService fileService;
+    private final ChunkedUploadService chunkedUploadService;
     private final StoredFileRepository fileRepository;
-    private final FileAccessRepository fileAccessRepository;
+    private final ShareService shareService;
+    private final RateLimiter rateLimiter;
+    private final ZipDownloadService zipDownloadService;
+    private final TransferMetrics transferMetrics;
+    private final AccessControlIndex accessControlIndex;
+    private final FileNameIndex fileNameIndex;
+
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 200;
+    private static final CacheControl REVALIDATE = CacheControl.noCache().cachePrivate();
 
     @PostMapping("/upload")
     public ResponseEntity<?> uploadFile(@RequestParam("file") MultipartFile file) {
+        long started = System.nanoTime();
         try {
             String username = SecurityContextHolder
                     .getContext()
                     .getAuthentication()
                     .getName();
 
-            System.out.println("Uploading file: " + file.getOriginalFilename() +
-                    ", Size: " + file.getSize() + " bytes");
+            log.debug("Uploading file: {}, Size: {} bytes", file.getOriginalFilename(), file.getSize());
 
             StoredFile saved = fileService.uploadFile(file, username);
+            transferMetrics.upload(file.getSize(), System.nanoTime() - started);
 
             Map<String, Object> resp = new HashMap<>();
             resp.put("id", saved.getId());
@@ -48,62 +84,227 @@ public class FileController {
 
             return ResponseEntity.ok(resp);
         } catch (Exception e) {
-            System.err.println("Upload error: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Upload error: {}", e.getMessage(), e);
             return ResponseEntity.status(500)
                     .body(Map.of("error", "Upload failed: " + e.getMessage()));
         }
     }
 
-    @GetMapping("/my-files")
-    public ResponseEntity<List<Map<String, Object>>> myFiles() {
-        String username = SecurityContextHolder
+    // Resumable uploads: create a session, PUT numbered chunks in any order, then commit
+    @PostMapping("/uploads")
+    public ResponseEntity<?> createUpload(
+            @RequestParam String fileName,
+            @RequestParam(required = false) String contentType,
+            @RequestParam long totalSize,
+            @RequestParam(required = false) Integer chunkSize
+    ) {
+        try {
+            UploadSession session = chunkedUploadService.createSession(
+                    currentUsername(), fileName, contentType, totalSize, chunkSize);
+
+            Map<String, Object> resp = new HashMap<>();
+            resp.put("uploadId", session.getId());
+            resp.put("chunkSize", session.getChunkSize());
+            resp.put("chunkCount", session.chunkCount());
+            resp.put("expiresAt", session.getExpiresAt());
+            return ResponseEntity.ok(resp);
+        } catch (Exception e) {
+            return uploadError(e);
+        }
+    }
+
+    @PutMapping("/uploads/{uploadId}/chunks/{index}")
+    public ResponseEntity<?> uploadChunk(
+            @PathVariable String uploadId,
+            @PathVariable int index,
+            InputStream body
+    ) {
+        try {
+            String username = currentUsername();
+            boolean written = chunkedUploadService.writeChunk(
+                    uploadId, index, rateLimiter.throttleUpload(body, username), username);
+            return ResponseEntity.ok(Map.of(
+                    "index", index,
+                    "message", written ? "Chunk received" : "Chunk already received"));
+        } catch (Exception e) {
+            return uploadError(e);
+        }
+    }
+
+    @GetMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> uploadStatus(@PathVariable String uploadId) {
+        try {
+            UploadSession session = chunkedUploadService.getSession(uploadId, currentUsername());
+
+            List<Map<String, Object>> received = chunkedUploadService
+                    .receivedChunks(uploadId)
+                    .stream()
+                    .map(c -> {
+                        Map<String, Object> map = new HashMap<>();
+                        map.put("index", c.getChunkIndex());
+                        map.put("offset", (long) c.getChunkIndex() * session.getChunkSize());
+                        map.put("length", c.getSize());
+                        return map;
+                    })
+                    .toList();
+
+            Map<String, Object> resp = new HashMap<>();
+            resp.put("uploadId", session.getId());
+            resp.put("fileName", session.getFileName());
+            resp.put("totalSize", session.getTotalSize());
+            resp.put("chunkSize", session.getChunkSize());
+            resp.put("chunkCount", session.chunkCount());
+            resp.put("received", received);
+            resp.put("expiresAt", session.getExpiresAt());
+            return ResponseEntity.ok(resp);
+        } catch (Exception e) {
+            return uploadError(e);
+        }
+    }
+
+    @PostMapping("/uploads/{uploadId}/commit")
+    public ResponseEntity<?> commitUpload(@PathVariable String uploadId) {
+        try {
+            StoredFile saved = chunkedUploadService.commit(uploadId, currentUsername());
+
+            Map<String, Object> resp = new HashMap<>();
+            resp.put("id", saved.getId());
+            resp.put("fileName", saved.getFileName());
+            resp.put("message", "File uploaded and encrypted successfully");
+            return ResponseEntity.ok(resp);
+        } catch (Exception e) {
+            return uploadError(e);
+        }
+    }
+
+    @DeleteMapping("/uploads/{uploadId}")
+    public ResponseEntity<?> abortUpload(@PathVariable String uploadId) {
+        try {
+            chunkedUploadService.abort(uploadId, currentUsername());
+            return ResponseEntity.ok(Map.of("message", "Upload aborted"));
+        } catch (Exception e) {
+            return uploadError(e);
+        }
+    }
+
+    private ResponseEntity<?> uploadError(Exception e) {
+        int status = e instanceof NoSuchElementException ? 404
+                : e instanceof IllegalArgumentException ? 400
+                : e instanceof IllegalStateException ? 409
+                : 500;
+        return ResponseEntity.status(status).body(Map.of("error", "Upload failed: " + e.getMessage()));
+    }
+
+    private String currentUsername() {
+        return SecurityContextHolder
                 .getContext()
                 .getAuthentication()
                 .getName();
+    }
 
-        List<Map<String, Object>> files = fileRepository
-                .findByUploadedBy(username)
+    // One page of the caller's files, newest first. X-Next-Cursor carries the token for the
+    // following page and is absent on the last one.
+    @GetMapping("/my-files")
+    public ResponseEntity<?> myFiles(@RequestParam(required = false) String cursor,
+                                     @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        String username = currentUsername();
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        try {
+            PageCursor after = decodeCursor(cursor);
+            List<FileSummary> rows = after == null
+                    ? fileRepository.findByUploadedByOrderByCreatedAtDescIdDesc(username, Limit.of(pageSize + 1))
+                    : fileRepository.findSummariesAfter(username, after.createdAt(), after.id(), Limit.of(pageSize + 1));
+            return page(rows, pageSize, f -> new PageCursor(f.getCreatedAt(), f.getId()), f -> {
+                Map<String, Object> map = new HashMap<>();
+                map.put("id", f.getId());
+                map.put("fileName", f.getFileName());
+                map.put("uploadedAt", f.getCreatedAt());
+                return map;
+            });
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
+    }
+
+    // The caller's own and shared files by name: q matches anywhere, prefix at the start, ext the
+    // extension; at least one is required, all are case-insensitive. Newest first, up to limit.
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam(required = false) String q,
+                                    @RequestParam(required = false) String prefix,
+                                    @RequestParam(required = false) String ext,
+                                    @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit) {
+        if (isBlank(q) && isBlank(prefix) && isBlank(ext)) {
+            return ResponseEntity.badRequest().body(Map.of("message", "One of q, prefix or ext is required"));
+        }
+        String username = currentUsername();
+        List<Map<String, Object>> results = fileNameIndex.search(username, q, prefix, ext, Math.clamp(limit, 1, MAX_PAGE_SIZE))
                 .stream()
-                .map(f -> {
+                .map(hit -> {
                     Map<String, Object> map = new HashMap<>();
-                    map.put("id", f.getId());
-                    map.put("fileName", f.getFileName());
-                    map.put("uploadedAt", f.getCreatedAt());
+                    map.put("id", hit.fileId());
+                    map.put("fileName", hit.fileName());
+                    map.put("owner", hit.owner());
+                    map.put("shared", !hit.owner().equals(username));
                     return map;
                 })
                 .collect(Collectors.toList());
+        return ResponseEntity.ok(results);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
 
-        return ResponseEntity.ok(files);
+    private static PageCursor decodeCursor(String cursor) {
+        return cursor == null || cursor.isBlank() ? null : PageCursor.decode(cursor);
+    }
+
+    // rows holds up to pageSize + 1 entries; the extra one only tells us another page exists
+    private static <T> ResponseEntity<List<Map<String, Object>>> page(
+            List<T> rows, int pageSize, Function<T, PageCursor> cursorOf, Function<T, Map<String, Object>> mapper) {
+        List<T> page = rows.subList(0, Math.min(pageSize, rows.size()));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (rows.size() > pageSize) {
+            response.header(NEXT_CURSOR_HEADER, cursorOf.apply(page.getLast()).encode());
+        }
+        return response.body(page.stream().map(mapper).collect(Collectors.toList()));
     }
 
 
 
     @GetMapping("/download/{id}")
-    public ResponseEntity<byte[]> downloadFile(@PathVariable Long id) {
+    public ResponseEntity<StreamingResponseBody> downloadFile(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
         try {
             String username = SecurityContextHolder
                     .getContext()
                     .getAuthentication()
                     .getName();
 
-            StoredFile file = fileRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("File not found"));
-
-            boolean isOwner = file.getUploadedBy().equals(username);
-            boolean isShared = !fileAccessRepository
-                    .findByFileIdAndSharedWith(id, username)
-                    .isEmpty();
-
-
-            if (!isOwner && !isShared) {
+            // Owner or grantee, answered from memory once the file's entry is loaded
+            if (!accessControlIndex.canRead(username, id)) {
                 return ResponseEntity.status(403).build();
             }
 
-            // Decrypt the file
-            byte[] decryptedData = fileService.downloadFile(id);
+            // Metadata only: the ciphertext is read later, incrementally, by the response body
+            FileMetadata file = fileRepository.findMetadataById(id)
+                    .orElseThrow(() -> new RuntimeException("File not found"));
+
+            // SHA-256 of the stored ciphertext, taken while the upload streamed in. Blobs are never
+            // rewritten, so it is a strong validator. Null only for rows still in the legacy column.
+            String eTag = file.getChecksum() != null ? "\"" + file.getChecksum() + "\"" : null;
+            if (eTag != null && noneMatch(ifNoneMatch, eTag)) {
+                // The client's copy is current: no blob header read, no key unwrapped, nothing decrypted
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(eTag)
+                        .cacheControl(REVALIDATE)
+                        .build();
+            }
 
-            // --- THE FINAL FIX ---
             // Use the original MIME type stored in the database
             String originalContentType = file.getContentType();
 
@@ -115,21 +316,192 @@ public class FileController {
                     ? MediaType.parseMediaType(originalContentType)
                     : MediaType.APPLICATION_OCTET_STREAM;
 
-            return ResponseEntity.ok()
-                    // Content-Disposition: This correctly sets the filename (e.g., "photo.jpg")
-                    .header(HttpHeaders.CONTENT_DISPOSITION,
-                            "attachment; filename=\"" + originalFileName + "\"")
-                    // Content-Type: This tells the browser the exact file format (e.g., "image/jpeg")
-                    .contentType(mediaType)
-                    .body(decryptedData);
+            HttpHeaders headers = new HttpHeaders();
+            // Content-Disposition: This correctly sets the filename (e.g., "photo.jpg")
+            headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + originalFileName + "\"");
+            // Content-Type: This tells the browser the exact file format (e.g., "image/jpeg")
+            headers.setContentType(mediaType);
+            // Browsers may keep the file but must revalidate it, which then costs a 304
+            headers.setCacheControl(REVALIDATE);
+            if (eTag != null) {
+                headers.setETag(eTag);
+            }
+
+            // Legacy and compressed blobs can only be decoded from the start, so they are always served whole
+            long length = fileService.plaintextLength(file);
+            if (length < 0) {
+                headers.set(HttpHeaders.ACCEPT_RANGES, "none");
+                // The plaintext size is unknown without decoding, so the stored size picks the bucket
+                long storedSize = file.getEncryptedSize() != null ? file.getEncryptedSize() : 0;
+                return ResponseEntity.ok()
+                        .headers(headers)
+                        .body(timed(storedSize, false,
+                                out -> fileService.streamFile(file, rateLimiter.throttleDownload(out, username))));
+            }
+
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            headers.setLastModified(file.getCreatedAt());
+
+            HttpRange requested = range != null && rangeStillValid(ifRange, eTag, file)
+                    ? singleRange(range)
+                    : null;
+
+            if (requested == null) {
+                headers.setContentLength(length);
+                return ResponseEntity.ok()
+                        .headers(headers)
+                        .body(timed(length, false,
+                                out -> fileService.streamFile(file, rateLimiter.throttleDownload(out, username))));
+            }
+
+            long start = requested.getRangeStart(length);
+            long end = requested.getRangeEnd(length);
+            if (start >= length || start > end) {
+                return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                        .build();
+            }
+
+            // Only the segments covering start..end are read and decrypted
+            headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            headers.setContentLength(end - start + 1);
+            return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .headers(headers)
+                    .body(timed(end - start + 1, true,
+                            out -> fileService.streamRange(file, start, end, rateLimiter.throttleDownload(out, username))));
 
         } catch (Exception e) {
-            System.err.println("Download error: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Download error: {}", e.getMessage(), e);
             return ResponseEntity.status(500).build();
         }
     }
 
+    // Times the body until its last byte is written; transfers that fail part-way are not recorded
+    private StreamingResponseBody timed(long bytes, boolean range, StreamingResponseBody body) {
+        return out -> {
+            long started = System.nanoTime();
+            body.writeTo(out);
+            transferMetrics.download(bytes, System.nanoTime() - started, range);
+        };
+    }
+
+    // Several files as one ZIP, decrypted and compressed while it streams: either the given
+    // ids (all must be readable) or, with shared=true, everything shared with the caller
+    @RequestMapping(value = "/download/zip", method = {RequestMethod.GET, RequestMethod.POST})
+    public ResponseEntity<StreamingResponseBody> downloadZip(@RequestParam(required = false) List<Long> ids,
+                                                             @RequestParam(defaultValue = "false") boolean shared) {
+        String username = currentUsername();
+        List<FileMetadata> files;
+        try {
+            if (shared) {
+                files = zipDownloadService.sharedFiles(username);
+            } else if (ids != null) {
+                files = zipDownloadService.readableFiles(username, ids);
+            } else {
+                return ResponseEntity.badRequest().build();
+            }
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (NoSuchElementException e) {
+            return ResponseEntity.status(403).build();
+        }
+        if (files.isEmpty()) {
+            return ResponseEntity.status(404).build();
+        }
+
+        String archiveName = shared ? "shared-with-me.zip" : "files.zip";
+        StreamingResponseBody body = out -> zipDownloadService.writeZip(files, rateLimiter.throttleDownload(out, username));
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archiveName + "\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
+    }
+
+    // If-None-Match compares weakly (W/"x" matches "x"); * matches any current representation
+    private static boolean noneMatch(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String candidate = tag.trim();
+            if (candidate.equals("*") || (candidate.startsWith("W/") ? candidate.substring(2) : candidate).equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // A Range is honoured only if If-Range is absent or still matches the representation
+    private boolean rangeStillValid(String ifRange, String eTag, FileMetadata file) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(eTag);
+        }
+        try {
+            long since = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+            return since == file.getCreatedAt().getEpochSecond();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    // Multi-range and malformed Range headers are ignored and the whole file is sent, as RFC 9110 allows
+    private HttpRange singleRange(String range) {
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(range);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    // Owner only. Identical uploads share one blob, which is removed with the last file using it
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> deleteFile(@PathVariable Long id) {
+        try {
+            FileMetadata file = fileRepository.findMetadataById(id).orElse(null);
+            if (file == null) {
+                return ResponseEntity.status(404).body(Map.of("message", "File not found"));
+            }
+            if (!file.getUploadedBy().equals(currentUsername())) {
+                return ResponseEntity.status(403).body(Map.of("message", "Only owner can delete"));
+            }
+            fileService.deleteFile(file);
+            return ResponseEntity.ok(Map.of("message", "File deleted"));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("message", "Delete failed: " + e.getMessage()));
+        }
+    }
+
+    // Owner only: what the file takes up in storage and what compressing it cost
+    @GetMapping("/{id}/storage")
+    public ResponseEntity<?> storageStats(@PathVariable Long id) {
+        FileMetadata file = fileRepository.findMetadataById(id).orElse(null);
+        if (file == null) {
+            return ResponseEntity.status(404).body(Map.of("message", "File not found"));
+        }
+        if (!file.getUploadedBy().equals(currentUsername())) {
+            return ResponseEntity.status(403).body(Map.of("message", "Only owner can view storage details"));
+        }
+
+        Map<String, Object> resp = new HashMap<>();
+        resp.put("id", file.getId());
+        resp.put("storedSize", file.getEncryptedSize());
+        fileService.storageStats(file).ifPresent(blob -> {
+            resp.put("size", blob.getPlainSize());
+            resp.put("compressed", blob.isCompressed());
+            if (blob.getPlainSize() != null && blob.getPlainSize() > 0 && blob.getEncryptedSize() != null) {
+                resp.put("compressionRatio", (double) blob.getEncryptedSize() / blob.getPlainSize());
+            }
+            if (blob.getCompressionCpuNanos() != null) {
+                resp.put("compressionCpuMillis", blob.getCompressionCpuNanos() / 1_000_000.0);
+            }
+        });
+        return ResponseEntity.ok(resp);
+    }
+
     @PostMapping("/share")
     public ResponseEntity<?> shareFile(
             @RequestParam Long fileId,
@@ -141,54 +513,69 @@ public class FileController {
                     .getAuthentication()
                     .getName();
 
-            StoredFile file = fileRepository.findById(fileId)
-                    .orElseThrow(() -> new RuntimeException("File not found"));
-
-            if (!file.getUploadedBy().equals(owner)) {
-                return ResponseEntity.status(403).body("Only owner can share");
-            }
-
-            fileAccessRepository.save(
-                    FileAccess.builder()
-                            .fileId(fileId)
-                            .sharedBy(owner)
-                            .sharedWith(usernameToShare)
-                            .build()
-            );
-
-            return ResponseEntity.ok("File shared successfully");
+            ShareService.Result result = shareService.share(owner, List.of(fileId), List.of(usernameToShare)).get(0);
+            return switch (result.status()) {
+                case SHARED -> ResponseEntity.ok("File shared successfully");
+                case ALREADY_SHARED -> ResponseEntity.ok("File already shared with " + usernameToShare);
+                case NOT_FOUND -> ResponseEntity.status(404).body("File not found");
+                case FORBIDDEN -> ResponseEntity.status(403).body("Only owner can share");
+                case UNKNOWN_USER -> ResponseEntity.status(404).body("User not found: " + usernameToShare);
+                case SELF -> ResponseEntity.badRequest().body("Cannot share a file with yourself");
+            };
         } catch (Exception e) {
             return ResponseEntity.status(500)
                     .body("Share failed: " + e.getMessage());
         }
     }
 
-    @GetMapping("/shared-with-me")
-    public ResponseEntity<List<Map<String, Object>>> sharedWithMe() {
-        String username = SecurityContextHolder
-                .getContext()
-                .getAuthentication()
-                .getName();
-
-        List<Map<String, Object>> files = fileAccessRepository
-                .findBySharedWith(username)
-                .stream()
-                .map(access -> {
-                    StoredFile file = fileRepository
-                            .findById(access.getFileId())
-                            .orElse(null);
-
-                    if (file == null) return null;
+    // Many files with many recipients in one request; the body lists the outcome of every pair
+    @PostMapping("/share/bulk")
+    public ResponseEntity<?> shareFiles(@RequestBody BulkShareRequest request) {
+        if (request.getFileIds() == null || request.getRecipients() == null) {
+            return ResponseEntity.badRequest().body(Map.of("message", "fileIds and recipients are required"));
+        }
+        try {
+            List<ShareService.Result> results = shareService.share(
+                    currentUsername(), request.getFileIds(), request.getRecipients());
 
-                    Map<String, Object> map = new HashMap<>();
-                    map.put("id", file.getId());
-                    map.put("fileName", file.getFileName());
-                    map.put("sharedBy", access.getSharedBy());
-                    return map;
-                })
-                .filter(Objects::nonNull)
-                .toList();
+            Map<ShareService.Status, Long> counts = results.stream()
+                    .collect(Collectors.groupingBy(ShareService.Result::status, Collectors.counting()));
+            Map<String, Object> resp = new HashMap<>();
+            resp.put("results", results);
+            resp.put("shared", counts.getOrDefault(ShareService.Status.SHARED, 0L));
+            resp.put("alreadyShared", counts.getOrDefault(ShareService.Status.ALREADY_SHARED, 0L));
+            resp.put("failed", results.size()
+                    - counts.getOrDefault(ShareService.Status.SHARED, 0L)
+                    - counts.getOrDefault(ShareService.Status.ALREADY_SHARED, 0L));
+            return ResponseEntity.ok(resp);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("message", "Share failed: " + e.getMessage()));
+        }
+    }
 
-        return ResponseEntity.ok(files);
+    // Files shared with the caller in one joined query, paged like my-files.
+    // order=desc (default) lists the newest shares first, order=asc the oldest.
+    @GetMapping("/shared-with-me")
+    public ResponseEntity<?> sharedWithMe(@RequestParam(required = false) String cursor,
+                                          @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) int limit,
+                                          @RequestParam(defaultValue = "desc") String order) {
+        String username = currentUsername();
+        int pageSize = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        try {
+            List<SharedFileSummary> rows = shareService.sharedWith(
+                    username, decodeCursor(cursor), Sort.Direction.fromString(order), Limit.of(pageSize + 1));
+            return page(rows, pageSize, f -> new PageCursor(f.getSharedAt(), f.getAccessId()), f -> {
+                Map<String, Object> map = new HashMap<>();
+                map.put("id", f.getId());
+                map.put("fileName", f.getFileName());
+                map.put("sharedBy", f.getSharedBy());
+                map.put("sharedAt", f.getSharedAt());
+                return map;
+            });
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,7 @@
+package com.example.EncryptedFileSharing.dto;
+
+// A file's owner with one of its grantees; grantee is null for a file that is not shared
+public interface AccessGrant {
+    String getOwner();
+    String getGrantee();
+}
@@ -0,0 +1,12 @@
+package com.example.EncryptedFileSharing.dto;
+
+import lombok.Data;
+
+import java.util.List;
+
+// Every file in fileIds is shared with every recipient
+@Data
+public class BulkShareRequest {
+    private List<Long> fileIds;
+    private List<String> recipients;
+}
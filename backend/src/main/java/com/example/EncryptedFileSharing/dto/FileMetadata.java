@@ -0,0 +1,15 @@
+package com.example.EncryptedFileSharing.dto;
+
+import java.time.Instant;
+
+// Closed projection over StoredFile: only these columns are selected, never the ciphertext
+public interface FileMetadata {
+    Long getId();
+    String getFileName();
+    String getContentType();
+    String getUploadedBy();
+    Instant getCreatedAt();
+    String getBlobKey();
+    Long getEncryptedSize();
+    String getChecksum();
+}
@@ -0,0 +1,10 @@
+package com.example.EncryptedFileSharing.dto;
+
+import java.time.Instant;
+
+// Listing row: just what the file tables show, served straight from the (uploaded_by, created_at, id) index
+public interface FileSummary {
+    Long getId();
+    String getFileName();
+    Instant getCreatedAt();
+}
@@ -0,0 +1,7 @@
+package com.example.EncryptedFileSharing.dto;
+
+// A (file, recipient) pair, the unique key of a share
+public interface ShareKey {
+    Long getFileId();
+    String getSharedWith();
+}
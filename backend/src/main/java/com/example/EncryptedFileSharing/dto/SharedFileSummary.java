@@ -0,0 +1,12 @@
+package com.example.EncryptedFileSharing.dto;
+
+import java.time.Instant;
+
+// One share row joined with its file's name; accessId is the file_access id that keys the cursor
+public interface SharedFileSummary {
+    Long getId();
+    String getFileName();
+    String getSharedBy();
+    Instant getSharedAt();
+    Long getAccessId();
+}
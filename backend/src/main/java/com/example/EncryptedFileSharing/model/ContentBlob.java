@@ -0,0 +1,62 @@
+package com.example.EncryptedFileSharing.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * One stored copy of a given plaintext for a given owner. Every StoredFile with the same
+ * owner and content points at the same blob, and refCount tracks how many do. Dedup stays
+ * within one owner, so an upload never reveals whether someone else holds the same file.
+ */
+@Entity
+@Table(name = "content_blob",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"owner", "contentHash"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ContentBlob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String owner;
+
+    // SHA-256 of the plaintext, hex encoded
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(nullable = false, unique = true, length = 128)
+    private String blobKey;
+
+    private Long encryptedSize;
+
+    @Column(length = 64)
+    private String checksum;
+
+    // The blob's data key, wrapped under master key keyVersion (see KeyRing).
+    // Null for blobs encrypted directly with the global key before envelope encryption.
+    @Column(length = 64)
+    private byte[] wrappedKey;
+
+    private Integer keyVersion;
+
+    // Original length; storedSize / plainSize is the compression ratio
+    private Long plainSize;
+
+    // Whether the plaintext was deflated before encryption, and the deflater's CPU time
+    private boolean compressed;
+
+    private Long compressionCpuNanos;
+
+    @Column(nullable = false)
+    private int refCount;
+
+    @Builder.Default
+    private Instant createdAt = Instant.now();
+}
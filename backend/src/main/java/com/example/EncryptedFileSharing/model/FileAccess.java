@@ -6,6 +6,8 @@ import lombok.*;
 import java.time.Instant;
 
 @Entity
+@Table(indexes = @Index(name = "idx_file_access_shared_with_created", columnList = "sharedWith, createdAt, id"),
+        uniqueConstraints = @UniqueConstraint(name = FileAccess.UNIQUE_SHARE, columnNames = {"fileId", "sharedWith"}))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -13,6 +15,8 @@ import java.time.Instant;
 @Builder
 public class FileAccess {
 
+    public static final String UNIQUE_SHARE = "uk_file_access_file_shared_with";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -23,5 +27,6 @@ public class FileAccess {
 
     private String sharedBy;
 
+    @Builder.Default
     private Instant createdAt = Instant.now();
 }
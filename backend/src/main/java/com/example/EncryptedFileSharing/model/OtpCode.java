@@ -9,7 +9,8 @@ import lombok.NoArgsConstructor;
 import java.time.Instant;
 
 @Entity
-@Table(name="otp_code")
+// Only used by JdbcOtpStore (app.otp.store=jdbc); the default store keeps codes in memory
+@Table(name="otp_code", indexes = @Index(name = "idx_otp_code_username", columnList = "username"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -22,4 +23,6 @@ public class OtpCode {
     private String username;
     private Instant expiresAt;
     private boolean used;
+    // Guesses taken so far; JdbcOtpStore deletes the row once app.otp.max-attempts is reached
+    private int attempts;
 }
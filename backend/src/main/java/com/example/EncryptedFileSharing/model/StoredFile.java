@@ -2,10 +2,12 @@ package com.example.EncryptedFileSharing.model;
 
 import jakarta.persistence.*;
 import lombok.*;
+
 import java.time.Instant;
 
 @Entity
-@Table(name = "stored_file")
+@Table(name = "stored_file",
+        indexes = @Index(name = "idx_stored_file_owner_created", columnList = "uploadedBy, createdAt, id"))
 @Getter
 @Setter
 @NoArgsConstructor
@@ -27,12 +29,16 @@ public class StoredFile {
     @Column(nullable = false)
     private String uploadedBy;
 
-    @Lob // JPA annotation for large object
-    // Note: The specific database column type (BLOB, BYTEA, etc.) will be
-    // handled automatically by your JPA provider (e.g., Hibernate) based on this byte[].
+    // Ciphertext lives in the BlobStore; the row only points at it.
+    // Null for legacy rows whose bytes are still in encrypted_data (see BlobMigrator).
+    @Column(length = 128)
+    private String blobKey;
+
+    private Long encryptedSize;
 
-    @Column(columnDefinition = "LONGBLOB", nullable = false)
-    private byte[] encryptedData; // <-- CORRECT TYPE for encrypted files
+    // SHA-256 of the stored ciphertext, hex encoded
+    @Column(length = 64)
+    private String checksum;
 
     @Builder.Default
     private Instant createdAt = Instant.now();
@@ -0,0 +1,45 @@
+package com.example.EncryptedFileSharing.model;
+
+import com.example.EncryptedFileSharing.util.SegmentedFormat;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "upload_chunk",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"uploadId", "chunkIndex"}))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadChunk {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 32)
+    private String uploadId;
+
+    @Column(nullable = false)
+    private int chunkIndex;
+
+    @Column(nullable = false)
+    private long size;
+
+    // Nonce prefix the chunk's segments were sealed under; a fresh one for every attempt
+    @Column(nullable = false, length = SegmentedFormat.NONCE_PREFIX_LENGTH)
+    private byte[] noncePrefix;
+
+    // SHA-256 of the chunk's plaintext and of its sealed segments, hex encoded; combined at commit
+    @Column(nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(nullable = false, length = 64)
+    private String checksum;
+
+    @Builder.Default
+    private Instant receivedAt = Instant.now();
+}
@@ -0,0 +1,62 @@
+package com.example.EncryptedFileSharing.model;
+
+import com.example.EncryptedFileSharing.util.AeadAlgorithm;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+// A resumable upload in progress; chunks are sealed in place in the session's BlobStore staging area as they arrive
+@Entity
+@Table(name = "upload_session", indexes = @Index(columnList = "expiresAt"))
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class UploadSession {
+
+    @Id
+    @Column(length = 32)
+    private String id;
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(nullable = false)
+    private String fileName;
+
+    @Column(nullable = false)
+    private String contentType;
+
+    @Column(nullable = false)
+    private long totalSize;
+
+    @Column(nullable = false)
+    private int chunkSize;
+
+    // Cipher every chunk is sealed with, fixed when the session opens
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private AeadAlgorithm algorithm;
+
+    // Data key the chunks are encrypted with; handed on to the ContentBlob at commit
+    @Column(nullable = false, length = 64)
+    private byte[] wrappedKey;
+
+    @Column(nullable = false)
+    private Integer keyVersion;
+
+    @Builder.Default
+    private Instant createdAt = Instant.now();
+
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    // Set by the one commit that goes ahead; no chunk is written after that
+    private boolean committing;
+
+    public int chunkCount() {
+        return (int) ((totalSize + chunkSize - 1) / chunkSize);
+    }
+}
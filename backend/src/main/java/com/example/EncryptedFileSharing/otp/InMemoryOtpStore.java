@@ -0,0 +1,71 @@
+package com.example.EncryptedFileSharing.otp;
+
+import com.example.EncryptedFileSharing.util.HashedTimingWheel;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single-node OTP store: one entry per user in a concurrent map. Expired entries are dropped
+ * by a {@link HashedTimingWheel} instead of a table scan. Expiry is still checked on every
+ * verify, so the wheel's coarse timing only affects memory, never correctness.
+ */
+public class InMemoryOtpStore implements OtpStore, AutoCloseable {
+
+    static final class Entry {
+        final String code;
+        final Instant expiresAt;
+        final AtomicInteger attempts = new AtomicInteger();
+
+        Entry(String code, Instant expiresAt) {
+            this.code = code;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final ConcurrentHashMap<String, Entry> codes = new ConcurrentHashMap<>();
+    private final HashedTimingWheel expiry = new HashedTimingWheel("otp-expiry", Duration.ofSeconds(1), 512);
+    private final int maxAttempts;
+
+    public InMemoryOtpStore(int maxAttempts) {
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public void issue(String username, String code, Duration ttl) {
+        put(username, code, Instant.now().plus(ttl));
+    }
+
+    private void put(String username, String code, Instant expiresAt) {
+        Entry entry = new Entry(code, expiresAt);
+        codes.put(username, entry);
+        // Only removes this entry, never a newer code issued in the meantime
+        expiry.schedule(Duration.between(Instant.now(), expiresAt), () -> codes.remove(username, entry));
+    }
+
+    @Override
+    public boolean verify(String username, String code) {
+        Entry entry = codes.get(username);
+        if (entry == null) {
+            return false;
+        }
+        if (!entry.expiresAt.isAfter(Instant.now()) || entry.attempts.incrementAndGet() > maxAttempts) {
+            codes.remove(username, entry);
+            return false;
+        }
+        if (!MessageDigest.isEqual(entry.code.getBytes(StandardCharsets.UTF_8), code.getBytes(StandardCharsets.UTF_8))) {
+            return false;
+        }
+        // Of two concurrent correct guesses only one gets to remove the entry
+        return codes.remove(username, entry);
+    }
+
+    @Override
+    public void close() {
+        expiry.close();
+    }
+}
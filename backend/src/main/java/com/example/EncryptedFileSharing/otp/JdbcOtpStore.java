@@ -0,0 +1,123 @@
+package com.example.EncryptedFileSharing.otp;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * OTP store for several nodes behind a load balancer. Codes live in {@code otp_code}.
+ * Newly issued codes are written behind the request in small batches, and repeated requests
+ * for the same user coalesce into one write. A node flushes a code it still holds before
+ * verifying it. Taking a code out of the pending map and writing it happen under the map's
+ * monitor, so a flush and a verify on this node never write the same user's row at once
+ * (two interleaved delete-then-insert writes would leave two live rows).
+ *
+ * The attempt count is kept in the row, so the limit holds across nodes. Every guess first
+ * takes an attempt with a conditional update; once the limit is reached the row is deleted
+ * and the user has to request a new code. Consuming a code is a conditional delete, so it
+ * succeeds on only one node.
+ */
+@Slf4j
+public class JdbcOtpStore implements OtpStore, AutoCloseable {
+
+    private record PendingWrite(String code, Instant expiresAt) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxAttempts;
+    private final Map<String, PendingWrite> pending = new ConcurrentHashMap<>();
+
+    public JdbcOtpStore(JdbcTemplate jdbcTemplate, int maxAttempts) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Override
+    public void issue(String username, String code, Duration ttl) {
+        pending.put(username, new PendingWrite(code, Instant.now().plus(ttl)));
+    }
+
+    @Override
+    public boolean verify(String username, String code) {
+        // Also waits for a flush in progress, which may be writing this user's code
+        synchronized (pending) {
+            PendingWrite unflushed = pending.remove(username);
+            if (unflushed != null) {
+                try {
+                    write(List.of(Map.entry(username, unflushed)));
+                } catch (RuntimeException e) {
+                    pending.putIfAbsent(username, unflushed);
+                    throw e;
+                }
+            }
+        }
+        Timestamp now = Timestamp.from(Instant.now());
+        int taken = jdbcTemplate.update("update otp_code set attempts = attempts + 1"
+                + " where username = ? and used = false and expires_at > ? and attempts < ?", username, now, maxAttempts);
+        if (taken == 0) {
+            // No live code, or its guesses are used up: the code is gone for good
+            jdbcTemplate.update("delete from otp_code where username = ? and attempts >= ?", username, maxAttempts);
+            return false;
+        }
+        return jdbcTemplate.update("delete from otp_code where username = ? and code = ? and expires_at > ?",
+                username, code, now) == 1;
+    }
+
+    @Scheduled(fixedDelayString = "${app.otp.write-behind-interval-ms:500}")
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // Issuing does not take the monitor; a code issued meanwhile waits for the next flush
+        synchronized (pending) {
+            List<Map.Entry<String, PendingWrite>> batch = new ArrayList<>();
+            for (String username : List.copyOf(pending.keySet())) {
+                PendingWrite write = pending.remove(username);
+                if (write != null) {
+                    batch.add(Map.entry(username, write));
+                }
+            }
+            try {
+                write(batch);
+            } catch (RuntimeException e) {
+                log.warn("OTP write-behind failed for {} users, retrying: {}", batch.size(), e.getMessage());
+                // Put them back unless a newer code has been issued meanwhile
+                batch.forEach(entry -> pending.putIfAbsent(entry.getKey(), entry.getValue()));
+            }
+        }
+    }
+
+    // Expired codes are never verified again; this also clears rows left from before the store existed
+    @Scheduled(fixedDelayString = "${app.otp.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        int purged = jdbcTemplate.update("delete from otp_code where expires_at < ? or used = true",
+                Timestamp.from(Instant.now()));
+        if (purged > 0) {
+            log.debug("Purged {} expired OTP rows", purged);
+        }
+    }
+
+    private void write(List<Map.Entry<String, PendingWrite>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("delete from otp_code where username = ?",
+                batch.stream().map(entry -> new Object[]{entry.getKey()}).toList());
+        jdbcTemplate.batchUpdate("insert into otp_code (username, code, expires_at, used, attempts) values (?, ?, ?, false, 0)",
+                batch.stream().map(entry -> new Object[]{
+                        entry.getKey(), entry.getValue().code(), Timestamp.from(entry.getValue().expiresAt())}).toList());
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
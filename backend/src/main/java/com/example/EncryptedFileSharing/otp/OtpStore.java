@@ -0,0 +1,15 @@
+package com.example.EncryptedFileSharing.otp;
+
+import java.time.Duration;
+
+/**
+ * Holds the one outstanding OTP per user. Issuing a new code replaces the previous one, a
+ * code can be used once, and a user only gets a limited number of guesses per code.
+ */
+public interface OtpStore {
+
+    void issue(String username, String code, Duration ttl);
+
+    // True at most once per issued code; wrong guesses count against the attempt limit
+    boolean verify(String username, String code);
+}
@@ -0,0 +1,36 @@
+package com.example.EncryptedFileSharing.ratelimit;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Groups file endpoints that share a rate limit, configured under
+ * {@code app.rate-limit.<name>.requests-per-minute}, {@code .burst} and, for the streaming
+ * classes, {@code .bytes-per-second} (see {@link RateLimiter} for the defaults).
+ */
+public enum EndpointClass {
+
+    DOWNLOAD("download"),
+    UPLOAD("upload"),
+    API("api");
+
+    private final String key;
+
+    EndpointClass(String key) {
+        this.key = key;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    static EndpointClass of(HttpServletRequest request) {
+        String path = request.getServletPath();
+        if (path.startsWith("/files/download/")) {
+            return DOWNLOAD;
+        }
+        if (path.equals("/files/upload") || path.startsWith("/files/uploads")) {
+            return UPLOAD;
+        }
+        return API;
+    }
+}
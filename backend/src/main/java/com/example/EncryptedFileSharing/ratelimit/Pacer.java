@@ -0,0 +1,25 @@
+package com.example.EncryptedFileSharing.ratelimit;
+
+import io.micrometer.core.instrument.Timer;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+
+// Blocks the calling thread long enough to keep a byte stream within its bucket's rate
+record Pacer(TokenBucket bucket, Timer throttled) {
+
+    void pace(long bytes) throws IOException {
+        long waitNanos = bucket.reserve(bytes);
+        if (waitNanos <= 0) {
+            return;
+        }
+        throttled.record(Duration.ofNanos(waitNanos));
+        try {
+            Thread.sleep(Duration.ofNanos(waitNanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while throttled");
+        }
+    }
+}
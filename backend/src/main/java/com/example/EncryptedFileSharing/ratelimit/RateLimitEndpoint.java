@@ -0,0 +1,22 @@
+package com.example.EncryptedFileSharing.ratelimit;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// GET /actuator/ratelimits: who has been rejected most recently, per endpoint class
+@Component
+@Endpoint(id = "ratelimits")
+@RequiredArgsConstructor
+public class RateLimitEndpoint {
+
+    private final RateLimiter rateLimiter;
+
+    @ReadOperation
+    public Map<String, Long> mostThrottled() {
+        return rateLimiter.mostThrottled(50);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.EncryptedFileSharing.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-client token buckets for the file endpoints: one request bucket per client and
+ * {@link EndpointClass}, plus one byte bucket per client for download and upload traffic
+ * that every stream of that client draws from. Upload bytes are paced on chunked PUT
+ * bodies only; a multipart upload has been received in full by the container before the
+ * application sees it, so it counts against the request limit but is not byte-limited. Idle buckets are dropped after a while;
+ * a recreated bucket starts full, which is where the old one would have been anyway.
+ *
+ * Rejections are counted in {@code ratelimit.rejected} (by endpoint class), time spent
+ * pacing streams in {@code ratelimit.throttled} (by direction), and the most throttled
+ * clients are listed by the {@code ratelimits} actuator endpoint.
+ */
+@Component
+public class RateLimiter {
+
+    record Policy(long requestsPerMinute, long burst, long bytesPerSecond) {
+    }
+
+    private final boolean enabled;
+    private final Map<EndpointClass, Policy> policies = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Counter> rejected = new EnumMap<>(EndpointClass.class);
+    private final Map<EndpointClass, Timer> throttled = new EnumMap<>(EndpointClass.class);
+    private final Cache<String, TokenBucket> buckets = Caffeine.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofMinutes(10))
+            .build();
+    private final Cache<String, AtomicLong> rejectionsByClient = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(15))
+            .build();
+
+    public RateLimiter(MeterRegistry meterRegistry,
+                       @Value("${app.rate-limit.enabled:true}") boolean enabled,
+                       @Value("${app.rate-limit.download.requests-per-minute:120}") long downloadRequestsPerMinute,
+                       @Value("${app.rate-limit.download.burst:30}") long downloadBurst,
+                       @Value("${app.rate-limit.download.bytes-per-second:50MB}") DataSize downloadBytesPerSecond,
+                       @Value("${app.rate-limit.upload.requests-per-minute:600}") long uploadRequestsPerMinute,
+                       @Value("${app.rate-limit.upload.burst:60}") long uploadBurst,
+                       @Value("${app.rate-limit.upload.bytes-per-second:50MB}") DataSize uploadBytesPerSecond,
+                       @Value("${app.rate-limit.api.requests-per-minute:300}") long apiRequestsPerMinute,
+                       @Value("${app.rate-limit.api.burst:60}") long apiBurst) {
+        this.enabled = enabled;
+        policies.put(EndpointClass.DOWNLOAD, new Policy(downloadRequestsPerMinute, downloadBurst, downloadBytesPerSecond.toBytes()));
+        policies.put(EndpointClass.UPLOAD, new Policy(uploadRequestsPerMinute, uploadBurst, uploadBytesPerSecond.toBytes()));
+        policies.put(EndpointClass.API, new Policy(apiRequestsPerMinute, apiBurst, 0));
+        for (EndpointClass endpoint : EndpointClass.values()) {
+            rejected.put(endpoint, Counter.builder("ratelimit.rejected")
+                    .description("Requests answered with 429")
+                    .tag("endpoint", endpoint.key())
+                    .register(meterRegistry));
+            throttled.put(endpoint, Timer.builder("ratelimit.throttled")
+                    .description("Time streams were held back to stay within the byte rate")
+                    .tag("endpoint", endpoint.key())
+                    .register(meterRegistry));
+        }
+    }
+
+    // Nanoseconds until the client may retry, or 0 if the request may proceed
+    public long tryAcquire(EndpointClass endpoint, String client) {
+        Policy policy = policies.get(endpoint);
+        if (!enabled || policy.requestsPerMinute() <= 0) {
+            return 0;
+        }
+        TokenBucket bucket = buckets.get(endpoint.key() + ":" + client,
+                key -> new TokenBucket(policy.burst(), policy.requestsPerMinute() / 60d));
+        long waitNanos = bucket.tryConsume(1);
+        if (waitNanos > 0) {
+            rejected.get(endpoint).increment();
+            rejectionsByClient.get(endpoint.key() + ":" + client, key -> new AtomicLong()).incrementAndGet();
+        }
+        return waitNanos;
+    }
+
+    public OutputStream throttleDownload(OutputStream out, String client) {
+        Pacer pacer = pacer(EndpointClass.DOWNLOAD, client);
+        return pacer == null ? out : new ThrottledOutputStream(out, pacer);
+    }
+
+    // For request bodies read straight off the connection (chunk PUTs)
+    public InputStream throttleUpload(InputStream in, String client) {
+        Pacer pacer = pacer(EndpointClass.UPLOAD, client);
+        return pacer == null ? in : new ThrottledInputStream(in, pacer);
+    }
+
+    // Clients with the most rejections in the last 15 minutes, keyed "endpoint:client"
+    public Map<String, Long> mostThrottled(int limit) {
+        Map<String, Long> top = new LinkedHashMap<>();
+        rejectionsByClient.asMap().entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, AtomicLong> e) -> e.getValue().get()).reversed())
+                .limit(limit)
+                .forEach(e -> top.put(e.getKey(), e.getValue().get()));
+        return top;
+    }
+
+    private Pacer pacer(EndpointClass endpoint, String client) {
+        long bytesPerSecond = policies.get(endpoint).bytesPerSecond();
+        if (!enabled || bytesPerSecond <= 0) {
+            return null;
+        }
+        // One second worth of bytes may go out at full speed before pacing starts
+        TokenBucket bucket = buckets.get(endpoint.key() + "-bytes:" + client,
+                key -> new TokenBucket(bytesPerSecond, bytesPerSecond));
+        return new Pacer(bucket, throttled.get(endpoint));
+    }
+}
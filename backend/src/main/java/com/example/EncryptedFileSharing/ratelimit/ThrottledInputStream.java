@@ -0,0 +1,43 @@
+package com.example.EncryptedFileSharing.ratelimit;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Paces reads to the byte rate of a shared bucket; for uploads this slows the client at the socket
+public class ThrottledInputStream extends FilterInputStream {
+
+    private final Pacer pacer;
+
+    ThrottledInputStream(InputStream in, Pacer pacer) {
+        super(in);
+        this.pacer = pacer;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b != -1) {
+            pacer.pace(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = in.read(b, off, len);
+        if (n > 0) {
+            pacer.pace(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = in.skip(n);
+        if (skipped > 0) {
+            pacer.pace(skipped);
+        }
+        return skipped;
+    }
+}
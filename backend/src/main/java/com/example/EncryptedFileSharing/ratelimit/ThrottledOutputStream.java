@@ -0,0 +1,28 @@
+package com.example.EncryptedFileSharing.ratelimit;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Paces writes to the byte rate of a shared bucket, so all of a user's downloads together stay under it
+public class ThrottledOutputStream extends FilterOutputStream {
+
+    private final Pacer pacer;
+
+    ThrottledOutputStream(OutputStream out, Pacer pacer) {
+        super(out);
+        this.pacer = pacer;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        pacer.pace(1);
+        out.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        pacer.pace(len);
+        out.write(b, off, len);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.EncryptedFileSharing.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket. Instead of a token count plus a refill timestamp, the whole state
+ * is one "theoretical arrival time" (the GCRA formulation): the instant at which the bucket
+ * would be full again. Taking n tokens pushes that instant n emission intervals further out,
+ * and the request conforms as long as it stays within one bucket capacity of now. A single
+ * CAS updates it, so contended buckets never block.
+ *
+ * The emission interval is kept as a double: byte rates such as 8 MB/s come to a fraction
+ * of a nanosecond per token, and rounding that to whole nanoseconds skews the rate (by
+ * 0.2% at 8 MB/s). The cost of n tokens is rounded once per call instead.
+ */
+public final class TokenBucket {
+
+    private final double nanosPerToken;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(long capacity, double tokensPerSecond) {
+        if (capacity <= 0 || tokensPerSecond <= 0) {
+            throw new IllegalArgumentException("capacity and rate must be positive");
+        }
+        this.nanosPerToken = 1_000_000_000d / tokensPerSecond;
+        this.burstNanos = nanos(capacity);
+        // Starts full
+        this.fullAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes n tokens if they are available now. Otherwise takes nothing and returns the
+     * nanoseconds until they would be, so callers can answer with Retry-After.
+     */
+    public long tryConsume(long n) {
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + nanos(n);
+            long allowedAt = next - burstNanos;
+            if (allowedAt - now > 0) {
+                return allowedAt - now;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Takes n tokens unconditionally, borrowing against the future if the bucket runs dry.
+     * Returns how long the caller has to wait to stay within the rate (0 if it need not).
+     */
+    public long reserve(long n) {
+        while (true) {
+            long now = System.nanoTime();
+            long current = fullAt.get();
+            long next = Math.max(current, now) + nanos(n);
+            if (fullAt.compareAndSet(current, next)) {
+                return Math.max(0, next - burstNanos - now);
+            }
+        }
+    }
+
+    // Rounded to the nearest nanosecond; fails rather than wrapping for absurd settings
+    private long nanos(long tokens) {
+        double nanos = tokens * nanosPerToken;
+        if (nanos >= Long.MAX_VALUE / 2d) {
+            throw new ArithmeticException("Token bucket interval overflows: " + tokens + " tokens");
+        }
+        return Math.max(1, Math.round(nanos));
+    }
+}
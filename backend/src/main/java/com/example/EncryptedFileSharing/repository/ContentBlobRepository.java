@@ -0,0 +1,21 @@
+package com.example.EncryptedFileSharing.repository;
+
+import com.example.EncryptedFileSharing.model.ContentBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+
+import java.util.Optional;
+
+public interface ContentBlobRepository extends JpaRepository<ContentBlob, Long> {
+
+    // Both lock the row, so reference counting serialises per blob
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<ContentBlob> findByOwnerAndContentHash(String owner, String contentHash);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<ContentBlob> findByBlobKey(String blobKey);
+
+    // Plain read for reporting, no lock
+    Optional<ContentBlob> readByBlobKey(String blobKey);
+}
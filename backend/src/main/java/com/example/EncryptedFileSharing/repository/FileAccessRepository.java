@@ -1,15 +1,57 @@
 package com.example.EncryptedFileSharing.repository;
 
+import com.example.EncryptedFileSharing.dto.ShareKey;
+import com.example.EncryptedFileSharing.dto.SharedFileSummary;
 import com.example.EncryptedFileSharing.model.FileAccess;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 public interface FileAccessRepository extends JpaRepository<FileAccess, Long> {
 
-    List<FileAccess> findBySharedWith(String username);
+    // Which of these file/recipient pairs are shared already; one query for a whole bulk request
+    @Query("""
+            select a.fileId as fileId, a.sharedWith as sharedWith from FileAccess a
+            where a.fileId in :fileIds and a.sharedWith in :recipients""")
+    List<ShareKey> findExistingShares(Collection<Long> fileIds, Collection<String> recipients);
 
-    List<FileAccess> findByFileIdAndSharedWith(Long fileId, String username);
-    Optional<FileAccess> findFirstByFileIdAndSharedWith(Long fileId, String username);
+    // Shares joined to their files in one round trip, walking the (shared_with, created_at, id) index
+    String SHARED_WITH_SELECT = """
+            select f.id as id, f.fileName as fileName, a.sharedBy as sharedBy,
+                   a.createdAt as sharedAt, a.id as accessId
+            from FileAccess a join StoredFile f on f.id = a.fileId
+            where a.sharedWith = :sharedWith
+            """;
+
+    @Query(SHARED_WITH_SELECT + "order by a.createdAt desc, a.id desc")
+    List<SharedFileSummary> findSharedWithNewestFirst(String sharedWith, Limit limit);
+
+    @Query(SHARED_WITH_SELECT + """
+            and (a.createdAt < :createdAt or (a.createdAt = :createdAt and a.id < :id))
+            order by a.createdAt desc, a.id desc""")
+    List<SharedFileSummary> findSharedWithNewestFirstAfter(String sharedWith, Instant createdAt, Long id, Limit limit);
+
+    @Query(SHARED_WITH_SELECT + "order by a.createdAt asc, a.id asc")
+    List<SharedFileSummary> findSharedWithOldestFirst(String sharedWith, Limit limit);
+
+    @Query(SHARED_WITH_SELECT + """
+            and (a.createdAt > :createdAt or (a.createdAt = :createdAt and a.id > :id))
+            order by a.createdAt asc, a.id asc""")
+    List<SharedFileSummary> findSharedWithOldestFirstAfter(String sharedWith, Instant createdAt, Long id, Limit limit);
+
+    @Modifying
+    @Transactional
+    @Query("delete from FileAccess a where a.fileId = :fileId")
+    void deleteByFileId(Long fileId);
+
+    @Modifying
+    @Transactional
+    @Query("update FileAccess a set a.createdAt = :now where a.createdAt is null")
+    int backfillCreatedAt(Instant now);
 }
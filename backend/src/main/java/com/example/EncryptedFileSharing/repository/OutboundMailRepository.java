@@ -0,0 +1,31 @@
+package com.example.EncryptedFileSharing.repository;
+
+import com.example.EncryptedFileSharing.model.OutboundMail;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OutboundMailRepository extends JpaRepository<OutboundMail, Long> {
+
+    @Query("""
+            select m.id from OutboundMail m
+            where m.status = com.example.EncryptedFileSharing.model.OutboundMail.Status.PENDING
+              and m.nextAttemptAt <= :now
+            order by m.nextAttemptAt""")
+    List<Long> findDueIds(Instant now, Limit limit);
+
+    // Leases a due message to the caller; 0 if another worker or node already holds it
+    @Modifying
+    @Transactional
+    @Query("""
+            update OutboundMail m set m.nextAttemptAt = :leaseUntil
+            where m.id = :id
+              and m.status = com.example.EncryptedFileSharing.model.OutboundMail.Status.PENDING
+              and m.nextAttemptAt <= :now""")
+    int claim(Long id, Instant now, Instant leaseUntil);
+}
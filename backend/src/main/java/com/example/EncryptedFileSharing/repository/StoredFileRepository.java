@@ -1,11 +1,59 @@
 package com.example.EncryptedFileSharing.repository;
 
+import com.example.EncryptedFileSharing.dto.AccessGrant;
+import com.example.EncryptedFileSharing.dto.FileMetadata;
+import com.example.EncryptedFileSharing.dto.FileSummary;
 import com.example.EncryptedFileSharing.model.StoredFile;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface StoredFileRepository extends JpaRepository<StoredFile, Long> {
 
-    List<StoredFile> findByUploadedBy(String username);
+    Optional<FileMetadata> findMetadataById(Long id);
+
+    List<FileMetadata> findMetadataByIdIn(Collection<Long> ids);
+
+    String METADATA_SELECT = """
+            select f.id as id, f.fileName as fileName, f.contentType as contentType, f.uploadedBy as uploadedBy,
+                   f.createdAt as createdAt, f.blobKey as blobKey, f.encryptedSize as encryptedSize,
+                   f.checksum as checksum
+            """;
+
+    // The subset of ids the user may read (owns, or has been shared), checked in one query
+    @Query(METADATA_SELECT + """
+            from StoredFile f
+            where f.id in :ids
+              and (f.uploadedBy = :username
+                   or exists (select 1 from FileAccess a where a.fileId = f.id and a.sharedWith = :username))""")
+    List<FileMetadata> findReadableMetadata(Collection<Long> ids, String username);
+
+    // Everyone who may read the file, one row per grantee (a single row with a null grantee when unshared)
+    @Query("""
+            select f.uploadedBy as owner, a.sharedWith as grantee
+            from StoredFile f left join FileAccess a on a.fileId = f.id
+            where f.id = :id""")
+    List<AccessGrant> findAccessGrants(Long id);
+
+    @Query(METADATA_SELECT + """
+            from FileAccess a join StoredFile f on f.id = a.fileId
+            where a.sharedWith = :username
+            order by a.createdAt desc, a.id desc""")
+    List<FileMetadata> findSharedMetadata(String username, Limit limit);
+
+    // Newest first; together with findSummariesAfter this is a keyset walk over the owner index
+    List<FileSummary> findByUploadedByOrderByCreatedAtDescIdDesc(String uploadedBy, Limit limit);
+
+    @Query("""
+            select f.id as id, f.fileName as fileName, f.createdAt as createdAt
+            from StoredFile f
+            where f.uploadedBy = :uploadedBy
+              and (f.createdAt < :createdAt or (f.createdAt = :createdAt and f.id < :id))
+            order by f.createdAt desc, f.id desc""")
+    List<FileSummary> findSummariesAfter(String uploadedBy, Instant createdAt, Long id, Limit limit);
 }
@@ -0,0 +1,23 @@
+package com.example.EncryptedFileSharing.repository;
+
+import com.example.EncryptedFileSharing.model.UploadChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface UploadChunkRepository extends JpaRepository<UploadChunk, Long> {
+
+    boolean existsByUploadIdAndChunkIndex(String uploadId, int chunkIndex);
+
+    long countByUploadId(String uploadId);
+
+    List<UploadChunk> findByUploadIdOrderByChunkIndex(String uploadId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from UploadChunk c where c.uploadId = :uploadId")
+    void deleteByUploadId(String uploadId);
+}
@@ -0,0 +1,31 @@
+package com.example.EncryptedFileSharing.repository;
+
+import com.example.EncryptedFileSharing.model.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+
+    List<UploadSession> findTop100ByExpiresAtBefore(Instant now);
+
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.expiresAt = :expiresAt where s.id = :id")
+    void extend(String id, Instant expiresAt);
+
+    // Claims the session for one commit; 0 if another commit already holds it
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.committing = true where s.id = :id and s.committing = false")
+    int startCommit(String id);
+
+    @Modifying
+    @Transactional
+    @Query("update UploadSession s set s.committing = false where s.id = :id")
+    void cancelCommit(String id);
+}
@@ -2,12 +2,18 @@ package com.example.EncryptedFileSharing.repository;
 
 import com.example.EncryptedFileSharing.util.UserDetails;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository  extends JpaRepository<UserDetails,Long> {
     Optional<UserDetails> findByUsername(String username);
     Optional<UserDetails> findByEmail(String email);
+
+    @Query("select u.username from UserDetails u where u.username in :usernames")
+    List<String> findExistingUsernames(Collection<String> usernames);
 }
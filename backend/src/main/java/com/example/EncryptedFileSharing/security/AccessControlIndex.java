@@ -0,0 +1,111 @@
+package com.example.EncryptedFileSharing.security;
+
+import com.example.EncryptedFileSharing.dto.AccessGrant;
+import com.example.EncryptedFileSharing.repository.StoredFileRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Interner;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Who may read a file: its owner and the users it has been shared with, so download
+ * authorization is a hash lookup instead of two queries. A file's entry is loaded on first
+ * use and then kept in step by {@link #granted} and {@link #removed}, which the share and
+ * delete paths call once their rows are written. Bounded by the total number of owners plus
+ * grantees held; usernames are interned, so a user in many entries is stored once.
+ *
+ * Shares and deletes made through other nodes do not reach this index. A cached "no" is
+ * therefore checked against the database before it is returned, and entries expire after
+ * a while, which bounds how long a file deleted elsewhere stays readable from here.
+ * Hit/miss/eviction counts are the {@code cache.*} meters tagged {@code cache=file.acl}.
+ */
+@Component
+public class AccessControlIndex {
+
+    private record Entry(String owner, Set<String> grantees) {
+
+        boolean canRead(String username) {
+            return owner.equals(username) || grantees.contains(username);
+        }
+    }
+
+    private final StoredFileRepository fileRepository;
+    private final Cache<Long, Entry> entries;
+    private final Interner<String> usernames = Interner.newWeakInterner();
+    // Bumped by every change; a load that overlapped one is not kept, as it may predate it
+    private final AtomicLong changes = new AtomicLong();
+
+    public AccessControlIndex(StoredFileRepository fileRepository,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.security.acl-cache.max-grants:1000000}") long maxGrants,
+                              @Value("${app.security.acl-cache.ttl:5m}") Duration ttl) {
+        this.fileRepository = fileRepository;
+        this.entries = Caffeine.newBuilder()
+                .maximumWeight(maxGrants)
+                .expireAfterWrite(ttl)
+                .weigher((Long fileId, Entry entry) -> 1 + entry.grantees().size())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, entries, "file.acl");
+    }
+
+    // False as well for files that do not exist; those are not cached
+    public boolean canRead(String username, Long fileId) {
+        // Loaded outside the cache for the same reason as PrincipalCache: no query under a bin lock
+        Entry entry = entries.getIfPresent(fileId);
+        if (entry != null && entry.canRead(username)) {
+            return true;
+        }
+        // Not cached, or cached without this user: the share may have been made on another node
+        entry = load(fileId);
+        return entry != null && entry.canRead(username);
+    }
+
+    // Call after the share rows are written
+    public void granted(Long fileId, Collection<String> recipients) {
+        changes.incrementAndGet();
+        entries.asMap().computeIfPresent(fileId, (id, entry) -> {
+            Set<String> grantees = new HashSet<>(entry.grantees());
+            recipients.forEach(recipient -> grantees.add(usernames.intern(recipient)));
+            return new Entry(entry.owner(), Set.copyOf(grantees));
+        });
+    }
+
+    // Call after the file and its shares are deleted
+    public void removed(Long fileId) {
+        changes.incrementAndGet();
+        entries.invalidate(fileId);
+    }
+
+    private Entry load(Long fileId) {
+        long seen = changes.get();
+        List<AccessGrant> grants = fileRepository.findAccessGrants(fileId);
+        if (grants.isEmpty()) {
+            entries.invalidate(fileId);
+            return null;
+        }
+        Set<String> grantees = new HashSet<>();
+        for (AccessGrant grant : grants) {
+            if (grant.getGrantee() != null) {
+                grantees.add(usernames.intern(grant.getGrantee()));
+            }
+        }
+        Entry entry = new Entry(usernames.intern(grants.get(0).getOwner()), Set.copyOf(grantees));
+        entries.put(fileId, entry);
+        // A change from here on finds the entry and applies itself; one that came earlier may be missing from it
+        if (changes.get() != seen) {
+            entries.invalidate(fileId);
+        }
+        return entry;
+    }
+}
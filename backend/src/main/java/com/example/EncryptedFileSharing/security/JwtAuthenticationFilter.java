@@ -1,7 +1,7 @@
 package com.example.EncryptedFileSharing.security;
 
-import com.example.EncryptedFileSharing.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
@@ -14,13 +14,22 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Component
-@RequiredArgsConstructor
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private final JwtUtil jwtUtil;
-    private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
+    // Cost of resolving a bearer token, by whether it was accepted
+    private final Timer accepted;
+    private final Timer rejected;
+
+    public JwtAuthenticationFilter(PrincipalCache principalCache, MeterRegistry meterRegistry) {
+        this.principalCache = principalCache;
+        this.accepted = tokenTimer(meterRegistry, "accepted");
+        this.rejected = tokenTimer(meterRegistry, "rejected");
+    }
 
     @Override
     protected void doFilterInternal(
@@ -34,16 +43,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
 
             String token = authHeader.substring(7);
-            String username = jwtUtil.extractUsername(token);
 
-            if (username != null &&
-                    SecurityContextHolder.getContext().getAuthentication() == null) {
+            if (SecurityContextHolder.getContext().getAuthentication() == null) {
+
+                long started = System.nanoTime();
+                Optional<PrincipalCache.Principal> resolved = principalCache.resolve(token);
+                (resolved.isPresent() ? accepted : rejected).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
 
-                userRepository.findByUsername(username).ifPresent(user -> {
+                resolved.ifPresent(principal -> {
 
                     UsernamePasswordAuthenticationToken authentication =
                             new UsernamePasswordAuthenticationToken(
-                                    user.getUsername(),
+                                    principal.username(),
                                     null,
                                     List.of()
                             );
@@ -61,4 +72,12 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    private static Timer tokenTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("auth.jwt")
+                .description("Bearer token validation and principal lookup")
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 }
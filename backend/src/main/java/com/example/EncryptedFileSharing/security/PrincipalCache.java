@@ -0,0 +1,96 @@
+package com.example.EncryptedFileSharing.security;
+
+import com.example.EncryptedFileSharing.repository.UserRepository;
+import com.example.EncryptedFileSharing.util.UserDetails;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers which user a bearer token resolved to, so repeat requests with the same token
+ * skip both the signature check and the user lookup. Entries live for the configured TTL
+ * but never past the token's own expiry, and are dropped for a user whose account state
+ * changes (see {@link #invalidateUser}). Hit/miss/eviction counts are published as the
+ * {@code cache.*} meters tagged {@code cache=jwt.principals}.
+ */
+@Component
+public class PrincipalCache {
+
+    public record Principal(String username, Instant expiresAt) {
+    }
+
+    private final JwtUtil jwtUtil;
+    private final UserRepository userRepository;
+    private final Cache<String, Principal> cache;
+    // Bumped by every invalidation; a load that overlapped one is not kept, as it may predate it
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public PrincipalCache(JwtUtil jwtUtil,
+                          UserRepository userRepository,
+                          MeterRegistry meterRegistry,
+                          @Value("${app.security.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${app.security.principal-cache.ttl:5m}") Duration ttl) {
+        this.jwtUtil = jwtUtil;
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(Expiry.<String, Principal>creating((token, principal) -> {
+                    Duration untilExpiry = Duration.between(Instant.now(), principal.expiresAt());
+                    return untilExpiry.compareTo(ttl) < 0 ? untilExpiry : ttl;
+                }))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwt.principals");
+    }
+
+    // Empty for invalid or expired tokens and for users that no longer exist or are disabled; those are not cached
+    public Optional<Principal> resolve(String token) {
+        // Loaded outside the cache: Caffeine computes under a ConcurrentHashMap bin lock, and a user
+        // lookup in there would pin the carrier of a virtual thread. Two requests racing on the same
+        // new token just both load it.
+        Principal principal = cache.getIfPresent(token);
+        if (principal == null) {
+            long seen = invalidations.get();
+            principal = load(token);
+            if (principal != null) {
+                cache.put(token, principal);
+                // An invalidation from here on finds the entry; one that came during the load may have missed it
+                if (invalidations.get() != seen) {
+                    cache.asMap().remove(token, principal);
+                }
+            }
+        }
+        return Optional.ofNullable(principal);
+    }
+
+    // Call after the user's account state is saved
+    public void invalidateUser(String username) {
+        invalidations.incrementAndGet();
+        cache.asMap().values().removeIf(principal -> principal.username().equals(username));
+    }
+
+    private Principal load(String token) {
+        Claims claims;
+        try {
+            claims = jwtUtil.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+        String username = claims.getSubject();
+        if (username == null || userRepository.findByUsername(username).filter(UserDetails::isEnabled).isEmpty()) {
+            return null;
+        }
+        return new Principal(username, claims.getExpiration().toInstant());
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.model.ContentBlob;
+import com.example.EncryptedFileSharing.model.StoredFile;
+import com.example.EncryptedFileSharing.model.UploadChunk;
+import com.example.EncryptedFileSharing.model.UploadSession;
+import com.example.EncryptedFileSharing.repository.UploadChunkRepository;
+import com.example.EncryptedFileSharing.repository.UploadSessionRepository;
+import com.example.EncryptedFileSharing.storage.BlobChecksum;
+import com.example.EncryptedFileSharing.storage.BlobStore;
+import com.example.EncryptedFileSharing.util.SegmentCipher;
+import com.example.EncryptedFileSharing.util.SegmentedFormat;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Resumable uploads: a session is created up front, numbered chunks are PUT in any order
+ * (and in parallel), and a final commit turns the staged ciphertext into a StoredFile.
+ *
+ * The session's staging area is laid out as the final {@link SegmentedFormat} chunked
+ * container, and every chunk is sealed as it arrives straight to its final offset, under a
+ * nonce prefix of its own that is drawn fresh for each attempt. A retry with different bytes
+ * therefore never seals two plaintexts under the same key and nonce. The chunk row records
+ * the prefix of the attempt that completed, along with digests of its plaintext and ciphertext.
+ * Commit only writes the header and moves the staging area into the blob store; nothing is
+ * decrypted or copied. Chunks are not compressed: the decision would need the first chunk
+ * before any other.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ChunkedUploadService {
+
+    private static final int SEGMENT = SegmentedFormat.SEGMENT_SIZE;
+
+    private final UploadSessionRepository sessionRepository;
+    private final UploadChunkRepository chunkRepository;
+    private final BlobStore blobStore;
+    private final CryptoEngine cryptoEngine;
+    private final ContentBlobService contentBlobService;
+    private final FileEncryptionService fileEncryptionService;
+    private final KeyRing keyRing;
+
+    @Value("${app.upload.default-chunk-size:8MB}")
+    private DataSize defaultChunkSize;
+
+    @Value("${app.upload.max-chunk-size:64MB}")
+    private DataSize maxChunkSize;
+
+    @Value("${app.upload.max-total-size:10GB}")
+    private DataSize maxTotalSize;
+
+    @Value("${app.upload.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    public UploadSession createSession(String username, String fileName, String contentType,
+                                       long totalSize, Integer chunkSize) throws IOException {
+        if (totalSize <= 0 || totalSize > maxTotalSize.toBytes()) {
+            throw new IllegalArgumentException("totalSize must be between 1 and " + maxTotalSize.toBytes() + " bytes");
+        }
+        int size = chunkSize != null ? chunkSize : (int) defaultChunkSize.toBytes();
+        if (size <= 0 || size % SEGMENT != 0 || size > maxChunkSize.toBytes()) {
+            throw new IllegalArgumentException("chunkSize must be a multiple of " + SEGMENT
+                    + " bytes and at most " + maxChunkSize.toBytes());
+        }
+
+        KeyRing.DataKey dataKey = keyRing.newDataKey();
+        UploadSession session = UploadSession.builder()
+                .id(BlobStore.newKey())
+                .username(username)
+                .fileName(fileName)
+                .contentType(contentType != null ? contentType : "application/octet-stream")
+                .totalSize(totalSize)
+                .chunkSize(size)
+                .algorithm(cryptoEngine.algorithm())
+                .wrappedKey(dataKey.wrapped())
+                .keyVersion(dataKey.version())
+                .expiresAt(Instant.now().plus(sessionTtl))
+                .build();
+        return sessionRepository.save(session);
+    }
+
+    public UploadSession getSession(String uploadId, String username) {
+        return sessionRepository.findById(uploadId)
+                .filter(s -> s.getUsername().equals(username))
+                .orElseThrow(() -> new NoSuchElementException("Upload session not found"));
+    }
+
+    public List<UploadChunk> receivedChunks(String uploadId) {
+        return chunkRepository.findByUploadIdOrderByChunkIndex(uploadId);
+    }
+
+    /**
+     * Seals one chunk at its final offset in the session's staging area. Returns false if the
+     * chunk had already been received, in which case the body is ignored.
+     */
+    public boolean writeChunk(String uploadId, int index, InputStream body, String username) throws IOException {
+        UploadSession session = getSession(uploadId, username);
+        if (session.isCommitting()) {
+            throw new IllegalStateException("Upload is being committed");
+        }
+        if (index < 0 || index >= session.chunkCount()) {
+            throw new IllegalArgumentException("Chunk index must be between 0 and " + (session.chunkCount() - 1));
+        }
+        if (chunkRepository.existsByUploadIdAndChunkIndex(uploadId, index)) {
+            return false;
+        }
+
+        // Only this chunk's prefix is needed to seal it; the others are not authenticated
+        byte[] noncePrefix = cryptoEngine.newNoncePrefix();
+        byte[] noncePrefixes = new byte[session.chunkCount() * SegmentedFormat.NONCE_PREFIX_LENGTH];
+        System.arraycopy(noncePrefix, 0, noncePrefixes, index * SegmentedFormat.NONCE_PREFIX_LENGTH, noncePrefix.length);
+        SegmentedFormat.Header layout = layout(session, noncePrefixes);
+        SegmentCipher cipher = cryptoEngine.segmentCipher(layout, dataKey(session));
+
+        long chunkStart = (long) index * session.getChunkSize();
+        long expected = Math.min(session.getChunkSize(), session.getTotalSize() - chunkStart);
+        long firstSegment = chunkStart / SEGMENT;
+        long lastSegment = (session.getTotalSize() - 1) / SEGMENT;
+        long position = layout.segmentOffset(firstSegment);
+        long sealedLength = expected + (expected + SEGMENT - 1) / SEGMENT * SegmentedFormat.TAG_LENGTH;
+        MessageDigest plainDigest = BlobChecksum.sha256();
+        MessageDigest sealedDigest = BlobChecksum.sha256();
+
+        try (FileChannel channel = blobStore.openStaging(uploadId);
+             FileLock ignored = lockChunk(channel, position, sealedLength, index)) {
+            // A parallel attempt may have completed while this one waited for the lock
+            if (chunkRepository.existsByUploadIdAndChunkIndex(uploadId, index)) {
+                return false;
+            }
+            byte[] plain = new byte[SEGMENT];
+            byte[] sealed = new byte[SEGMENT + SegmentedFormat.TAG_LENGTH];
+            long remaining = expected;
+            for (long segment = firstSegment; remaining > 0; segment++) {
+                int want = (int) Math.min(SEGMENT, remaining);
+                if (body.readNBytes(plain, 0, want) < want) {
+                    throw new IllegalArgumentException("Chunk " + index + " must be " + expected + " bytes");
+                }
+                int n = cipher.seal(segment, segment == lastSegment, plain, want, sealed);
+                plainDigest.update(plain, 0, want);
+                sealedDigest.update(sealed, 0, n);
+                ByteBuffer buffer = ByteBuffer.wrap(sealed, 0, n);
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                remaining -= want;
+            }
+            if (body.read() != -1) {
+                throw new IllegalArgumentException("Chunk " + index + " must be " + expected + " bytes");
+            }
+            // A failed attempt leaves no row; its bytes are overwritten by the next one
+            chunkRepository.save(UploadChunk.builder()
+                    .uploadId(uploadId)
+                    .chunkIndex(index)
+                    .size(expected)
+                    .noncePrefix(noncePrefix)
+                    .contentHash(HexFormat.of().formatHex(plainDigest.digest()))
+                    .checksum(HexFormat.of().formatHex(sealedDigest.digest()))
+                    .build());
+        }
+        sessionRepository.extend(uploadId, Instant.now().plus(sessionTtl));
+        return true;
+    }
+
+    /**
+     * Publishes the staged container as the file's blob. Only one commit of a session goes
+     * ahead, and once it has no further chunk is written. If the upload turns out incomplete
+     * the session is reopened, so the missing chunks can still be sent.
+     *
+     * The blob is deduplicated by the SHA-256 over the chunks' plaintext digests, so a chunked
+     * upload matches an earlier one with the same chunk size, not a multipart upload.
+     */
+    public StoredFile commit(String uploadId, String username) throws IOException {
+        UploadSession session = getSession(uploadId, username);
+        if (sessionRepository.startCommit(uploadId) == 0) {
+            throw new IllegalStateException("Upload is already being committed");
+        }
+
+        ContentBlob blob;
+        try {
+            List<UploadChunk> chunks = chunkRepository.findByUploadIdOrderByChunkIndex(uploadId);
+            if (chunks.size() != session.chunkCount()) {
+                throw new IllegalStateException("Upload incomplete: " + chunks.size() + " of " + session.chunkCount() + " chunks received");
+            }
+
+            byte[] noncePrefixes = new byte[chunks.size() * SegmentedFormat.NONCE_PREFIX_LENGTH];
+            List<byte[]> plainDigests = new ArrayList<>(chunks.size());
+            List<byte[]> sealedDigests = new ArrayList<>(chunks.size() + 1);
+            for (UploadChunk chunk : chunks) {
+                System.arraycopy(chunk.getNoncePrefix(), 0, noncePrefixes,
+                        chunk.getChunkIndex() * SegmentedFormat.NONCE_PREFIX_LENGTH, SegmentedFormat.NONCE_PREFIX_LENGTH);
+                plainDigests.add(HexFormat.of().parseHex(chunk.getContentHash()));
+            }
+            SegmentedFormat.Header header = layout(session, noncePrefixes);
+            byte[] headerBytes = header.toBytes();
+            sealedDigests.add(BlobChecksum.sha256().digest(headerBytes));
+            chunks.forEach(chunk -> sealedDigests.add(HexFormat.of().parseHex(chunk.getChecksum())));
+
+            long containerLength = header.containerLength(session.getTotalSize());
+            try (FileChannel channel = blobStore.openStaging(uploadId)) {
+                if (channel.size() != containerLength) {
+                    throw new IllegalStateException("Staged upload is " + channel.size() + " bytes, expected " + containerLength);
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(headerBytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, buffer.position());
+                }
+            }
+
+            String contentHash = BlobChecksum.combine(plainDigests);
+            blob = contentBlobService.acquire(username, contentHash).orElse(null);
+            if (blob == null) {
+                String blobKey = BlobStore.newKey();
+                blobStore.commitStaging(uploadId, blobKey);
+                blob = contentBlobService.register(ContentBlob.builder()
+                        .owner(username)
+                        .contentHash(contentHash)
+                        .blobKey(blobKey)
+                        .encryptedSize(containerLength)
+                        .checksum(BlobChecksum.combine(sealedDigests))
+                        .wrappedKey(session.getWrappedKey())
+                        .keyVersion(session.getKeyVersion())
+                        .plainSize(session.getTotalSize())
+                        .build());
+            }
+        } catch (IOException | RuntimeException e) {
+            sessionRepository.cancelCommit(uploadId);
+            throw e;
+        }
+
+        StoredFile saved = fileEncryptionService.saveFile(session.getFileName(), session.getContentType(), username, blob);
+
+        discard(session);
+        return saved;
+    }
+
+    public void abort(String uploadId, String username) throws IOException {
+        discard(getSession(uploadId, username));
+    }
+
+    // Sessions idle past their TTL are dropped along with their staged ciphertext
+    @Scheduled(fixedDelayString = "${app.upload.sweep-interval-ms:600000}")
+    public void sweepExpired() {
+        List<UploadSession> expired = sessionRepository.findTop100ByExpiresAtBefore(Instant.now());
+        for (UploadSession session : expired) {
+            try {
+                discard(session);
+            } catch (Exception e) {
+                log.warn("Could not discard expired upload {}: {}", session.getId(), e.getMessage());
+            }
+        }
+        if (!expired.isEmpty()) {
+            log.info("Discarded {} expired upload sessions", expired.size());
+        }
+    }
+
+    private void discard(UploadSession session) throws IOException {
+        blobStore.deleteStaging(session.getId());
+        chunkRepository.deleteByUploadId(session.getId());
+        sessionRepository.delete(session);
+    }
+
+    // Chunk size and count are fixed per session, so every offset is known before any chunk arrives
+    private static SegmentedFormat.Header layout(UploadSession session, byte[] noncePrefixes) {
+        return SegmentedFormat.Header.chunked(session.getAlgorithm(), session.getChunkSize() / SEGMENT, noncePrefixes);
+    }
+
+    // One attempt at a chunk writes at a time, also across processes sharing the staging area.
+    // The lock goes with the process, so an attempt that died never blocks a retry.
+    private static FileLock lockChunk(FileChannel channel, long position, long size, int index) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock(position, size, false);
+        } catch (OverlappingFileLockException e) {
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IllegalStateException("Chunk " + index + " is already being uploaded");
+        }
+        return lock;
+    }
+
+    private byte[] dataKey(UploadSession session) {
+        return keyRing.unwrap(session.getKeyVersion(), session.getWrappedKey()).material();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.EncryptedFileSharing.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Decides per upload whether deflating before encryption is worth it. Formats that are
+ * compressed already are skipped on their content type alone, text-like types are always
+ * compressed, and anything else is judged by the byte entropy of its first block: data
+ * close to 8 bits per byte (compressed, encrypted or random) would not shrink.
+ */
+@Component
+public class CompressionPolicy {
+
+    private static final Set<String> COMPRESSED_TYPES = Set.of(
+            "image/jpeg", "image/png", "image/gif", "image/webp", "image/avif", "image/heic",
+            "application/zip", "application/gzip", "application/x-gzip", "application/x-7z-compressed",
+            "application/x-rar-compressed", "application/vnd.rar", "application/x-bzip2", "application/x-xz",
+            "application/zstd", "application/java-archive", "application/epub+zip",
+            "application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+            "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet",
+            "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+
+    private static final Set<String> TEXT_TYPES = Set.of(
+            "application/json", "application/xml", "application/javascript", "application/x-ndjson",
+            "application/sql", "application/x-yaml", "application/yaml", "image/svg+xml");
+
+    @Value("${app.compression.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.compression.level:6}")
+    private int level;
+
+    @Value("${app.compression.max-entropy:7.5}")
+    private double maxEntropy;
+
+    public int level() {
+        return level;
+    }
+
+    // head is the first block of the upload (at most one segment)
+    public boolean shouldCompress(String contentType, byte[] head) {
+        if (!enabled || head.length == 0) {
+            return false;
+        }
+        if (isPrecompressed(contentType)) {
+            return false;
+        }
+        String type = baseType(contentType);
+        if (type.startsWith("text/") || TEXT_TYPES.contains(type) || type.endsWith("+json") || type.endsWith("+xml")) {
+            return true;
+        }
+        return entropy(head) <= maxEntropy;
+    }
+
+    // Formats that carry their own compression and would not shrink further
+    public boolean isPrecompressed(String contentType) {
+        String type = baseType(contentType);
+        return COMPRESSED_TYPES.contains(type) || type.startsWith("video/") || type.startsWith("audio/");
+    }
+
+    // Shannon entropy in bits per byte
+    static double entropy(byte[] data) {
+        int[] counts = new int[256];
+        for (byte b : data) {
+            counts[b & 0xFF]++;
+        }
+        double bits = 0;
+        for (int count : counts) {
+            if (count > 0) {
+                double p = (double) count / data.length;
+                bits -= p * (Math.log(p) / Math.log(2));
+            }
+        }
+        return bits;
+    }
+
+    private static String baseType(String contentType) {
+        if (contentType == null) {
+            return "";
+        }
+        int semicolon = contentType.indexOf(';');
+        String type = semicolon >= 0 ? contentType.substring(0, semicolon) : contentType;
+        return type.trim().toLowerCase(Locale.ROOT);
+    }
+}
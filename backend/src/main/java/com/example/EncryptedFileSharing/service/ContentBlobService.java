@@ -0,0 +1,93 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.model.ContentBlob;
+import com.example.EncryptedFileSharing.repository.ContentBlobRepository;
+import com.example.EncryptedFileSharing.storage.BlobStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Reference counting for deduplicated blobs. Callers hash the plaintext, try
+ * {@link #acquire} to reuse an existing copy, and only encrypt and store the content
+ * when there is none, then {@link #register} it. Deleting a file calls {@link #release};
+ * the last reference removes the blob.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ContentBlobService {
+
+    private final ContentBlobRepository repository;
+    private final BlobStore blobStore;
+    private final TransactionTemplate transactionTemplate;
+
+    // Takes another reference on the owner's copy of this content, if there is one
+    public Optional<ContentBlob> acquire(String owner, String contentHash) {
+        return transactionTemplate.execute(status -> repository.findByOwnerAndContentHash(owner, contentHash)
+                .map(blob -> {
+                    blob.setRefCount(blob.getRefCount() + 1);
+                    return blob;
+                }));
+    }
+
+    /**
+     * Records a freshly stored blob with one reference. If a concurrent upload of the same
+     * content registered first, that copy gains the reference instead and the blob just
+     * written is deleted; the returned row says which blob to point at.
+     */
+    public ContentBlob register(ContentBlob blob) throws IOException {
+        blob.setRefCount(1);
+        try {
+            return repository.saveAndFlush(blob);
+        } catch (DataIntegrityViolationException e) {
+            ContentBlob winner = acquire(blob.getOwner(), blob.getContentHash()).orElseThrow(() -> e);
+            blobStore.delete(blob.getBlobKey());
+            return winner;
+        }
+    }
+
+    public Optional<ContentBlob> find(String blobKey) {
+        return repository.readByBlobKey(blobKey);
+    }
+
+    // Drops one reference to the blob; the last one deletes it. Inside a transaction the blob is
+    // deleted once that commits, so a rollback never leaves a row pointing at a missing blob.
+    public void release(String blobKey) throws IOException {
+        boolean last = Boolean.TRUE.equals(transactionTemplate.execute(status -> repository.findByBlobKey(blobKey)
+                .map(blob -> {
+                    if (blob.getRefCount() > 1) {
+                        blob.setRefCount(blob.getRefCount() - 1);
+                        return false;
+                    }
+                    repository.delete(blob);
+                    return true;
+                })
+                // Blobs stored before deduplication have no row and exactly one reference
+                .orElse(true)));
+        if (!last) {
+            return;
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            blobStore.delete(blobKey);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    blobStore.delete(blobKey);
+                } catch (IOException e) {
+                    log.warn("Could not delete released blob {}: {}", blobKey, e.getMessage());
+                }
+            }
+        });
+    }
+}
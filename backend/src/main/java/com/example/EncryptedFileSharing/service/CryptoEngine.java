@@ -0,0 +1,161 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.util.AeadAlgorithm;
+import com.example.EncryptedFileSharing.util.CipherMeters;
+import com.example.EncryptedFileSharing.util.DeflatingOutputStream;
+import com.example.EncryptedFileSharing.util.InflatingInputStream;
+import com.example.EncryptedFileSharing.util.SegmentCipher;
+import com.example.EncryptedFileSharing.util.SegmentDecryptingInputStream;
+import com.example.EncryptedFileSharing.util.SegmentEncryptingOutputStream;
+import com.example.EncryptedFileSharing.util.SegmentRangeDecryptor;
+import com.example.EncryptedFileSharing.util.SegmentedFormat;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Single entry point for file encryption. Nonces come from one shared SecureRandom and
+ * cipher instances are reused per thread (see {@link AeadAlgorithm}), so the per-request
+ * cost is just the cipher work itself.
+ *
+ * Containers are encrypted with the blob's own data key (see {@link KeyRing}). A null data
+ * key means a blob written before envelope encryption, which used keys derived from the
+ * global secret; those are kept for reading such blobs.
+ *
+ * New data is written as a {@link SegmentedFormat} container with the configured
+ * algorithm. Readers take the algorithm from the container header, and anything without
+ * the container magic is treated as a legacy AES/CBC blob with a leading IV. Containers
+ * flagged as deflated are inflated on the way out, so callers always see the original bytes.
+ */
+@Service
+public class CryptoEngine {
+
+    private static final String LEGACY_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final int LEGACY_IV_LENGTH = 16;
+
+    private final SecureRandom random = new SecureRandom();
+    private final AeadAlgorithm algorithm;
+    private final Map<AeadAlgorithm, SecretKey> keys = new EnumMap<>(AeadAlgorithm.class);
+    private final SecretKey legacyKey;
+    private final CipherMeters meters;
+
+    // Outside Spring (benchmarks): meters go to the global registry, which drops them unless configured
+    public CryptoEngine(String secret, AeadAlgorithm algorithm) {
+        this(secret, algorithm, Metrics.globalRegistry);
+    }
+
+    @Autowired
+    public CryptoEngine(@Value("${app.crypto.key:${ENCRYPTION_KEY:MySecretKey12345}}") String secret,
+                        @Value("${app.crypto.algorithm:AES_GCM}") AeadAlgorithm algorithm,
+                        MeterRegistry meterRegistry) {
+        byte[] secretBytes = secret.getBytes(StandardCharsets.UTF_8);
+        if (secretBytes.length != 16 && secretBytes.length != 24 && secretBytes.length != 32) {
+            throw new IllegalStateException("Encryption key must be 16, 24 or 32 bytes, got " + secretBytes.length);
+        }
+        this.algorithm = algorithm;
+        // AES keeps using the raw secret so existing data stays readable;
+        // ChaCha20 needs exactly 256 bits, so it gets a SHA-256 derivation of it.
+        this.legacyKey = new SecretKeySpec(secretBytes, "AES");
+        keys.put(AeadAlgorithm.AES_GCM, legacyKey);
+        keys.put(AeadAlgorithm.CHACHA20_POLY1305, new SecretKeySpec(sha256(secretBytes), "ChaCha20"));
+        this.meters = new CipherMeters(meterRegistry);
+    }
+
+    public AeadAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    // Random, so no two containers (or attempts at one chunk) share a nonce under one key
+    public byte[] newNoncePrefix() {
+        byte[] noncePrefix = new byte[SegmentedFormat.NONCE_PREFIX_LENGTH];
+        random.nextBytes(noncePrefix);
+        return noncePrefix;
+    }
+
+    private SegmentedFormat.Header newHeader(byte flags) {
+        return SegmentedFormat.Header.create(algorithm, newNoncePrefix(), flags);
+    }
+
+    public SegmentCipher segmentCipher(SegmentedFormat.Header header, byte[] dataKey) {
+        AeadAlgorithm headerAlgorithm = AeadAlgorithm.fromId(header.algorithm());
+        SecretKey key = dataKey != null
+                ? new SecretKeySpec(dataKey, headerAlgorithm.keyAlgorithm())
+                : keys.get(headerAlgorithm);
+        return new SegmentCipher(headerAlgorithm, key, header, meters);
+    }
+
+    public OutputStream encryptingStream(OutputStream out, byte[] dataKey) throws IOException {
+        return new SegmentEncryptingOutputStream(out, segmentCipher(newHeader((byte) 0), dataKey));
+    }
+
+    // Deflates before encrypting and flags the header so readers know to inflate
+    public DeflatingOutputStream compressingStream(OutputStream out, byte[] dataKey, int level) throws IOException {
+        SegmentCipher cipher = segmentCipher(newHeader(SegmentedFormat.FLAG_DEFLATE), dataKey);
+        return new DeflatingOutputStream(new SegmentEncryptingOutputStream(out, cipher), level);
+    }
+
+    // Plaintext view of either a segmented container or a legacy AES/CBC blob
+    public InputStream decryptingStream(InputStream source, byte[] dataKey) throws IOException {
+        InputStream in = new BufferedInputStream(source, SegmentedFormat.SEGMENT_SIZE);
+        in.mark(SegmentedFormat.HEADER_LENGTH);
+        byte[] head = in.readNBytes(SegmentedFormat.HEADER_LENGTH);
+        in.reset();
+        if (SegmentedFormat.isSegmented(head)) {
+            SegmentedFormat.Header header = SegmentedFormat.Header.read(in);
+            InputStream plain = new SegmentDecryptingInputStream(in, segmentCipher(header, dataKey));
+            return header.deflated() ? new InflatingInputStream(plain) : plain;
+        }
+        return legacyDecryptingStream(in);
+    }
+
+    // Null when the channel holds a legacy or deflated blob, which only supports sequential reads
+    public SegmentRangeDecryptor rangeDecryptor(SeekableByteChannel channel, byte[] dataKey) throws IOException {
+        SegmentedFormat.Header header = SegmentRangeDecryptor.readHeader(channel);
+        return header == null || header.deflated()
+                ? null
+                : new SegmentRangeDecryptor(channel, segmentCipher(header, dataKey));
+    }
+
+    private InputStream legacyDecryptingStream(InputStream in) throws IOException {
+        byte[] iv = in.readNBytes(LEGACY_IV_LENGTH);
+        if (iv.length < LEGACY_IV_LENGTH) {
+            throw new EOFException("Encrypted data must be at least 16 bytes (IV size)");
+        }
+        // CipherInputStream holds its cipher for the whole stream, so this one is not shared per thread
+        try {
+            Cipher cipher = Cipher.getInstance(LEGACY_TRANSFORMATION);
+            cipher.init(Cipher.DECRYPT_MODE, legacyKey, new IvParameterSpec(iv));
+            return new CipherInputStream(in, cipher);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Legacy cipher initialisation failed", e);
+        }
+    }
+
+    private static byte[] sha256(byte[] input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,21 +1,16 @@
 package com.example.EncryptedFileSharing.service;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
 public class EmailService {
-    private final JavaMailSender javaMailSender;
+    private final MailDispatcher mailDispatcher;
 
+    // Queues the message durably and returns; SMTP delivery happens in the background
     public void MailSender(String to,String Subject,String text){
-        SimpleMailMessage message=new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject(Subject);
-        message.setText(text);
-        javaMailSender.send(message);
+        mailDispatcher.enqueue(to, Subject, text);
     }
 
 
@@ -1,45 +1,235 @@
 package com.example.EncryptedFileSharing.service;
 
+import com.example.EncryptedFileSharing.dto.FileMetadata;
+import com.example.EncryptedFileSharing.model.ContentBlob;
 import com.example.EncryptedFileSharing.model.StoredFile;
+import com.example.EncryptedFileSharing.repository.FileAccessRepository;
 import com.example.EncryptedFileSharing.repository.StoredFileRepository;
-import com.example.EncryptedFileSharing.util.CryptoUtil;
+import com.example.EncryptedFileSharing.security.AccessControlIndex;
+import com.example.EncryptedFileSharing.storage.BlobOutputStream;
+import com.example.EncryptedFileSharing.storage.BlobStore;
+import com.example.EncryptedFileSharing.storage.ChecksummingOutputStream;
+import com.example.EncryptedFileSharing.util.DeflatingOutputStream;
+import com.example.EncryptedFileSharing.util.SegmentRangeDecryptor;
+import com.example.EncryptedFileSharing.util.SegmentedFormat;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
-import java.util.Base64;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.SeekableByteChannel;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 @Service
 @RequiredArgsConstructor
 public class FileEncryptionService {
 
     private final StoredFileRepository fileRepository;
+    private final BlobStore blobStore;
+    private final CryptoEngine cryptoEngine;
+    private final JdbcTemplate jdbcTemplate;
+    private final ContentBlobService contentBlobService;
+    private final FileAccessRepository fileAccessRepository;
+    private final CompressionPolicy compressionPolicy;
+    private final KeyRing keyRing;
+    private final MeterRegistry meterRegistry;
+    private final AccessControlIndex accessControlIndex;
+    private final FileNameIndex fileNameIndex;
 
     public StoredFile uploadFile(MultipartFile file, String username) throws Exception {
+        try (InputStream in = file.getInputStream()) {
+            if (file.isEmpty()) {
+                throw new IllegalArgumentException("Data to encrypt cannot be null or empty");
+            }
 
-        byte[] encryptedBytes = CryptoUtil.encrypt(file.getBytes());
+            // The multipart body is already spooled locally, so hashing it up front is cheap,
+            // and a repeat upload then costs neither encryption nor a blob write.
+            // The first block doubles as the sample for the compression decision.
+            String contentHash;
+            byte[] head;
+            try (InputStream spooled = file.getInputStream()) {
+                ChecksummingOutputStream hash = new ChecksummingOutputStream(OutputStream.nullOutputStream());
+                head = spooled.readNBytes(SegmentedFormat.SEGMENT_SIZE);
+                hash.write(head);
+                spooled.transferTo(hash);
+                contentHash = hash.checksum();
+            }
 
+            ContentBlob blob = contentBlobService.acquire(username, contentHash).orElse(null);
+            if (blob == null) {
+                // Encrypt segment by segment straight into the blob store; only the fixed
+                // segment buffers ever live on the heap, whatever the upload size.
+                String blobKey = BlobStore.newKey();
+                KeyRing.DataKey dataKey = keyRing.newDataKey();
+                BlobOutputStream blobOut = blobStore.create(blobKey);
+                ChecksummingOutputStream stored = new ChecksummingOutputStream(blobOut);
+                DeflatingOutputStream deflating = null;
+                try {
+                    if (compressionPolicy.shouldCompress(file.getContentType(), head)) {
+                        deflating = cryptoEngine.compressingStream(stored, dataKey.material(), compressionPolicy.level());
+                    }
+                    try (OutputStream out = deflating != null ? deflating : cryptoEngine.encryptingStream(stored, dataKey.material())) {
+                        in.transferTo(out);
+                    }
+                    // Only a complete container is published; an aborted upload leaves nothing behind
+                    blobOut.commit();
+                } finally {
+                    blobOut.abort();
+                }
+                try {
+                    blob = contentBlobService.register(ContentBlob.builder()
+                            .owner(username)
+                            .contentHash(contentHash)
+                            .blobKey(blobKey)
+                            .encryptedSize(stored.size())
+                            .checksum(stored.checksum())
+                            .wrappedKey(dataKey.wrapped())
+                            .keyVersion(dataKey.version())
+                            .plainSize(file.getSize())
+                            .compressed(deflating != null)
+                            .compressionCpuNanos(deflating != null ? deflating.cpuNanos() : null)
+                            .build());
+                } catch (RuntimeException e) {
+                    blobStore.delete(blobKey);
+                    throw e;
+                }
+                if (deflating != null) {
+                    recordCompression(deflating);
+                }
+            }
 
+            return saveFile(file.getOriginalFilename(), file.getContentType(), username, blob);
+        }
+    }
 
+    // Points a new StoredFile at a blob the caller already holds a reference on
+    StoredFile saveFile(String fileName, String contentType, String username, ContentBlob blob) throws IOException {
         StoredFile storedFile = StoredFile.builder()
-                .fileName(file.getOriginalFilename())
-                .contentType(file.getContentType())
+                .fileName(fileName)
+                .contentType(contentType)
                 .uploadedBy(username)
-                .encryptedData(encryptedBytes)
+                .blobKey(blob.getBlobKey())
+                .encryptedSize(blob.getEncryptedSize())
+                .checksum(blob.getChecksum())
                 .build();
 
-        return fileRepository.save(storedFile);
+        StoredFile saved;
+        try {
+            saved = fileRepository.save(storedFile);
+        } catch (RuntimeException e) {
+            contentBlobService.release(blob.getBlobKey());
+            throw e;
+        }
+        fileNameIndex.added(saved.getId(), saved.getFileName(), saved.getUploadedBy());
+        return saved;
     }
 
-    public byte[] downloadFile(Long id) throws Exception {
+    // How the file's blob is stored: sizes, compression and the CPU it took. Empty for pre-dedup blobs.
+    public Optional<ContentBlob> storageStats(FileMetadata file) {
+        return file.getBlobKey() == null ? Optional.empty() : contentBlobService.find(file.getBlobKey());
+    }
 
-        StoredFile file = fileRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("File not found"));
+    // Removes the file, its shares and its blob reference in one transaction. The in-memory indexes
+    // (and the blob, once no other file of the owner uses it) only follow when that commits.
+    @Transactional
+    public void deleteFile(FileMetadata file) throws IOException {
+        fileAccessRepository.deleteByFileId(file.getId());
+        fileRepository.deleteById(file.getId());
+        if (file.getBlobKey() != null) {
+            contentBlobService.release(file.getBlobKey());
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                accessControlIndex.removed(file.getId());
+                fileNameIndex.removed(file.getId());
+            }
+        });
+    }
 
+    // Writes plaintext as each segment is authenticated. Runs outside the request thread
+    // (StreamingResponseBody), so it never touches a persistence context.
+    public void streamFile(FileMetadata file, OutputStream out) throws IOException {
+        if (file.getBlobKey() == null) {
+            try {
+                streamLegacyColumn(file.getId(), out);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            return;
+        }
+        byte[] dataKey = dataKey(file.getBlobKey());
+        try (InputStream raw = blobStore.openStream(file.getBlobKey());
+             InputStream plain = cryptoEngine.decryptingStream(raw, dataKey)) {
+            plain.transferTo(out);
+        }
+    }
 
-        byte[] encryptedBytes = file.getEncryptedData();
+    // Plaintext length of a segmented blob, or -1 when the data only supports sequential reads.
+    // Needs only the header, so no data key is unwrapped for it.
+    public long plaintextLength(FileMetadata file) throws IOException {
+        if (file.getBlobKey() == null) {
+            return -1;
+        }
+        try (SeekableByteChannel channel = blobStore.open(file.getBlobKey())) {
+            SegmentedFormat.Header header = SegmentRangeDecryptor.readHeader(channel);
+            return header == null || header.deflated()
+                    ? -1
+                    : header.plaintextLength(channel.size());
+        }
+    }
 
+    // Decrypts only the segments covering plaintext bytes start..end (inclusive)
+    public void streamRange(FileMetadata file, long start, long end, OutputStream out) throws IOException {
+        byte[] dataKey = dataKey(file.getBlobKey());
+        try (SeekableByteChannel channel = blobStore.open(file.getBlobKey())) {
+            SegmentRangeDecryptor decryptor = cryptoEngine.rangeDecryptor(channel, dataKey);
+            if (decryptor == null) {
+                throw new IOException("File " + file.getId() + " does not support random access");
+            }
+            decryptor.copyRange(start, end, out);
+        }
+    }
+
+    // Null for blobs from before envelope encryption, which use the global key
+    private byte[] dataKey(String blobKey) {
+        return contentBlobService.find(blobKey)
+                .filter(blob -> blob.getWrappedKey() != null)
+                .map(blob -> keyRing.unwrap(blob.getKeyVersion(), blob.getWrappedKey()).material())
+                .orElse(null);
+    }
+
+    private void recordCompression(DeflatingOutputStream deflating) {
+        if (deflating.bytesIn() > 0) {
+            meterRegistry.summary("files.compression.ratio")
+                    .record((double) deflating.bytesOut() / deflating.bytesIn());
+        }
+        meterRegistry.timer("files.compression.cpu").record(deflating.cpuNanos(), TimeUnit.NANOSECONDS);
+    }
 
-        byte[] decrypted = CryptoUtil.decrypt(encryptedBytes);
-        return decrypted;
+    // Rows not yet moved by BlobMigrator are still read from the old LONGBLOB column
+    private void streamLegacyColumn(Long id, OutputStream out) {
+        jdbcTemplate.query("select encrypted_data from stored_file where id = ?", rs -> {
+            if (!rs.next()) {
+                throw new EmptyResultDataAccessException("File not found", 1);
+            }
+            try (InputStream raw = rs.getBinaryStream(1);
+                 InputStream plain = cryptoEngine.decryptingStream(raw, null)) {
+                plain.transferTo(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return null;
+        }, id);
     }
 }
\ No newline at end of file
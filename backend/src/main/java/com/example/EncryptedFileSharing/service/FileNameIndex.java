@@ -0,0 +1,380 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.config.WorkerThreads;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * In-memory trigram index over file names, for searching a user's own and shared files
+ * without a {@code LIKE '%x%'} scan. Names are indexed lower-cased between a start and an
+ * end marker, so a prefix or an extension is itself a handful of trigrams and every filter
+ * narrows the candidates the same way. Each user also has the sorted list of files they may
+ * see; a query walks the shortest of those lists, newest first, and checks the name itself,
+ * so a match is exact and the walk stops at the limit.
+ *
+ * Built from the database in the background after startup, then kept up to date by the
+ * upload, share and delete paths. Changes made through other nodes are picked up by a
+ * periodic keyset catch-up from the last file and share ids seen, and files deleted
+ * elsewhere by a slower sweep that compares the indexed ids with the table. Deleted files
+ * are only marked dead; their postings stay until the next restart.
+ */
+@Slf4j
+@Component
+public class FileNameIndex {
+
+    public record Hit(long fileId, String fileName, String owner) {
+    }
+
+    private static final char START = '\u0002';
+    private static final char END = '\u0003';
+    // Ids are taken at insert but become visible at commit, so each catch-up re-reads the last few
+    private static final int CATCH_UP_OVERLAP = 100;
+    private static final String FILES = "select id, file_name, uploaded_by from stored_file where id > ? order by id limit ?";
+    private static final String SHARES = "select id, file_id, shared_with from file_access where id > ? order by id limit ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final WorkerThreads workerThreads;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    @Value("${app.search.load-batch-size:10000}")
+    private int loadBatchSize;
+
+    // Per document (dense int id, in indexing order)
+    private long[] fileIds = new long[1024];
+    private String[] names = new String[1024];
+    private String[] lowerNames = new String[1024];
+    private String[] owners = new String[1024];
+    private final BitSet live = new BitSet();
+    private int docCount;
+
+    private final Map<Long, Integer> docsByFileId = new HashMap<>();
+    private final Map<Long, IntList> postings = new HashMap<>();
+    // Documents each user may read, ascending
+    private final Map<String, Visible> visible = new HashMap<>();
+    // Deletions seen while the initial load runs, so a batch read just before one does not revive it
+    private Set<Long> removedWhileLoading = new HashSet<>();
+    // Highest stored_file / file_access ids read; only touched by the load and then the catch-up
+    private long lastFileId;
+    private long lastAccessId;
+    private volatile boolean loaded;
+
+    public FileNameIndex(JdbcTemplate jdbcTemplate, WorkerThreads workerThreads) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.workerThreads = workerThreads;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        workerThreads.factory("filename-index-").newThread(this::loadAll).start();
+    }
+
+    /**
+     * Files the user owns or has been shared whose name contains {@code contains}, starts
+     * with {@code prefix} and has extension {@code extension} (each optional, case-insensitive),
+     * newest first.
+     */
+    public List<Hit> search(String username, String contains, String prefix, String extension, int limit) {
+        String text = normalize(contains);
+        String start = normalize(prefix);
+        String suffix = extension == null || extension.isBlank() ? null
+                : "." + normalize(extension.startsWith(".") ? extension.substring(1) : extension);
+
+        lock.readLock().lock();
+        try {
+            Visible entry = visible.get(username);
+            if (entry == null) {
+                return List.of();
+            }
+            IntList mine = entry.docs();
+            // The shortest list drives the walk; the others only need a name check
+            IntList driver = mine;
+            for (String term : new String[]{text, start == null ? null : START + start, suffix == null ? null : suffix + END}) {
+                if (term == null || term.length() < 3) {
+                    continue;
+                }
+                for (int i = 0; i + 3 <= term.length(); i++) {
+                    IntList list = postings.get(gram(term, i));
+                    if (list == null) {
+                        return List.of();
+                    }
+                    if (list.size < driver.size) {
+                        driver = list;
+                    }
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(Math.min(limit, 64));
+            for (int i = driver.size - 1; i >= 0 && hits.size() < limit; i--) {
+                int doc = driver.values[i];
+                String name = lowerNames[doc];
+                if (live.get(doc)
+                        && (text == null || name.contains(text))
+                        && (start == null || name.startsWith(start))
+                        && (suffix == null || name.endsWith(suffix))
+                        && (driver == mine || mine.contains(doc))) {
+                    hits.add(new Hit(fileIds[doc], names[doc], owners[doc]));
+                }
+            }
+            hits.sort(Comparator.comparingLong(Hit::fileId).reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Call after the file row is saved
+    public void added(long fileId, String fileName, String owner) {
+        lock.writeLock().lock();
+        try {
+            addDocument(fileId, fileName, owner);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Call after the share rows are written
+    public void shared(long fileId, Collection<String> recipients) {
+        lock.writeLock().lock();
+        try {
+            recipients.forEach(recipient -> grant(fileId, recipient));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Call after the file is deleted; the id stays mapped, so a catch-up that read the row just before cannot revive it
+    public void removed(long fileId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docsByFileId.get(fileId);
+            if (doc != null) {
+                live.clear(doc);
+            } else if (removedWhileLoading != null) {
+                removedWhileLoading.add(fileId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Files and shares added through other nodes since the last pass
+    @Scheduled(fixedDelayString = "${app.search.catch-up-interval-ms:5000}")
+    public void catchUp() {
+        if (!loaded) {
+            return;
+        }
+        lastFileId = Math.max(lastFileId, scanFiles(Math.max(0, lastFileId - CATCH_UP_OVERLAP)));
+        lastAccessId = Math.max(lastAccessId, scanShares(Math.max(0, lastAccessId - CATCH_UP_OVERLAP)));
+    }
+
+    /**
+     * Marks files deleted through other nodes: walks the ids in stored_file up to the highest
+     * indexed one and drops every indexed file that is no longer there. The snapshot is taken
+     * first, and a file is only indexed once its row is committed, so a missing row means a
+     * deleted file.
+     */
+    @Scheduled(fixedDelayString = "${app.search.sweep-interval-ms:300000}", initialDelayString = "${app.search.sweep-interval-ms:300000}")
+    public void sweepDeleted() {
+        if (!loaded) {
+            return;
+        }
+        long[] indexed;
+        lock.readLock().lock();
+        try {
+            indexed = live.stream().mapToLong(doc -> fileIds[doc]).sorted().toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (indexed.length == 0) {
+            return;
+        }
+        long upper = indexed[indexed.length - 1];
+        List<Long> gone = new ArrayList<>();
+        int next = 0;
+        long lastId = 0;
+        List<Long> batch;
+        do {
+            batch = jdbcTemplate.queryForList("select id from stored_file where id > ? and id <= ? order by id limit ?",
+                    Long.class, lastId, upper, loadBatchSize);
+            long batchEnd = batch.size() == loadBatchSize ? batch.getLast() : upper;
+            for (long id : batch) {
+                while (next < indexed.length && indexed[next] < id) {
+                    gone.add(indexed[next++]);
+                }
+                if (next < indexed.length && indexed[next] == id) {
+                    next++;
+                }
+            }
+            while (next < indexed.length && indexed[next] <= batchEnd) {
+                gone.add(indexed[next++]);
+            }
+            lastId = batchEnd;
+        } while (batch.size() == loadBatchSize);
+        if (!gone.isEmpty()) {
+            gone.forEach(this::removed);
+            log.debug("Dropped {} file names deleted through other nodes", gone.size());
+        }
+    }
+
+    // Files, then shares, in keyset batches; on failure the catch-up starts over from the beginning
+    private void loadAll() {
+        long started = System.nanoTime();
+        int indexed;
+        try {
+            lastFileId = scanFiles(0);
+            lastAccessId = scanShares(0);
+        } catch (RuntimeException e) {
+            log.error("Loading the file name index failed; the catch-up will retry it", e);
+        } finally {
+            lock.writeLock().lock();
+            try {
+                removedWhileLoading = null;
+                indexed = live.cardinality();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            loaded = true;
+        }
+        log.info("Indexed {} file names in {} ms", indexed, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // Each returns the highest id read, or after when there was nothing new
+    private long scanFiles(long after) {
+        return scan(FILES, after, (rs, n) -> new Object[]{rs.getLong(1), rs.getString(2), rs.getString(3)},
+                row -> addDocument((Long) row[0], (String) row[1], (String) row[2]));
+    }
+
+    private long scanShares(long after) {
+        return scan(SHARES, after, (rs, n) -> new Object[]{rs.getLong(1), rs.getLong(2), rs.getString(3)},
+                row -> grant((Long) row[1], (String) row[2]));
+    }
+
+    // The lock is released between batches so uploads are not held up
+    private long scan(String sql, long after, RowMapper<Object[]> mapper, Consumer<Object[]> apply) {
+        long lastId = after;
+        List<Object[]> batch;
+        do {
+            batch = jdbcTemplate.query(sql, mapper, lastId, loadBatchSize);
+            lock.writeLock().lock();
+            try {
+                batch.forEach(apply);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            lastId = batch.isEmpty() ? lastId : (Long) batch.getLast()[0];
+        } while (batch.size() == loadBatchSize);
+        return lastId;
+    }
+
+    // Callers hold the write lock
+    private void addDocument(long fileId, String fileName, String owner) {
+        if (docsByFileId.containsKey(fileId) || (removedWhileLoading != null && removedWhileLoading.contains(fileId))) {
+            return;
+        }
+        if (docCount == fileIds.length) {
+            int capacity = docCount * 2;
+            fileIds = Arrays.copyOf(fileIds, capacity);
+            names = Arrays.copyOf(names, capacity);
+            lowerNames = Arrays.copyOf(lowerNames, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+        }
+        int doc = docCount++;
+        String lower = fileName.toLowerCase(Locale.ROOT);
+        fileIds[doc] = fileId;
+        names[doc] = fileName;
+        lowerNames[doc] = lower;
+        live.set(doc);
+        docsByFileId.put(fileId, doc);
+        Visible owned = visible(owner);
+        owners[doc] = owned.username();
+        owned.docs().addLast(doc);
+
+        // doc is the newest document, so addLast keeps postings sorted and skips a gram repeated in the name
+        String marked = START + lower + END;
+        for (int i = 0; i + 3 <= marked.length(); i++) {
+            postings.computeIfAbsent(gram(marked, i), gram -> new IntList()).addLast(doc);
+        }
+    }
+
+    // Callers hold the write lock
+    private void grant(long fileId, String username) {
+        Integer doc = docsByFileId.get(fileId);
+        if (doc != null) {
+            visible(username).docs().insertSorted(doc);
+        }
+    }
+
+    // One username instance per user, shared by every document they own
+    private record Visible(String username, IntList docs) {
+    }
+
+    private Visible visible(String username) {
+        return visible.computeIfAbsent(username, name -> new Visible(name, new IntList()));
+    }
+
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long gram(String s, int i) {
+        return ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+    }
+
+    // Growable sorted int array; postings only ever grow at the end, user lists may take inserts
+    private static final class IntList {
+
+        int[] values = new int[4];
+        int size;
+
+        void addLast(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            ensureCapacity();
+            values[size++] = value;
+        }
+
+        void insertSorted(int value) {
+            int at = Arrays.binarySearch(values, 0, size, value);
+            if (at >= 0) {
+                return;
+            }
+            at = -at - 1;
+            ensureCapacity();
+            System.arraycopy(values, at, values, at + 1, size - at);
+            values[at] = value;
+            size++;
+        }
+
+        boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        private void ensureCapacity() {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size + (size >> 1) + 4);
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.EncryptedFileSharing.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Versioned master keys for envelope encryption. Every blob is encrypted with its own random
+ * data key, and only the data key is encrypted (AES key wrap, RFC 3394) under a master key.
+ * Rotating the master key therefore re-wraps 40-byte keys and never touches file contents.
+ *
+ * Master keys come from {@code app.crypto.master-keys.<version>}; new data keys are wrapped
+ * with {@code app.crypto.master-key-version}. Older versions stay configured until
+ * {@link KeyRotationService} reports nothing left under them. Unless configured explicitly,
+ * version 1 is derived from {@code app.crypto.key}.
+ */
+@Component
+public class KeyRing {
+
+    public static final int DATA_KEY_LENGTH = 32;
+    private static final String WRAP_TRANSFORMATION = "AESWrap";
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<Integer, SecretKey> masterKeys = new TreeMap<>();
+    private final int activeVersion;
+
+    public KeyRing(Environment env,
+                   @Value("${app.crypto.key:${ENCRYPTION_KEY:MySecretKey12345}}") String legacySecret,
+                   @Value("${app.crypto.master-key-version:1}") int activeVersion) {
+        Map<Integer, String> configured = Binder.get(env)
+                .bind("app.crypto.master-keys", Bindable.mapOf(Integer.class, String.class))
+                .orElse(Map.of());
+        // Domain-separated, so it never equals a key that encrypts file data directly
+        byte[] derived = sha256(("master-key:" + legacySecret).getBytes(StandardCharsets.UTF_8));
+        masterKeys.put(1, new SecretKeySpec(derived, "AES"));
+        configured.forEach((version, secret) -> {
+            byte[] bytes = secret.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length != 16 && bytes.length != 24 && bytes.length != 32) {
+                throw new IllegalStateException("Master key " + version + " must be 16, 24 or 32 bytes, got " + bytes.length);
+            }
+            masterKeys.put(version, new SecretKeySpec(bytes, "AES"));
+        });
+        if (!masterKeys.containsKey(activeVersion)) {
+            throw new IllegalStateException("No master key configured for active version " + activeVersion);
+        }
+        this.activeVersion = activeVersion;
+    }
+
+    public int activeVersion() {
+        return activeVersion;
+    }
+
+    public DataKey newDataKey() {
+        byte[] material = new byte[DATA_KEY_LENGTH];
+        random.nextBytes(material);
+        return new DataKey(material, activeVersion, wrap(material, activeVersion));
+    }
+
+    public DataKey unwrap(int version, byte[] wrapped) {
+        try {
+            Cipher cipher = Cipher.getInstance(WRAP_TRANSFORMATION);
+            cipher.init(Cipher.UNWRAP_MODE, masterKey(version));
+            byte[] material = cipher.unwrap(wrapped, "AES", Cipher.SECRET_KEY).getEncoded();
+            return new DataKey(material, version, wrapped);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Data key does not unwrap under master key " + version, e);
+        }
+    }
+
+    // Same data key, wrapped under the active master key
+    public DataKey rewrap(DataKey key) {
+        return key.version() == activeVersion
+                ? key
+                : new DataKey(key.material(), activeVersion, wrap(key.material(), activeVersion));
+    }
+
+    private byte[] wrap(byte[] material, int version) {
+        try {
+            Cipher cipher = Cipher.getInstance(WRAP_TRANSFORMATION);
+            cipher.init(Cipher.WRAP_MODE, masterKey(version));
+            return cipher.wrap(new SecretKeySpec(material, "AES"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Data key wrapping failed", e);
+        }
+    }
+
+    private SecretKey masterKey(int version) {
+        SecretKey key = masterKeys.get(version);
+        if (key == null) {
+            throw new IllegalStateException("Master key version " + version + " is not configured");
+        }
+        return key;
+    }
+
+    private static byte[] sha256(byte[] input) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(input);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // A blob's data key: the raw material for the cipher, and how it is stored
+    public record DataKey(byte[] material, int version, byte[] wrapped) {
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.EncryptedFileSharing.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+// GET /actuator/keyrotation: active master key version and how far re-wrapping has got
+@Component
+@Endpoint(id = "keyrotation")
+@RequiredArgsConstructor
+public class KeyRotationEndpoint {
+
+    private final KeyRotationService keyRotationService;
+
+    @ReadOperation
+    public Map<String, Object> progress() {
+        return keyRotationService.progress();
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.EncryptedFileSharing.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Moves every wrapped data key onto the active master key after it changes. Only the
+ * wrapped keys are rewritten. File contents are never read, so a batch of rows costs a
+ * few microseconds of AES per key plus one batched UPDATE.
+ *
+ * Works like BlobMigrator: one batch per tick, walking each table in primary key order.
+ * Batch size and interval bound the rate. The updates are conditional on the old
+ * version, so uploads, deletes and other nodes can run at the same time. After a full
+ * pass the tables are counted again, and anything wrapped meanwhile under an old key
+ * starts another pass.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class KeyRotationService {
+
+    // Tables holding wrapped data keys
+    private static final List<String> TABLES = List.of("content_blob", "upload_session");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final KeyRing keyRing;
+
+    @Value("${app.crypto.rotation.batch-size:1000}")
+    private int batchSize;
+
+    // Not synchronized: a batch does JDBC while holding the lock, which would pin a virtual thread's carrier
+    private final ReentrantLock lock = new ReentrantLock();
+    private volatile boolean pending;
+    private volatile long rewrapped;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private int table;
+    private Object cursor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void checkPending() {
+        long remaining = remaining().values().stream().mapToLong(Long::longValue).sum();
+        if (remaining > 0) {
+            log.info("{} data keys are wrapped under old master keys, re-wrapping to version {}",
+                    remaining, keyRing.activeVersion());
+            startedAt = Instant.now();
+            pending = true;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.crypto.rotation.interval-ms:200}")
+    public void rotateBatch() {
+        if (!pending) {
+            return;
+        }
+        lock.lock();
+        try {
+            rotateNext();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rotateNext() {
+        String name = TABLES.get(table);
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "select id, key_version, wrapped_key from " + name
+                        + " where key_version <> ?" + (cursor != null ? " and id > ?" : "")
+                        + " order by id limit ?",
+                cursor != null
+                        ? new Object[]{keyRing.activeVersion(), cursor, batchSize}
+                        : new Object[]{keyRing.activeVersion(), batchSize});
+
+        if (rows.isEmpty()) {
+            cursor = null;
+            if (++table < TABLES.size()) {
+                return;
+            }
+            table = 0;
+            if (remaining().values().stream().allMatch(count -> count == 0)) {
+                pending = false;
+                finishedAt = Instant.now();
+                log.info("Key rotation complete: {} data keys re-wrapped to master key version {} in {}",
+                        rewrapped, keyRing.activeVersion(), Duration.between(startedAt, finishedAt));
+            }
+            return;
+        }
+
+        List<Object[]> updates = new ArrayList<>(rows.size());
+        for (Map<String, Object> row : rows) {
+            int version = ((Number) row.get("key_version")).intValue();
+            KeyRing.DataKey key = keyRing.rewrap(keyRing.unwrap(version, (byte[]) row.get("wrapped_key")));
+            updates.add(new Object[]{key.wrapped(), key.version(), row.get("id"), version});
+        }
+        int[] counts = jdbcTemplate.batchUpdate(
+                "update " + name + " set wrapped_key = ?, key_version = ? where id = ? and key_version = ?",
+                updates);
+        for (int count : counts) {
+            // Drivers may report SUCCESS_NO_INFO (-2) for batched statements
+            rewrapped += count == 0 ? 0 : 1;
+        }
+        cursor = rows.get(rows.size() - 1).get("id");
+        log.info("Re-wrapped {} data keys in {} ({} so far)", rows.size(), name, rewrapped);
+    }
+
+    // Wrapped keys still under an old master key, per table; a master key may be retired once it is 0
+    public Map<String, Long> remaining() {
+        Map<String, Long> remaining = new LinkedHashMap<>();
+        for (String name : TABLES) {
+            remaining.put(name, jdbcTemplate.queryForObject(
+                    "select count(*) from " + name + " where key_version <> ?", Long.class, keyRing.activeVersion()));
+        }
+        return remaining;
+    }
+
+    public Map<String, Object> progress() {
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("activeVersion", keyRing.activeVersion());
+        progress.put("running", pending);
+        progress.put("rewrapped", rewrapped);
+        progress.put("remaining", remaining());
+        progress.put("startedAt", startedAt);
+        progress.put("finishedAt", finishedAt);
+        if (startedAt != null) {
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            long millis = Math.max(1, Duration.between(startedAt, end).toMillis());
+            progress.put("keysPerSecond", rewrapped * 1000 / millis);
+        }
+        return progress;
+    }
+}
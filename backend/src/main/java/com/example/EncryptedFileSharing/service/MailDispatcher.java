@@ -0,0 +1,237 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.config.WorkerThreads;
+import com.example.EncryptedFileSharing.model.OutboundMail;
+import com.example.EncryptedFileSharing.repository.OutboundMailRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbound mail pipeline. A message is first written to the {@code mail_outbox} table, so it
+ * survives a restart, and its id is then handed to a bounded in-memory queue. A few worker
+ * threads drain that queue in batches and hand each batch to the mail sender in one call,
+ * which sends it over a single SMTP connection.
+ *
+ * Failed messages are retried with exponential backoff up to a maximum number of attempts,
+ * after which they are marked FAILED and left for inspection. Rows that never made it into the
+ * queue (it was full, or the node restarted) are picked up by a periodic poll. Workers claim a
+ * row with a short lease before sending it, so a message is never handed to the relay twice
+ * concurrently, even with several nodes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MailDispatcher {
+
+    private final OutboundMailRepository outbox;
+    private final JavaMailSender mailSender;
+    private final WorkerThreads workerThreads;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.mail.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${app.mail.workers:2}")
+    private int workers;
+
+    @Value("${app.mail.batch-size:20}")
+    private int batchSize;
+
+    @Value("${app.mail.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.mail.initial-backoff:10s}")
+    private Duration initialBackoff;
+
+    @Value("${app.mail.max-backoff:15m}")
+    private Duration maxBackoff;
+
+    @Value("${app.mail.lease:2m}")
+    private Duration lease;
+
+    private BlockingQueue<Long> queue;
+    // Ids currently waiting in the queue, so the poller does not add them a second time
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+    private ExecutorService pool;
+    private Timer sendSucceeded;
+    private Timer sendFailed;
+    // From enqueue to hand-off to the relay, retries included; for OTP mails this is what the user waits for
+    private Timer delivery;
+
+    @PostConstruct
+    void start() {
+        sendSucceeded = sendTimer("sent");
+        sendFailed = sendTimer("failed");
+        delivery = Timer.builder("mail.delivery")
+                .description("Time from enqueue until the relay accepted the message")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        pool = Executors.newFixedThreadPool(workers, workerThreads.factory("mail-sender-"));
+        for (int i = 0; i < workers; i++) {
+            pool.submit(this::work);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        // Anything unsent is still in the outbox and goes out after the restart
+        pool.shutdownNow();
+    }
+
+    // Returns once the message is stored; delivery happens on the worker threads
+    public void enqueue(String to, String subject, String text) {
+        OutboundMail mail = outbox.save(OutboundMail.builder()
+                .recipient(to)
+                .subject(subject)
+                .body(text)
+                .build());
+        offer(mail.getId());
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.poll-interval-ms:5000}")
+    public void pollDue() {
+        int capacity = queue.remainingCapacity();
+        if (capacity == 0) {
+            return;
+        }
+        for (Long id : outbox.findDueIds(Instant.now(), Limit.of(capacity))) {
+            if (!queued.contains(id) && !offer(id)) {
+                break;
+            }
+        }
+    }
+
+    private boolean offer(Long id) {
+        if (!queued.add(id)) {
+            return true;
+        }
+        if (!queue.offer(id)) {
+            // Full: the row stays due in the outbox and a later poll brings it back
+            queued.remove(id);
+            return false;
+        }
+        return true;
+    }
+
+    private void work() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                batch.forEach(queued::remove);
+                sendBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.warn("Mail batch of {} failed: {}", batch.size(), e.getMessage());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void sendBatch(List<Long> ids) {
+        Instant now = Instant.now();
+        Map<SimpleMailMessage, OutboundMail> messages = new IdentityHashMap<>();
+        for (Long id : ids) {
+            if (outbox.claim(id, now, now.plus(lease)) == 1) {
+                outbox.findById(id).ifPresent(mail -> messages.put(toMessage(mail), mail));
+            }
+        }
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        MailException batchFailure = null;
+        long started = System.nanoTime();
+        try {
+            mailSender.send(messages.keySet().toArray(SimpleMailMessage[]::new));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+            batchFailure = failures.isEmpty() ? e : null;
+        } catch (MailException e) {
+            // Connection or authentication problem: nothing in the batch went out
+            batchFailure = e;
+        }
+        (batchFailure == null ? sendSucceeded : sendFailed).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        Instant sentAt = Instant.now();
+
+        int sent = 0;
+        for (Map.Entry<SimpleMailMessage, OutboundMail> entry : messages.entrySet()) {
+            Exception failure = batchFailure != null ? batchFailure : failures.get(entry.getKey());
+            if (failure == null) {
+                outbox.delete(entry.getValue());
+                delivery.record(Duration.between(entry.getValue().getCreatedAt(), sentAt));
+                sent++;
+            } else {
+                retryLater(entry.getValue(), failure);
+            }
+        }
+        log.debug("Sent {} of {} queued messages", sent, messages.size());
+    }
+
+    private void retryLater(OutboundMail mail, Exception failure) {
+        int attempts = mail.getAttempts() + 1;
+        mail.setAttempts(attempts);
+        mail.setLastError(truncate(String.valueOf(failure.getMessage())));
+        if (attempts >= maxAttempts) {
+            mail.setStatus(OutboundMail.Status.FAILED);
+            log.error("Giving up on mail {} to {} after {} attempts: {}",
+                    mail.getId(), mail.getRecipient(), attempts, failure.getMessage());
+        } else {
+            Duration delay = initialBackoff.multipliedBy(1L << Math.min(attempts - 1, 20));
+            mail.setNextAttemptAt(Instant.now().plus(delay.compareTo(maxBackoff) > 0 ? maxBackoff : delay));
+            log.warn("Mail {} failed (attempt {}), retrying at {}: {}",
+                    mail.getId(), attempts, mail.getNextAttemptAt(), failure.getMessage());
+        }
+        outbox.save(mail);
+    }
+
+    private Timer sendTimer(String outcome) {
+        return Timer.builder("mail.send")
+                .description("One batch handed to the SMTP relay")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static SimpleMailMessage toMessage(OutboundMail mail) {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setTo(mail.getRecipient());
+        message.setSubject(mail.getSubject());
+        message.setText(mail.getBody());
+        return message;
+    }
+
+    private static String truncate(String text) {
+        return text.length() <= 500 ? text : text.substring(0, 500);
+    }
+}
@@ -1,63 +1,55 @@
 package com.example.EncryptedFileSharing.service;
 
-import com.example.EncryptedFileSharing.model.OtpCode;
-import com.example.EncryptedFileSharing.repository.OtpRepo;
-import lombok.RequiredArgsConstructor;
+import com.example.EncryptedFileSharing.otp.OtpStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.util.Random;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class OtpService {
 
-    private final OtpRepo otpRepo;
+    private static final Duration OTP_TTL = Duration.ofMinutes(5);
+
+    private final OtpStore otpStore;
     private final EmailService emailService;
+    // Thread-safe and seeded once; OTPs must not be predictable
+    private final SecureRandom random = new SecureRandom();
+    // What the caller waits for: issuing plus queueing the mail (delivery itself is mail.delivery)
+    private final Timer requestTimer;
+
+    public OtpService(OtpStore otpStore, EmailService emailService, MeterRegistry meterRegistry) {
+        this.otpStore = otpStore;
+        this.emailService = emailService;
+        this.requestTimer = Timer.builder("otp.request")
+                .description("Issuing an OTP and queueing its mail")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
 
     // Generate & send OTP
     public void generateOtp(String username, String toEmail) {
+        long started = System.nanoTime();
 
-        // Optional: invalidate old OTPs
-        otpRepo.findTopByUsernameAndUsedFalse(username)
-                .ifPresent(oldOtp -> {
-                    oldOtp.setUsed(true);
-                    otpRepo.save(oldOtp);
-                });
-
-        String code = String.format("%06d", new Random().nextInt(1_000_000));
-
-        OtpCode otpCode = OtpCode.builder()
-                .username(username)
-                .code(code)
-                .expiresAt(Instant.now().plus(5, ChronoUnit.MINUTES))
-                .used(false)
-                .build();
-
-        otpRepo.save(otpCode);
+        // Issuing replaces (invalidates) any older code for this user
+        String code = String.format("%06d", random.nextInt(1_000_000));
+        otpStore.issue(username, code, OTP_TTL);
 
         String message =
                 "Your verification code: " + code +
                         "\nThis code expires in 5 minutes.";
 
         emailService.MailSender(toEmail, "Your OTP Code", message);
-
-        // TEMP (DEV ONLY) — remove later
-        System.out.println("DEBUG OTP for " + username + " => " + code);
+        requestTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
     }
 
     // Verify OTP
     public boolean verifyOtp(String username, String code) {
-
-        return otpRepo.findTopByUsernameAndUsedFalse(username)
-                .filter(otp -> otp.getCode().equals(code))
-                .filter(otp -> otp.getExpiresAt().isAfter(Instant.now()))
-                .map(otp -> {
-                    otp.setUsed(true);
-                    otpRepo.save(otp);
-                    return true;
-                })
-                .orElse(false);
+        return otpStore.verify(username, code);
     }
 }
@@ -0,0 +1,179 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.dto.FileMetadata;
+import com.example.EncryptedFileSharing.dto.PageCursor;
+import com.example.EncryptedFileSharing.dto.SharedFileSummary;
+import com.example.EncryptedFileSharing.model.FileAccess;
+import com.example.EncryptedFileSharing.repository.FileAccessRepository;
+import com.example.EncryptedFileSharing.repository.StoredFileRepository;
+import com.example.EncryptedFileSharing.repository.UserRepository;
+import com.example.EncryptedFileSharing.security.AccessControlIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ShareService implements SmartInitializingSingleton {
+
+    private final FileAccessRepository fileAccessRepository;
+    private final StoredFileRepository fileRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final AccessControlIndex accessControlIndex;
+    private final FileNameIndex fileNameIndex;
+
+    @Value("${app.share.max-bulk-items:10000}")
+    private int maxBulkItems;
+
+    public enum Status { SHARED, ALREADY_SHARED, NOT_FOUND, FORBIDDEN, UNKNOWN_USER, SELF }
+
+    public record Result(Long fileId, String recipient, Status status) {
+    }
+
+    /**
+     * Shares every file with every recipient. Ownership, recipients and existing shares are
+     * each checked with one set-based query, and the new rows go in as one JDBC batch, so
+     * the statement count does not grow with the number of pairs. Inserting a pair that
+     * already exists is a no-op (unique (file_id, shared_with)), which also covers a
+     * concurrent request sharing the same pair.
+     *
+     * ALREADY_SHARED is best-effort: it reflects the existence check. A pair inserted by a
+     * concurrent request after that check is reported as SHARED to both requests, since
+     * the batch row counts cannot tell a duplicate apart on MySQL (CLIENT_FOUND_ROWS, and
+     * rewritten batches report no per-row counts). The share exists either way.
+     */
+    public List<Result> share(String owner, List<Long> fileIds, List<String> recipients) {
+        Set<Long> files = new LinkedHashSet<>(fileIds);
+        Set<String> users = new LinkedHashSet<>(recipients);
+        if (files.isEmpty() || users.isEmpty()) {
+            throw new IllegalArgumentException("fileIds and recipients must not be empty");
+        }
+        if ((long) files.size() * users.size() > maxBulkItems) {
+            throw new IllegalArgumentException("At most " + maxBulkItems + " file/recipient pairs per request");
+        }
+
+        Map<Long, String> owners = fileRepository.findMetadataByIdIn(files).stream()
+                .collect(Collectors.toMap(FileMetadata::getId, FileMetadata::getUploadedBy));
+        Set<String> known = new HashSet<>(userRepository.findExistingUsernames(users));
+        List<Long> owned = files.stream().filter(id -> owner.equals(owners.get(id))).toList();
+        Set<String> existing = owned.isEmpty() || known.isEmpty()
+                ? Set.of()
+                : fileAccessRepository.findExistingShares(owned, known).stream()
+                        .map(key -> key.getFileId() + "/" + key.getSharedWith())
+                        .collect(Collectors.toSet());
+
+        List<Result> results = new ArrayList<>(files.size() * users.size());
+        List<Object[]> inserts = new ArrayList<>();
+        Timestamp now = Timestamp.from(Instant.now());
+        for (Long fileId : files) {
+            for (String recipient : users) {
+                Status status;
+                if (!owners.containsKey(fileId)) {
+                    status = Status.NOT_FOUND;
+                } else if (!owner.equals(owners.get(fileId))) {
+                    status = Status.FORBIDDEN;
+                } else if (recipient.equals(owner)) {
+                    status = Status.SELF;
+                } else if (!known.contains(recipient)) {
+                    status = Status.UNKNOWN_USER;
+                } else if (existing.contains(fileId + "/" + recipient)) {
+                    status = Status.ALREADY_SHARED;
+                } else {
+                    status = Status.SHARED;
+                    inserts.add(new Object[]{fileId, recipient, owner, now});
+                }
+                results.add(new Result(fileId, recipient, status));
+            }
+        }
+
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("""
+                    insert into file_access (file_id, shared_with, shared_by, created_at) values (?, ?, ?, ?)
+                    on duplicate key update file_id = file_id""", inserts);
+            Map<Long, List<String>> granted = inserts.stream()
+                    .collect(Collectors.groupingBy(row -> (Long) row[0], Collectors.mapping(row -> (String) row[1], Collectors.toList())));
+            granted.forEach(accessControlIndex::granted);
+            granted.forEach(fileNameIndex::shared);
+        }
+        return results;
+    }
+
+    // Files shared with the user, ordered by share time; after is the last row of the previous page
+    public List<SharedFileSummary> sharedWith(String username, PageCursor after, Sort.Direction direction, Limit limit) {
+        if (direction.isAscending()) {
+            return after == null
+                    ? fileAccessRepository.findSharedWithOldestFirst(username, limit)
+                    : fileAccessRepository.findSharedWithOldestFirstAfter(username, after.createdAt(), after.id(), limit);
+        }
+        return after == null
+                ? fileAccessRepository.findSharedWithNewestFirst(username, limit)
+                : fileAccessRepository.findSharedWithNewestFirstAfter(username, after.createdAt(), after.id(), limit);
+    }
+
+    // Schema fix-ups: once the schema is up to date but before the web server takes requests
+    @Override
+    public void afterSingletonsInstantiated() {
+        backfillShareTimestamps();
+        enforceUniqueShares();
+    }
+
+    // Shares created through the builder used to be saved without a timestamp, which the
+    // keyset queries cannot page over; give them one so they stay listed
+    public void backfillShareTimestamps() {
+        int updated = fileAccessRepository.backfillCreatedAt(Instant.now());
+        if (updated > 0) {
+            log.info("Backfilled created_at on {} file_access rows", updated);
+        }
+    }
+
+    // The unique (file_id, shared_with) constraint cannot be added by schema update while
+    // duplicate shares exist, so drop the duplicates (keeping the oldest) and add it here
+    public void enforceUniqueShares() {
+        // Matched by columns: some databases name the backing index differently from the constraint
+        Boolean present = jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            DatabaseMetaData meta = con.getMetaData();
+            Map<String, Set<String>> uniqueIndexes = new HashMap<>();
+            try (ResultSet rs = meta.getIndexInfo(con.getCatalog(), con.getSchema(), "file_access", true, false)) {
+                while (rs.next()) {
+                    String column = rs.getString("COLUMN_NAME");
+                    if (column != null) {
+                        uniqueIndexes.computeIfAbsent(rs.getString("INDEX_NAME"), name -> new HashSet<>())
+                                .add(column.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+            return uniqueIndexes.containsValue(Set.of("file_id", "shared_with"));
+        });
+        if (Boolean.TRUE.equals(present)) {
+            return;
+        }
+        int removed = jdbcTemplate.update("""
+                delete from file_access where id not in (
+                    select id from (select min(id) as id from file_access group by file_id, shared_with) keep)""");
+        jdbcTemplate.execute("alter table file_access add constraint " + FileAccess.UNIQUE_SHARE
+                + " unique (file_id, shared_with)");
+        log.info("Removed {} duplicate file_access rows and added {}", removed, FileAccess.UNIQUE_SHARE);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.EncryptedFileSharing.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload and download latency as histograms per size bucket, plus bytes moved. A 10 KB
+ * and a 1 GB transfer should not share one latency distribution, so each bucket gets its
+ * own timer. All of them are registered up front and picked by index; recording
+ * allocates nothing.
+ */
+@Component
+public class TransferMetrics {
+
+    // Upper bounds (inclusive) of the size buckets; the last one is open-ended
+    private static final long[] BUCKET_LIMITS = {64L << 10, 1L << 20, 16L << 20, 256L << 20, Long.MAX_VALUE};
+    private static final String[] BUCKET_NAMES = {"64KB", "1MB", "16MB", "256MB", "larger"};
+
+    private final Timer[] uploads;
+    private final Timer[] downloads;
+    private final Timer[] rangeDownloads;
+    private final Counter uploadedBytes;
+    private final Counter downloadedBytes;
+
+    public TransferMetrics(MeterRegistry registry) {
+        this.uploads = timers(registry, "files.upload", "full");
+        this.downloads = timers(registry, "files.download", "full");
+        this.rangeDownloads = timers(registry, "files.download", "range");
+        this.uploadedBytes = Counter.builder("files.upload.bytes").baseUnit("bytes").register(registry);
+        this.downloadedBytes = Counter.builder("files.download.bytes").baseUnit("bytes").register(registry);
+    }
+
+    public void upload(long bytes, long nanos) {
+        uploads[bucket(bytes)].record(nanos, TimeUnit.NANOSECONDS);
+        uploadedBytes.increment(bytes);
+    }
+
+    public void download(long bytes, long nanos, boolean range) {
+        (range ? rangeDownloads : downloads)[bucket(bytes)].record(nanos, TimeUnit.NANOSECONDS);
+        downloadedBytes.increment(bytes);
+    }
+
+    private static int bucket(long bytes) {
+        int i = 0;
+        while (bytes > BUCKET_LIMITS[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    private static Timer[] timers(MeterRegistry registry, String name, String kind) {
+        Timer[] timers = new Timer[BUCKET_NAMES.length];
+        for (int i = 0; i < timers.length; i++) {
+            timers[i] = Timer.builder(name)
+                    .description("Whole transfer, including the time the client takes")
+                    .tag("size", BUCKET_NAMES[i])
+                    .tag("kind", kind)
+                    .publishPercentileHistogram()
+                    .maximumExpectedValue(Duration.ofHours(1))
+                    .register(registry);
+        }
+        return timers;
+    }
+}
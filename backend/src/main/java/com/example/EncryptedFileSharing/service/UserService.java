@@ -6,6 +6,7 @@ import com.example.EncryptedFileSharing.repository.UserRepository;
 import com.example.EncryptedFileSharing.dto.LoginRequest;
 import com.example.EncryptedFileSharing.dto.SignUpReq;
 import com.example.EncryptedFileSharing.security.JwtUtil;
+import com.example.EncryptedFileSharing.security.PrincipalCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -17,6 +18,7 @@ public class UserService {
     private final UserRepository userRepository;
     private final JwtUtil jwtUtil;
     private final PasswordEncoder passwordEncoder;;
+    private final PrincipalCache principalCache;
 
     public String register(SignUpReq request){
         if(userRepository.findByUsername(request.getUsername()).isPresent()) {
@@ -44,9 +46,22 @@ public class UserService {
         if(!passwordEncoder.matches(request.getPassword(), user.getPassword())){
             return new LoginResponse(null,"invalid password");
         }
+        // Not verified yet: a token would be refused on every request anyway
+        if(!user.isEnabled()){
+            return new LoginResponse(null,"account not verified, verify the OTP sent to your email first");
+        }
 
 
         String token =jwtUtil.generateToken(user.getUsername());
         return new LoginResponse(token,"login successful");
     }
+
+    // Tokens already resolved for this user are dropped from the cache, so the change applies to the next request
+    public void setEnabled(String username, boolean enabled) {
+        userRepository.findByUsername(username).ifPresent(user -> {
+            user.setEnabled(enabled);
+            userRepository.save(user);
+        });
+        principalCache.invalidateUser(username);
+    }
 }
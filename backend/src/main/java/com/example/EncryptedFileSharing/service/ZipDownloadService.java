@@ -0,0 +1,298 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.config.WorkerThreads;
+import com.example.EncryptedFileSharing.dto.FileMetadata;
+import com.example.EncryptedFileSharing.repository.StoredFileRepository;
+import com.example.EncryptedFileSharing.util.SegmentedFormat;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams several files as one ZIP archive without temp files or whole-file buffers.
+ *
+ * A reader thread decrypts the files one after another into a small ring of segment-sized
+ * buffers, while the response thread deflates and writes whatever is ready. The next entry
+ * is therefore being read and decrypted while the current one is still being compressed and
+ * sent. Memory per archive is bounded by the ring, and a slow client simply holds the reader
+ * back once the ring is full.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ZipDownloadService {
+
+    private static final int BUFFER_SIZE = SegmentedFormat.SEGMENT_SIZE;
+
+    private final StoredFileRepository fileRepository;
+    private final FileEncryptionService fileService;
+    private final CompressionPolicy compressionPolicy;
+    private final WorkerThreads workerThreads;
+
+    @Value("${app.zip.max-entries:1000}")
+    private int maxEntries;
+
+    // Buffers the reader may run ahead of the writer by
+    @Value("${app.zip.read-ahead-buffers:16}")
+    private int readAheadBuffers;
+
+    @Value("${app.zip.level:1}")
+    private int level;
+
+    private ExecutorService readers;
+
+    @PostConstruct
+    void start() {
+        readers = workerThreads.perTaskExecutor("zip-reader-");
+    }
+
+    @PreDestroy
+    void stop() {
+        readers.shutdownNow();
+    }
+
+    /**
+     * The requested files in request order, if the user may read every one of them; all ids
+     * are checked with a single query. Throws NoSuchElementException listing the ids that are
+     * missing or not readable.
+     */
+    public List<FileMetadata> readableFiles(String username, List<Long> ids) {
+        Set<Long> wanted = new LinkedHashSet<>(ids);
+        if (wanted.isEmpty() || wanted.size() > maxEntries) {
+            throw new IllegalArgumentException("Between 1 and " + maxEntries + " file ids are required");
+        }
+        Map<Long, FileMetadata> readable = fileRepository.findReadableMetadata(wanted, username).stream()
+                .collect(Collectors.toMap(FileMetadata::getId, Function.identity()));
+        List<Long> denied = wanted.stream().filter(id -> !readable.containsKey(id)).toList();
+        if (!denied.isEmpty()) {
+            throw new NoSuchElementException("Files not found or not shared with you: " + denied);
+        }
+        return wanted.stream().map(readable::get).toList();
+    }
+
+    // Everything shared with the user, newest share first
+    public List<FileMetadata> sharedFiles(String username) {
+        return fileRepository.findSharedMetadata(username, Limit.of(maxEntries));
+    }
+
+    public void writeZip(List<FileMetadata> files, OutputStream out) throws IOException {
+        BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(readAheadBuffers);
+        for (int i = 0; i < readAheadBuffers; i++) {
+            free.add(new byte[BUFFER_SIZE]);
+        }
+        BlockingQueue<Item> ready = new ArrayBlockingQueue<>(readAheadBuffers + 2);
+        Future<?> reader = readers.submit(() -> read(files, free, ready));
+
+        // Closed only once every entry is complete: after a failure the archive must stay
+        // unterminated, or the client would get a valid-looking ZIP with a truncated entry
+        ZipOutputStream zip = new ZipOutputStream(out);
+        try {
+            Set<String> names = new HashSet<>();
+            boolean entryOpen = false;
+            while (true) {
+                Item item = take(ready);
+                switch (item) {
+                    case EntryStart start -> {
+                        if (entryOpen) {
+                            zip.closeEntry();
+                        }
+                        FileMetadata file = start.file();
+                        // Already-compressed formats are stored as-is instead of burning CPU on them
+                        zip.setLevel(compressionPolicy.isPrecompressed(file.getContentType())
+                                ? Deflater.NO_COMPRESSION
+                                : level);
+                        ZipEntry entry = new ZipEntry(entryName(file, names));
+                        if (file.getCreatedAt() != null) {
+                            entry.setLastModifiedTime(FileTime.from(file.getCreatedAt()));
+                        }
+                        zip.putNextEntry(entry);
+                        entryOpen = true;
+                    }
+                    case Data data -> {
+                        zip.write(data.buffer(), 0, data.length());
+                        free.add(data.buffer());
+                    }
+                    case Failure failure -> throw new IOException(
+                            "Could not read file " + failure.file().getId() + " for the archive", failure.cause());
+                    case Finished finished -> {
+                        if (entryOpen) {
+                            zip.closeEntry();
+                        }
+                        zip.close();
+                        return;
+                    }
+                }
+            }
+        } finally {
+            // Stops the reader if the client went away or an entry failed
+            reader.cancel(true);
+        }
+    }
+
+    private void read(List<FileMetadata> files, BlockingQueue<byte[]> free, BlockingQueue<Item> ready) {
+        for (FileMetadata file : files) {
+            try {
+                ready.put(new EntryStart(file));
+                try (OutputStream sink = new BufferSink(free, ready)) {
+                    fileService.streamFile(file, sink);
+                }
+            } catch (InterruptedException | InterruptedIOException e) {
+                return;
+            } catch (Exception e) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                log.warn("ZIP entry for file {} failed: {}", file.getId(), e.getMessage());
+                handOver(ready, new Failure(file, e));
+                return;
+            }
+        }
+        handOver(ready, new Finished());
+    }
+
+    private static void handOver(BlockingQueue<Item> ready, Item item) {
+        try {
+            ready.put(item);
+        } catch (InterruptedException ignored) {
+            // The writer is gone
+        }
+    }
+
+    // Unique, path-free names: "report.pdf", "report (2).pdf", ...
+    private static String entryName(FileMetadata file, Set<String> used) {
+        String name = file.getFileName() == null || file.getFileName().isBlank()
+                ? "file-" + file.getId()
+                : file.getFileName().replaceAll("[/\\\\]", "_");
+        if (name.equals(".") || name.equals("..")) {
+            name = "file-" + file.getId();
+        }
+        String candidate = name;
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int n = 2; !used.add(candidate); n++) {
+            candidate = base + " (" + n + ")" + extension;
+        }
+        return candidate;
+    }
+
+    private static Item take(BlockingQueue<Item> ready) throws IOException {
+        try {
+            return ready.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("ZIP download interrupted");
+        }
+    }
+
+    private sealed interface Item permits EntryStart, Data, Failure, Finished {
+    }
+
+    private record EntryStart(FileMetadata file) implements Item {
+    }
+
+    private record Data(byte[] buffer, int length) implements Item {
+    }
+
+    private record Failure(FileMetadata file, Exception cause) implements Item {
+    }
+
+    private record Finished() implements Item {
+    }
+
+    // Collects decrypted bytes into free buffers and hands each full one to the writer
+    private static final class BufferSink extends OutputStream {
+
+        private final BlockingQueue<byte[]> free;
+        private final BlockingQueue<Item> ready;
+        private byte[] buffer;
+        private int length;
+
+        BufferSink(BlockingQueue<byte[]> free, BlockingQueue<Item> ready) {
+            this.free = free;
+            this.ready = ready;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (buffer == null) {
+                    buffer = await(free::take);
+                    length = 0;
+                }
+                int n = Math.min(len, buffer.length - length);
+                System.arraycopy(b, off, buffer, length, n);
+                length += n;
+                off += n;
+                len -= n;
+                if (length == buffer.length) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (buffer != null && length > 0) {
+                Data data = new Data(buffer, length);
+                await(() -> {
+                    ready.put(data);
+                    return null;
+                });
+                buffer = null;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+            if (buffer != null) {
+                free.add(buffer);
+                buffer = null;
+            }
+        }
+
+        private static <T> T await(Blocking<T> call) throws IOException {
+            try {
+                return call.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("ZIP download cancelled");
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Blocking<T> {
+        T get() throws InterruptedException;
+    }
+}
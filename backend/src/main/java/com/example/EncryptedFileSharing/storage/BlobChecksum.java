@@ -0,0 +1,78 @@
+package com.example.EncryptedFileSharing.storage;
+
+import com.example.EncryptedFileSharing.util.SegmentedFormat;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * The checksum recorded for a blob: the SHA-256 of its bytes, except for chunked containers
+ * ({@link SegmentedFormat} version 2). Their chunks are sealed by separate requests and never
+ * read back in one pass, so they are recorded as the SHA-256 over the SHA-256 of the header
+ * and of each chunk's sealed bytes, which commit can put together from per-chunk digests.
+ */
+public final class BlobChecksum {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private BlobChecksum() {
+    }
+
+    // SHA-256 over the given digests in order, hex encoded
+    public static String combine(List<byte[]> digests) {
+        MessageDigest combined = sha256();
+        digests.forEach(combined::update);
+        return HexFormat.of().formatHex(combined.digest());
+    }
+
+    // Reads the blob to the end and returns its checksum
+    public static String read(InputStream source) throws IOException {
+        InputStream in = new BufferedInputStream(source, BUFFER_SIZE);
+        in.mark(SegmentedFormat.HEADER_LENGTH);
+        byte[] head = in.readNBytes(SegmentedFormat.HEADER_LENGTH);
+        in.reset();
+        if (!SegmentedFormat.isChunked(head)) {
+            ChecksummingOutputStream whole = new ChecksummingOutputStream(OutputStream.nullOutputStream());
+            in.transferTo(whole);
+            return whole.checksum();
+        }
+
+        SegmentedFormat.Header header = SegmentedFormat.Header.read(in);
+        long chunkLength = (long) header.chunkSegments() * (header.segmentSize() + SegmentedFormat.TAG_LENGTH);
+        List<byte[]> digests = new ArrayList<>();
+        digests.add(sha256().digest(header.toBytes()));
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (true) {
+            MessageDigest chunk = sha256();
+            long remaining = chunkLength;
+            int n;
+            while (remaining > 0 && (n = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                chunk.update(buffer, 0, n);
+                remaining -= n;
+            }
+            if (remaining == chunkLength) {
+                break;
+            }
+            digests.add(chunk.digest());
+            if (remaining > 0) {
+                break;
+            }
+        }
+        return combine(digests);
+    }
+
+    public static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.EncryptedFileSharing.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.util.List;
+
+/**
+ * Moves ciphertext out of the legacy {@code stored_file.encrypted_data} LONGBLOB into the
+ * {@link BlobStore}, a small batch at a time, while the application keeps serving traffic.
+ * Un-migrated rows stay readable through the column until their turn comes; the row update
+ * is conditional, so several nodes can run the migrator side by side. A row that fails is
+ * retried on the next pass over the table rather than holding up the rows after it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BlobMigrator implements SmartInitializingSingleton {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+
+    @Value("${app.storage.migration.batch-size:20}")
+    private int batchSize;
+
+    private volatile boolean pending;
+
+    // Highest id tried in the current pass; rows that fail stay behind it until the next pass
+    private long cursor;
+    private int failedThisPass;
+
+    // Once the schema is up to date but before the web server takes requests
+    @Override
+    public void afterSingletonsInstantiated() {
+        prepareLegacyColumn();
+    }
+
+    // The old column was NOT NULL; new rows no longer write it, so relax it before anything is uploaded
+    public void prepareLegacyColumn() {
+        Boolean nullable = legacyColumnNullable();
+        if (nullable == null) {
+            return;
+        }
+        if (!nullable) {
+            jdbcTemplate.execute("alter table stored_file modify encrypted_data longblob null");
+        }
+        pending = true;
+        log.info("Legacy encrypted_data column found, blob migration enabled");
+    }
+
+    // Synchronized: the pass state is not shared safely with a batch run by hand
+    @Scheduled(fixedDelayString = "${app.storage.migration.interval-ms:5000}")
+    public synchronized void migrateBatch() {
+        if (!pending) {
+            return;
+        }
+        List<Long> ids;
+        try {
+            ids = jdbcTemplate.queryForList(
+                    "select id from stored_file where blob_key is null and encrypted_data is not null and id > ? order by id limit ?",
+                    Long.class, cursor, batchSize);
+        } catch (BadSqlGrammarException e) {
+            // Another node finished the migration and the column was dropped
+            if (legacyColumnNullable() != null) {
+                throw e;
+            }
+            pending = false;
+            log.info("Legacy encrypted_data column is gone, blob migration stopped");
+            return;
+        }
+        if (ids.isEmpty()) {
+            if (cursor == 0) {
+                pending = false;
+                log.info("Blob migration complete; stored_file.encrypted_data can be dropped");
+            } else {
+                if (failedThisPass > 0) {
+                    log.warn("{} stored_file rows could not be migrated this pass; retrying them next pass", failedThisPass);
+                }
+                cursor = 0;
+                failedThisPass = 0;
+            }
+            return;
+        }
+        int migrated = 0;
+        for (Long id : ids) {
+            try {
+                migrateRow(id);
+                migrated++;
+            } catch (Exception e) {
+                failedThisPass++;
+                log.warn("Blob migration failed for stored_file {}: {}", id, e.getMessage());
+            }
+        }
+        cursor = ids.getLast();
+        log.info("Migrated {} stored_file rows to the blob store", migrated);
+    }
+
+    // Null when there is no legacy column
+    private Boolean legacyColumnNullable() {
+        return jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+            DatabaseMetaData meta = con.getMetaData();
+            try (ResultSet rs = meta.getColumns(con.getCatalog(), con.getSchema(), "stored_file", "encrypted_data")) {
+                return rs.next() ? rs.getInt("NULLABLE") == DatabaseMetaData.columnNullable : null;
+            }
+        });
+    }
+
+    private void migrateRow(Long id) throws IOException {
+        String blobKey = BlobStore.newKey();
+        BlobOutputStream blobOut = blobStore.create(blobKey);
+        ChecksummingOutputStream out = new ChecksummingOutputStream(blobOut);
+        try {
+            jdbcTemplate.query("select encrypted_data from stored_file where id = ?", rs -> {
+                if (rs.next()) {
+                    try (InputStream in = rs.getBinaryStream(1)) {
+                        in.transferTo(out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return null;
+            }, id);
+            blobOut.commit();
+        } finally {
+            blobOut.abort();
+        }
+
+        int updated = jdbcTemplate.update(
+                "update stored_file set blob_key = ?, encrypted_size = ?, checksum = ?, encrypted_data = null "
+                        + "where id = ? and blob_key is null",
+                blobKey, out.size(), out.checksum(), id);
+        if (updated == 0) {
+            // Another node got there first, or the row was deleted meanwhile
+            blobStore.delete(blobKey);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.EncryptedFileSharing.storage;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A blob being written. Nothing is visible under its key until {@link #commit()}; closing
+ * only seals the bytes written so far, so layered streams (encryption, compression) can
+ * write their trailers and close before the caller decides. Writers call {@link #abort()}
+ * in a finally block: after a failed write the partial blob is discarded, not published.
+ */
+public abstract class BlobOutputStream extends FilterOutputStream {
+
+    protected BlobOutputStream(OutputStream out) {
+        super(out);
+    }
+
+    // Publishes the blob under its key, closing the stream first if needed
+    public abstract void commit() throws IOException;
+
+    // Discards the blob unless it was committed; safe to call more than once
+    public abstract void abort() throws IOException;
+}
@@ -0,0 +1,204 @@
+package com.example.EncryptedFileSharing.storage;
+
+import com.example.EncryptedFileSharing.config.WorkerThreads;
+import com.example.EncryptedFileSharing.ratelimit.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Re-reads every stored blob in the background and checks it against the checksum recorded
+ * when it was written (see {@link BlobChecksum}), so bit rot or a truncated file is found
+ * before a user downloads it.
+ * Reads are paced to {@code app.storage.scrub.bytes-per-second} and bypass the block cache,
+ * so a pass never competes with downloads for disk or evicts hot data. After a full pass the
+ * scrubber sleeps for {@code app.storage.scrub.pass-interval}.
+ *
+ * Outcomes are counted as {@code storage.scrub.blobs} tagged {@code result=ok|corrupt|missing};
+ * corrupt and missing blobs are also logged with their key.
+ */
+@Slf4j
+@Component
+public class BlobScrubber {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Deduplicated blobs are checked once through content_blob; files from before deduplication
+    // have no content_blob row and are checked through stored_file
+    private static final String CONTENT_BLOBS = """
+            select id, blob_key, checksum from content_blob
+            where id > ? and checksum is not null order by id limit ?""";
+    private static final String PRE_DEDUP_FILES = """
+            select id, blob_key, checksum from stored_file f
+            where id > ? and blob_key is not null and checksum is not null
+              and not exists (select 1 from content_blob c where c.blob_key = f.blob_key)
+            order by id limit ?""";
+
+    private record Target(long id, String blobKey, String checksum) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobStore blobStore;
+    private final WorkerThreads workerThreads;
+    private final Counter ok;
+    private final Counter corrupt;
+    private final Counter missing;
+    private final Counter bytesRead;
+
+    @Value("${app.storage.scrub.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.scrub.bytes-per-second:8MB}")
+    private DataSize bytesPerSecond;
+
+    @Value("${app.storage.scrub.pass-interval:24h}")
+    private Duration passInterval;
+
+    @Value("${app.storage.scrub.batch-size:100}")
+    private int batchSize;
+
+    private volatile Thread worker;
+
+    public BlobScrubber(JdbcTemplate jdbcTemplate, BlobStore blobStore, WorkerThreads workerThreads, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.blobStore = blobStore;
+        this.workerThreads = workerThreads;
+        this.ok = result(meterRegistry, "ok");
+        this.corrupt = result(meterRegistry, "corrupt");
+        this.missing = result(meterRegistry, "missing");
+        this.bytesRead = Counter.builder("storage.scrub.bytes").baseUnit("bytes").register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        worker = workerThreads.factory("blob-scrubber-").newThread(this::run);
+        worker.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        Thread thread = worker;
+        worker = null;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        // One bucket for the whole pass; a second of burst lets small blobs go through unpaced
+        TokenBucket bucket = new TokenBucket(Math.max(BUFFER_SIZE, bytesPerSecond.toBytes()), bytesPerSecond.toBytes());
+        while (worker != null) {
+            try {
+                long started = System.nanoTime();
+                int checked = scrub(CONTENT_BLOBS, "content_blob", bucket) + scrub(PRE_DEDUP_FILES, "stored_file", bucket);
+                log.info("Scrubbed {} blobs in {} s", checked, (System.nanoTime() - started) / 1_000_000_000);
+                Thread.sleep(passInterval);
+            } catch (InterruptedException | InterruptedIOException e) {
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Blob scrub pass failed: {}", e.getMessage());
+                try {
+                    Thread.sleep(passInterval);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Walks one table in keyset batches; returns how many blobs were checked
+    private int scrub(String query, String table, TokenBucket bucket) throws InterruptedException, InterruptedIOException {
+        int checked = 0;
+        long lastId = 0;
+        List<Target> batch;
+        do {
+            batch = jdbcTemplate.query(query,
+                    (rs, n) -> new Target(rs.getLong(1), rs.getString(2), rs.getString(3)), lastId, batchSize);
+            for (Target target : batch) {
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                verify(target, table, bucket);
+                checked++;
+                lastId = target.id();
+            }
+        } while (batch.size() == batchSize);
+        return checked;
+    }
+
+    private void verify(Target target, String table, TokenBucket bucket) throws InterruptedIOException {
+        try (InputStream in = paced(blobStore.openUncached(target.blobKey()), bucket)) {
+            if (target.checksum().equalsIgnoreCase(BlobChecksum.read(in))) {
+                ok.increment();
+            } else {
+                corrupt.increment();
+                log.error("Blob {} ({} {}) does not match its checksum", target.blobKey(), table, target.id());
+            }
+        } catch (InterruptedIOException e) {
+            throw e;
+        } catch (NoSuchFileException e) {
+            // Deleted since the batch was read is fine; still referenced is not
+            Integer rows = jdbcTemplate.queryForObject("select count(*) from " + table + " where id = ?", Integer.class, target.id());
+            if (rows != null && rows > 0) {
+                missing.increment();
+                log.error("Blob {} ({} {}) is missing from the blob store", target.blobKey(), table, target.id());
+            }
+        } catch (IOException e) {
+            corrupt.increment();
+            log.error("Blob {} ({} {}) could not be read: {}", target.blobKey(), table, target.id(), e.getMessage());
+        }
+    }
+
+    // Counts every read and holds it back to the scrub rate
+    private InputStream paced(InputStream in, TokenBucket bucket) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, len);
+                if (n > 0) {
+                    bytesRead.increment(n);
+                    pace(bucket, n);
+                }
+                return n;
+            }
+        };
+    }
+
+    private static void pace(TokenBucket bucket, long bytes) throws InterruptedIOException {
+        long waitNanos = bucket.reserve(bytes);
+        if (waitNanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(waitNanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while paced");
+        }
+    }
+
+    private static Counter result(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("storage.scrub.blobs")
+                .description("Blobs re-read and checked against their stored checksum")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.EncryptedFileSharing.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.util.UUID;
+
+/**
+ * Storage for ciphertext blobs, addressed by an opaque key. Only keys, sizes and
+ * checksums live in the database; the bytes live here.
+ */
+public interface BlobStore {
+
+    /**
+     * Opens a new blob for writing. The blob becomes visible under {@code key}
+     * only once the returned stream has been committed.
+     */
+    BlobOutputStream create(String key) throws IOException;
+
+    SeekableByteChannel open(String key) throws IOException;
+
+    long size(String key) throws IOException;
+
+    boolean exists(String key);
+
+    void delete(String key) throws IOException;
+
+    /**
+     * Opens (creating if needed) a staging area that accepts positional writes from
+     * several threads at once, e.g. the chunks of a resumable upload.
+     */
+    FileChannel openStaging(String stagingId) throws IOException;
+
+    // Publishes a finished staging area as a blob under key
+    void commitStaging(String stagingId, String key) throws IOException;
+
+    void deleteStaging(String stagingId) throws IOException;
+
+    default InputStream openStream(String key) throws IOException {
+        return Channels.newInputStream(open(key));
+    }
+
+    // For scans over the whole store (e.g. scrubbing), which should not displace cached data
+    default InputStream openUncached(String key) throws IOException {
+        return openStream(key);
+    }
+
+    static String newKey() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.EncryptedFileSharing.storage;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size blocks of ciphertext blobs, kept off-heap. The bytes live in a few large
+ * direct buffers carved into slots that are allocated once and reused, so cached data
+ * never reaches the garbage collector; only the small index entries are on the heap.
+ * Admission and eviction are Caffeine's W-TinyLFU, so a one-off read of a large file does
+ * not push out blocks that many users keep downloading. The index holds a few entries fewer
+ * than there are slots: a missed block is read into one of the spare slots and offered to
+ * the index, and the entry Caffeine then evicts (the candidate itself or an older block)
+ * gives its slot back. A full cache therefore keeps admitting blocks that become hot.
+ *
+ * A slot can be evicted and refilled while another thread copies out of it. Every fill
+ * bumps the slot's generation before and after writing, and a reader that sees the
+ * generation move treats the read as a miss (a seqlock), so it never returns mixed bytes.
+ *
+ * Hit/miss/eviction counts are the {@code cache.*} meters tagged {@code cache=blob.blocks}.
+ */
+public final class BlockCache {
+
+    record BlockKey(String blobKey, long index) {
+    }
+
+    private record Slot(Integer index, long generation, int length) {
+    }
+
+    @FunctionalInterface
+    interface Filler {
+        // Reads the block into target (positioned at 0, limit = block size) and returns its length
+        int fill(ByteBuffer target) throws IOException;
+    }
+
+    // Spare slots for blocks being offered to the index; more concurrent misses than this bypass the cache
+    private static final int MAX_SPARE_SLOTS = 64;
+
+    private final int blockSize;
+    private final int slotsPerSlab;
+    private final ByteBuffer[] slabs;
+    private final AtomicLongArray generations;
+    private final ArrayBlockingQueue<Integer> freeSlots;
+    private final Cache<BlockKey, Slot> index;
+
+    public BlockCache(long capacityBytes, int blockSize, MeterRegistry meterRegistry) {
+        long slotCount = capacityBytes / blockSize;
+        if (slotCount < 2 || slotCount > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Cache of " + capacityBytes + " bytes does not fit blocks of " + blockSize);
+        }
+        int slots = (int) slotCount;
+        this.blockSize = blockSize;
+        this.slotsPerSlab = Integer.MAX_VALUE / blockSize;
+        this.slabs = new ByteBuffer[(slots + slotsPerSlab - 1) / slotsPerSlab];
+        for (int i = 0; i < slabs.length; i++) {
+            slabs[i] = ByteBuffer.allocateDirect(Math.min(slotsPerSlab, slots - i * slotsPerSlab) * blockSize);
+        }
+        this.generations = new AtomicLongArray(slots);
+        this.freeSlots = new ArrayBlockingQueue<>(slots);
+        for (int i = 0; i < slots; i++) {
+            freeSlots.add(i);
+        }
+        int spare = Math.max(1, Math.min(MAX_SPARE_SLOTS, slots / 16));
+        // Removal runs on the thread that caused it, so a slot is free again as soon as its entry is gone
+        this.index = Caffeine.newBuilder()
+                .maximumSize(slots - spare)
+                .executor(Runnable::run)
+                .removalListener((BlockKey key, Slot slot, RemovalCause cause) -> freeSlots.offer(slot.index()))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, index, "blob.blocks");
+        Gauge.builder("blob.blocks.resident", freeSlots, free -> (double) (slots - free.size()) * blockSize)
+                .description("Off-heap bytes holding cached ciphertext")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    int blockSize() {
+        return blockSize;
+    }
+
+    // Copies the cached block from offset into dst, as much as fits; -1 when it is not cached
+    int read(BlockKey key, int offset, ByteBuffer dst) {
+        Slot slot = index.getIfPresent(key);
+        if (slot == null) {
+            return -1;
+        }
+        int slotIndex = slot.index();
+        if (generations.get(slotIndex) != slot.generation()) {
+            return -1;
+        }
+        int n = copy(slotIndex, slot.length(), offset, dst);
+        VarHandle.loadLoadFence();
+        if (generations.get(slotIndex) != slot.generation()) {
+            return -1;
+        }
+        dst.position(dst.position() + n);
+        return n;
+    }
+
+    /**
+     * Loads a block that was not cached into a free slot, copies from offset into dst and
+     * then offers the block to the cache (which may decline it). Returns -1, without
+     * reading anything, when every slot is taken by concurrent loads.
+     */
+    int load(BlockKey key, int offset, ByteBuffer dst, Filler filler) throws IOException {
+        Integer slotIndex = freeSlots.poll();
+        if (slotIndex == null) {
+            // Evictions another thread has not run yet would free a slot
+            index.cleanUp();
+            slotIndex = freeSlots.poll();
+        }
+        if (slotIndex == null) {
+            return -1;
+        }
+        int length;
+        try {
+            generations.incrementAndGet(slotIndex);
+            length = filler.fill(slab(slotIndex).slice(slotOffset(slotIndex), blockSize));
+        } catch (IOException | RuntimeException e) {
+            freeSlots.offer(slotIndex);
+            throw e;
+        }
+        long generation = generations.incrementAndGet(slotIndex);
+        int n = copy(slotIndex, length, offset, dst);
+        dst.position(dst.position() + n);
+        if (index.asMap().putIfAbsent(key, new Slot(slotIndex, generation, length)) != null) {
+            freeSlots.offer(slotIndex);
+        }
+        return n;
+    }
+
+    // Drops blocks 0 .. blockCount-1 of the blob
+    void invalidate(String blobKey, long blockCount) {
+        for (long i = 0; i < blockCount; i++) {
+            index.invalidate(new BlockKey(blobKey, i));
+        }
+    }
+
+    // For when the blob's old length is unknown: a scan over the whole index
+    void invalidateAll(String blobKey) {
+        index.asMap().keySet().removeIf(key -> key.blobKey().equals(blobKey));
+    }
+
+    private int copy(int slotIndex, int length, int offset, ByteBuffer dst) {
+        int n = Math.max(0, Math.min(dst.remaining(), length - offset));
+        dst.put(dst.position(), slab(slotIndex), slotOffset(slotIndex) + offset, n);
+        return n;
+    }
+
+    private ByteBuffer slab(int slotIndex) {
+        return slabs[slotIndex / slotsPerSlab];
+    }
+
+    private int slotOffset(int slotIndex) {
+        return (slotIndex % slotsPerSlab) * blockSize;
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.EncryptedFileSharing.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Serves blob reads through a {@link BlockCache}, so a file downloaded by a whole team is
+ * read from disk once rather than once per recipient. Deduplicated files share a blob and
+ * therefore share its cached blocks. Only ciphertext passes through here: decryption
+ * happens above the store, so plaintext is never cached.
+ *
+ * Blobs are written once under a fresh key; their blocks are dropped when the blob is
+ * deleted or, should a key ever be written twice, replaced.
+ */
+public class CachingBlobStore implements BlobStore {
+
+    private final BlobStore delegate;
+    private final BlockCache cache;
+
+    public CachingBlobStore(BlobStore delegate, BlockCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    public BlobOutputStream create(String key) throws IOException {
+        boolean replacing = delegate.exists(key);
+        BlobOutputStream target = delegate.create(key);
+        return new BlobOutputStream(target) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void commit() throws IOException {
+                target.commit();
+                if (replacing) {
+                    cache.invalidateAll(key);
+                }
+            }
+
+            @Override
+            public void abort() throws IOException {
+                target.abort();
+            }
+        };
+    }
+
+    @Override
+    public SeekableByteChannel open(String key) throws IOException {
+        return new CachedChannel(key, delegate.size(key));
+    }
+
+    @Override
+    public InputStream openUncached(String key) throws IOException {
+        return delegate.openStream(key);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return delegate.size(key);
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return delegate.exists(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        long size = delegate.exists(key) ? delegate.size(key) : 0;
+        delegate.delete(key);
+        cache.invalidate(key, blockCount(size));
+    }
+
+    @Override
+    public FileChannel openStaging(String stagingId) throws IOException {
+        return delegate.openStaging(stagingId);
+    }
+
+    @Override
+    public void commitStaging(String stagingId, String key) throws IOException {
+        boolean replacing = delegate.exists(key);
+        delegate.commitStaging(stagingId, key);
+        if (replacing) {
+            cache.invalidateAll(key);
+        }
+    }
+
+    @Override
+    public void deleteStaging(String stagingId) throws IOException {
+        delegate.deleteStaging(stagingId);
+    }
+
+    private long blockCount(long size) {
+        return (size + cache.blockSize() - 1) / cache.blockSize();
+    }
+
+    // Read-only view of one blob; the file itself is opened only when a block is not cached
+    private final class CachedChannel implements SeekableByteChannel {
+
+        private final String key;
+        private final long size;
+        private long position;
+        private SeekableByteChannel file;
+        private boolean open = true;
+
+        CachedChannel(String key, long size) {
+            this.key = key;
+            this.size = size;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            ensureOpen();
+            if (position >= size) {
+                return -1;
+            }
+            if (!dst.hasRemaining()) {
+                return 0;
+            }
+            int blockSize = cache.blockSize();
+            long block = position / blockSize;
+            int offset = (int) (position % blockSize);
+            BlockCache.BlockKey blockKey = new BlockCache.BlockKey(key, block);
+
+            int n = cache.read(blockKey, offset, dst);
+            if (n < 0) {
+                n = cache.load(blockKey, offset, dst, target -> fill(block * blockSize, target));
+            }
+            if (n < 0) {
+                // No slot free at the moment: read past the cache
+                file().position(position);
+                n = file().read(dst);
+            }
+            if (n > 0) {
+                position += n;
+            }
+            return n;
+        }
+
+        private int fill(long blockStart, ByteBuffer target) throws IOException {
+            SeekableByteChannel channel = file().position(blockStart);
+            while (target.hasRemaining()) {
+                if (channel.read(target) < 0) {
+                    break;
+                }
+            }
+            return target.position();
+        }
+
+        private SeekableByteChannel file() throws IOException {
+            if (file == null) {
+                file = delegate.open(key);
+            }
+            return file;
+        }
+
+        @Override
+        public long position() throws IOException {
+            ensureOpen();
+            return position;
+        }
+
+        @Override
+        public SeekableByteChannel position(long newPosition) throws IOException {
+            ensureOpen();
+            if (newPosition < 0) {
+                throw new IllegalArgumentException("Negative position: " + newPosition);
+            }
+            position = newPosition;
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            ensureOpen();
+            return size;
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public SeekableByteChannel truncate(long size) {
+            throw new NonWritableChannelException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return open;
+        }
+
+        @Override
+        public void close() throws IOException {
+            open = false;
+            if (file != null) {
+                file.close();
+            }
+        }
+
+        private void ensureOpen() throws ClosedChannelException {
+            if (!open) {
+                throw new ClosedChannelException();
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.EncryptedFileSharing.storage;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+// Counts and SHA-256 hashes the bytes that pass through on their way to a blob
+public class ChecksummingOutputStream extends FilterOutputStream {
+
+    private final MessageDigest digest;
+    private long size;
+    private String checksum;
+
+    public ChecksummingOutputStream(OutputStream out) {
+        super(out);
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        digest.update((byte) b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        digest.update(b, off, len);
+        size += len;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    // Only meaningful once writing is complete
+    public String checksum() {
+        if (checksum == null) {
+            checksum = HexFormat.of().formatHex(digest.digest());
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.EncryptedFileSharing.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps blobs on the local filesystem under {@code root/ab/cd/abcd...}, so no single
+ * directory grows past a few thousand entries. Writes go to {@code root/tmp} first and
+ * are moved into place atomically on commit.
+ */
+public class LocalFileSystemBlobStore implements BlobStore {
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[A-Za-z0-9_-]{4,128}");
+    private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+    private final Path root;
+    private final Path staging;
+
+    public LocalFileSystemBlobStore(String root) throws IOException {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.staging = this.root.resolve("tmp");
+        Files.createDirectories(staging);
+    }
+
+    @Override
+    public BlobOutputStream create(String key) throws IOException {
+        Path target = resolve(key);
+        Path part = Files.createTempFile(staging, key + "-", ".part");
+        FileChannel channel = FileChannel.open(part, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new PartFileOutputStream(channel, part, target);
+    }
+
+    @Override
+    public SeekableByteChannel open(String key) throws IOException {
+        return FileChannel.open(resolve(key), StandardOpenOption.READ);
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        return Files.size(resolve(key));
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return Files.exists(resolve(key));
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    @Override
+    public FileChannel openStaging(String stagingId) throws IOException {
+        return FileChannel.open(staged(stagingId),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public void commitStaging(String stagingId, String key) throws IOException {
+        Path source = staged(stagingId);
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.WRITE)) {
+            channel.force(false);
+        }
+        moveIntoPlace(source, resolve(key));
+    }
+
+    @Override
+    public void deleteStaging(String stagingId) throws IOException {
+        Files.deleteIfExists(staged(stagingId));
+    }
+
+    private Path staged(String stagingId) {
+        if (stagingId == null || !KEY_PATTERN.matcher(stagingId).matches()) {
+            throw new IllegalArgumentException("Invalid staging id: " + stagingId);
+        }
+        return staging.resolve(stagingId + ".staged");
+    }
+
+    private static void moveIntoPlace(Path source, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private Path resolve(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            throw new IllegalArgumentException("Invalid blob key: " + key);
+        }
+        return root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    private static final class PartFileOutputStream extends BlobOutputStream {
+
+        private final FileChannel channel;
+        private final Path part;
+        private final Path target;
+        private boolean sealed;
+        private boolean committed;
+
+        PartFileOutputStream(FileChannel channel, Path part, Path target) {
+            super(new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_SIZE));
+            this.channel = channel;
+            this.part = part;
+            this.target = target;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (sealed) {
+                return;
+            }
+            sealed = true;
+            try {
+                out.flush();
+                channel.force(false);
+            } finally {
+                out.close();
+            }
+        }
+
+        @Override
+        public void commit() throws IOException {
+            close();
+            moveIntoPlace(part, target);
+            committed = true;
+        }
+
+        @Override
+        public void abort() throws IOException {
+            if (committed) {
+                return;
+            }
+            // Buffered bytes are not worth flushing; closing the channel is enough
+            sealed = true;
+            try {
+                channel.close();
+            } finally {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+package com.example.EncryptedFileSharing.util;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.IvParameterSpec;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+
+/**
+ * AEAD ciphers the segmented container can be written with; the id is stored in the
+ * container header so readers pick the right one. AES-GCM runs on AES-NI/CLMUL intrinsics
+ * where the CPU has them; ChaCha20-Poly1305 is the faster choice on hardware without.
+ *
+ * Cipher.getInstance is comparatively expensive, so callers take one instance per stream
+ * (see {@link SegmentCipher}) and re-initialise it per segment. It is not kept per thread:
+ * on virtual threads, which are started per task, a thread-local cache never gets a hit.
+ */
+public enum AeadAlgorithm {
+
+    AES_GCM((byte) 1, "AES/GCM/NoPadding", "AES"),
+    CHACHA20_POLY1305((byte) 2, "ChaCha20-Poly1305", "ChaCha20");
+
+    private final byte id;
+    private final String transformation;
+    private final String keyAlgorithm;
+
+    AeadAlgorithm(byte id, String transformation, String keyAlgorithm) {
+        this.id = id;
+        this.transformation = transformation;
+        this.keyAlgorithm = keyAlgorithm;
+    }
+
+    public byte id() {
+        return id;
+    }
+
+    public String keyAlgorithm() {
+        return keyAlgorithm;
+    }
+
+    public static AeadAlgorithm fromId(byte id) {
+        for (AeadAlgorithm algorithm : values()) {
+            if (algorithm.id == id) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported algorithm id: " + id);
+    }
+
+    public AlgorithmParameterSpec parameters(byte[] nonce) {
+        return this == AES_GCM
+                ? new GCMParameterSpec(SegmentedFormat.TAG_LENGTH * 8, nonce)
+                : new IvParameterSpec(nonce);
+    }
+
+    // Not thread-safe; every use must be a complete init ... doFinal sequence
+    public Cipher newCipher() {
+        try {
+            return Cipher.getInstance(transformation);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cipher unavailable: " + transformation, e);
+        }
+    }
+}
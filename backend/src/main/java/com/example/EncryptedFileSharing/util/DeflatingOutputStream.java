@@ -0,0 +1,72 @@
+package com.example.EncryptedFileSharing.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Deflates into the wrapped stream and keeps count of the bytes in and out and of the CPU
+ * time spent inside the deflater itself, not counting whatever the downstream write costs.
+ */
+public class DeflatingOutputStream extends DeflaterOutputStream {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private long bytesIn;
+    private long bytesOut;
+    private long cpuNanos;
+    private boolean closed;
+
+    public DeflatingOutputStream(OutputStream out, int level) {
+        super(out, new Deflater(level), SegmentedFormat.SEGMENT_SIZE);
+    }
+
+    public long bytesIn() {
+        return bytesIn;
+    }
+
+    public long bytesOut() {
+        return bytesOut;
+    }
+
+    public long cpuNanos() {
+        return cpuNanos;
+    }
+
+    @Override
+    protected void deflate() throws IOException {
+        long start = cpuTime();
+        int n = def.deflate(buf, 0, buf.length);
+        cpuNanos += cpuTime() - start;
+        if (n > 0) {
+            out.write(buf, 0, n);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            finish();
+            bytesIn = def.getBytesRead();
+            bytesOut = def.getBytesWritten();
+        } finally {
+            // The Deflater was supplied by us, so DeflaterOutputStream will not release it
+            def.end();
+            out.close();
+        }
+    }
+
+    // Virtual threads have no CPU clock (-1); deflate() never blocks, so wall time is close enough there
+    private static long cpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() && !Thread.currentThread().isVirtual()
+                ? THREADS.getCurrentThreadCpuTime()
+                : System.nanoTime();
+    }
+}
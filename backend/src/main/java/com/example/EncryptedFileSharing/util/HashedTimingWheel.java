@@ -0,0 +1,77 @@
+package com.example.EncryptedFileSharing.util;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coarse timer for large numbers of short-lived deadlines. Scheduling is an O(1) append to
+ * the bucket the deadline falls in, and one ticker thread visits a single bucket per tick,
+ * so nothing is sorted and idle entries cost no CPU. Deadlines further out than one turn of
+ * the wheel simply stay in their bucket until the matching turn.
+ *
+ * Tasks run on the ticker thread, at or up to one tick after their deadline, and must be
+ * short. A deadline that is already due when scheduled can be delayed by up to one turn of
+ * the wheel, so use this for cleanup, not for anything that must happen on time.
+ */
+public final class HashedTimingWheel implements AutoCloseable {
+
+    private record Timeout(long deadlineTick, Runnable task) {
+    }
+
+    private final long tickNanos;
+    private final Queue<Timeout>[] buckets;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final ScheduledExecutorService ticker;
+    private volatile long tick;
+
+    @SuppressWarnings("unchecked")
+    public HashedTimingWheel(String name, Duration tickDuration, int bucketCount) {
+        if (Integer.bitCount(bucketCount) != 1) {
+            throw new IllegalArgumentException("bucketCount must be a power of two");
+        }
+        this.tickNanos = tickDuration.toNanos();
+        this.buckets = new Queue[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.mask = bucketCount - 1;
+        this.ticker = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name(name).daemon().factory());
+        ticker.scheduleAtFixedRate(this::advance, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void schedule(Duration delay, Runnable task) {
+        long deadline = (System.nanoTime() - startNanos + delay.toNanos() + tickNanos - 1) / tickNanos;
+        long due = Math.max(deadline, tick);
+        buckets[(int) (due & mask)].add(new Timeout(due, task));
+    }
+
+    private void advance() {
+        long now = (System.nanoTime() - startNanos) / tickNanos;
+        while (tick <= now) {
+            long current = tick;
+            for (Iterator<Timeout> it = buckets[(int) (current & mask)].iterator(); it.hasNext(); ) {
+                Timeout timeout = it.next();
+                if (timeout.deadlineTick() <= current) {
+                    it.remove();
+                    try {
+                        timeout.task().run();
+                    } catch (RuntimeException ignored) {
+                        // One failing task must not stop the wheel
+                    }
+                }
+            }
+            tick = current + 1;
+        }
+    }
+
+    @Override
+    public void close() {
+        ticker.shutdownNow();
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.EncryptedFileSharing.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Inflates with a segment-sized input buffer and releases the native inflater on close
+public class InflatingInputStream extends InflaterInputStream {
+
+    private boolean closed;
+
+    public InflatingInputStream(InputStream in) {
+        super(in, new Inflater(), SegmentedFormat.SEGMENT_SIZE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            super.close();
+        } finally {
+            inf.end();
+        }
+    }
+}
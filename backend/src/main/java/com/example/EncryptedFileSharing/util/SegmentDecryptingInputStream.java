@@ -0,0 +1,98 @@
+package com.example.EncryptedFileSharing.util;
+
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+
+/**
+ * Reads the segments of a {@link SegmentedFormat} container (positioned just past its header)
+ * and yields the plaintext one authenticated segment at a time. Truncation, reordering and
+ * tampering all surface as an IOException.
+ */
+public class SegmentDecryptingInputStream extends FilterInputStream {
+
+    private final SegmentCipher cipher;
+    private final byte[] sealed;
+    private final byte[] plain;
+    private int plainPos;
+    private int plainLen;
+    private long segmentIndex;
+    private boolean finished;
+
+    public SegmentDecryptingInputStream(InputStream in, SegmentCipher cipher) {
+        super(new PushbackInputStream(in, 1));
+        SegmentedFormat.Header header = cipher.header();
+        this.cipher = cipher;
+        this.sealed = new byte[header.segmentSize() + SegmentedFormat.TAG_LENGTH];
+        this.plain = new byte[header.segmentSize()];
+    }
+
+    public SegmentedFormat.Header header() {
+        return cipher.header();
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        int n = read(one, 0, 1);
+        return n == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (plainPos == plainLen) {
+            if (finished) {
+                return -1;
+            }
+            openNextSegment();
+        }
+        int n = Math.min(len, plainLen - plainPos);
+        System.arraycopy(plain, plainPos, b, off, n);
+        plainPos += n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && read() != -1) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return plainLen - plainPos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void openNextSegment() throws IOException {
+        int n = in.readNBytes(sealed, 0, sealed.length);
+        if (n < SegmentedFormat.TAG_LENGTH) {
+            throw new EOFException("Truncated ciphertext segment " + segmentIndex);
+        }
+        boolean last = n < sealed.length;
+        if (!last) {
+            int next = in.read();
+            if (next == -1) {
+                last = true;
+            } else {
+                ((PushbackInputStream) in).unread(next);
+            }
+        }
+        plainLen = cipher.open(segmentIndex, last, sealed, n, plain);
+        plainPos = 0;
+        segmentIndex++;
+        finished = last;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.EncryptedFileSharing.util;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encrypts everything written to it into the {@link SegmentedFormat} container.
+ * Holds one plaintext and one ciphertext segment in memory regardless of the total size.
+ */
+public class SegmentEncryptingOutputStream extends FilterOutputStream {
+
+    private final SegmentCipher cipher;
+    private final byte[] plain;
+    private final byte[] sealed;
+    private int buffered;
+    private long segmentIndex;
+    private boolean closed;
+
+    public SegmentEncryptingOutputStream(OutputStream out, SegmentCipher cipher) throws IOException {
+        super(out);
+        SegmentedFormat.Header header = cipher.header();
+        this.cipher = cipher;
+        this.plain = new byte[header.segmentSize()];
+        this.sealed = new byte[header.segmentSize() + SegmentedFormat.TAG_LENGTH];
+        out.write(header.toBytes());
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (len > 0) {
+            // Only seal a full segment once more data arrives, so the final one can carry the last flag.
+            if (buffered == plain.length) {
+                sealSegment(false);
+            }
+            int n = Math.min(len, plain.length - buffered);
+            System.arraycopy(b, off, plain, buffered, n);
+            buffered += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            sealSegment(true);
+        } finally {
+            out.close();
+        }
+    }
+
+    private void sealSegment(boolean last) throws IOException {
+        int n = cipher.seal(segmentIndex, last, plain, buffered, sealed);
+        out.write(sealed, 0, n);
+        segmentIndex++;
+        buffered = 0;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.EncryptedFileSharing.util;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+
+/**
+ * Random access over a {@link SegmentedFormat} container: serving plaintext bytes
+ * {@code start..end} seeks to and decrypts only the segments that cover that range.
+ */
+public class SegmentRangeDecryptor {
+
+    private final SeekableByteChannel channel;
+    private final SegmentCipher cipher;
+    private final SegmentedFormat.Header header;
+    private final int segmentSize;
+    private final long segmentCount;
+    private final long plaintextLength;
+    private final long containerLength;
+
+    public SegmentRangeDecryptor(SeekableByteChannel channel, SegmentCipher cipher) throws IOException {
+        this.channel = channel;
+        this.cipher = cipher;
+        this.header = cipher.header();
+        this.segmentSize = header.segmentSize();
+        this.containerLength = channel.size();
+        this.segmentCount = header.segmentCount(containerLength);
+        this.plaintextLength = header.plaintextLength(containerLength);
+    }
+
+    /**
+     * Reads the container header, or returns {@code null} if the channel does not hold a
+     * segmented container (e.g. a legacy AES/CBC blob, which can only be read sequentially).
+     */
+    public static SegmentedFormat.Header readHeader(SeekableByteChannel channel) throws IOException {
+        if (channel.size() < SegmentedFormat.HEADER_LENGTH + SegmentedFormat.TAG_LENGTH) {
+            return null;
+        }
+        ByteBuffer head = ByteBuffer.allocate(SegmentedFormat.HEADER_LENGTH);
+        readFully(channel.position(0), head);
+        return SegmentedFormat.isSegmented(head.array())
+                ? SegmentedFormat.Header.read(Channels.newInputStream(channel.position(0)))
+                : null;
+    }
+
+    public long plaintextLength() {
+        return plaintextLength;
+    }
+
+    // Writes plaintext bytes start..end (inclusive) to out
+    public void copyRange(long start, long end, OutputStream out) throws IOException {
+        if (start < 0 || end < start || end >= plaintextLength) {
+            throw new IllegalArgumentException("Range " + start + "-" + end + " outside 0-" + (plaintextLength - 1));
+        }
+        byte[] sealed = new byte[segmentSize + SegmentedFormat.TAG_LENGTH];
+        byte[] plain = new byte[segmentSize];
+        ByteBuffer sealedBuffer = ByteBuffer.wrap(sealed);
+
+        for (long index = start / segmentSize; index <= end / segmentSize; index++) {
+            long offset = header.segmentOffset(index);
+            int sealedLen = (int) Math.min(sealed.length, containerLength - offset);
+            sealedBuffer.clear().limit(sealedLen);
+            readFully(channel.position(offset), sealedBuffer);
+
+            int plainLen = cipher.open(index, index == segmentCount - 1, sealed, sealedLen, plain);
+            long segmentStart = index * segmentSize;
+            int from = (int) Math.max(0, start - segmentStart);
+            int to = (int) Math.min(plainLen, end - segmentStart + 1);
+            out.write(plain, from, to - from);
+        }
+    }
+
+    private static void readFully(SeekableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Unexpected end of ciphertext");
+            }
+        }
+    }
+}
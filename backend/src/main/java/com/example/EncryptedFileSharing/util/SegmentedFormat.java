@@ -0,0 +1,238 @@
+package com.example.EncryptedFileSharing.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Layout of the segmented ciphertext container written by uploads.
+ *
+ * <pre>
+ * header  = magic(4) | version(1)=1 | algorithm(1) | flags(1) | segmentSize(4) | noncePrefix(7)
+ *           (algorithm is an {@link AeadAlgorithm} id; flags bit 0 = plaintext is a zlib stream)
+ * segment = AEAD(plaintext[i]), nonce = noncePrefix | i (4 bytes) | lastFlag(1), aad = header
+ * </pre>
+ *
+ * Every segment except the last carries exactly {@code segmentSize} bytes of plaintext,
+ * so the stream can be produced and consumed with one segment buffer at a time. The header
+ * is authenticated with every segment, so the compression flag cannot be flipped unnoticed.
+ *
+ * Resumable uploads seal each chunk of {@code chunkSegments} segments separately, possibly
+ * more than once, so every chunk gets a nonce prefix of its own (version 2):
+ *
+ * <pre>
+ * header  = magic(4) | version(1)=2 | algorithm(1) | flags(1) | segmentSize(4)
+ *           | chunkSegments(4) | chunkCount(4) | noncePrefix(7) x chunkCount
+ * segment = AEAD(plaintext[i]), nonce = noncePrefix[i / chunkSegments] | i | lastFlag, aad = header up to the prefixes
+ * </pre>
+ *
+ * The prefixes are not known until every chunk is in, so they are left out of the AAD; a
+ * wrong prefix still fails authentication, as it yields the wrong nonce.
+ */
+public final class SegmentedFormat {
+
+    public static final byte[] MAGIC = {'E', 'F', 'S', 'C'};
+    public static final byte VERSION = 1;
+    public static final byte CHUNKED_VERSION = 2;
+    public static final byte FLAG_DEFLATE = 0x01;
+
+    public static final int SEGMENT_SIZE = 64 * 1024;
+    public static final int TAG_LENGTH = 16;
+    public static final int NONCE_PREFIX_LENGTH = 7;
+    public static final int NONCE_LENGTH = NONCE_PREFIX_LENGTH + 4 + 1;
+    public static final int HEADER_LENGTH = MAGIC.length + 3 + 4 + NONCE_PREFIX_LENGTH;
+    // Version 2 header without its nonce prefixes
+    public static final int CHUNKED_HEADER_LENGTH = MAGIC.length + 3 + 4 + 4 + 4;
+
+    // Far above any upload limit; only guards against allocating for a corrupt header
+    private static final int MAX_CHUNKS = 1 << 24;
+
+    private SegmentedFormat() {
+    }
+
+    public static boolean isSegmented(byte[] data) {
+        return data != null
+                && data.length >= HEADER_LENGTH
+                && Arrays.equals(data, 0, MAGIC.length, MAGIC, 0, MAGIC.length);
+    }
+
+    public static boolean isChunked(byte[] data) {
+        return isSegmented(data) && data[MAGIC.length] == CHUNKED_VERSION;
+    }
+
+    // Length helpers for version 1 containers; see Header for either version
+    public static long segmentCount(long containerLength, int segmentSize) {
+        return segmentCount(containerLength, HEADER_LENGTH, segmentSize);
+    }
+
+    public static long plaintextLength(long containerLength, int segmentSize) {
+        return plaintextLength(containerLength, HEADER_LENGTH, segmentSize);
+    }
+
+    public static long segmentOffset(long segmentIndex, int segmentSize) {
+        return segmentOffset(segmentIndex, HEADER_LENGTH, segmentSize);
+    }
+
+    public static long containerLength(long plaintextLength, int segmentSize) {
+        return containerLength(plaintextLength, HEADER_LENGTH, segmentSize);
+    }
+
+    private static long segmentCount(long containerLength, int headerLength, int segmentSize) {
+        long body = containerLength - headerLength;
+        if (body < TAG_LENGTH) {
+            throw new IllegalArgumentException("Container too short: " + containerLength);
+        }
+        long sealedSegment = segmentSize + TAG_LENGTH;
+        return Math.max(1, (body + sealedSegment - 1) / sealedSegment);
+    }
+
+    private static long plaintextLength(long containerLength, int headerLength, int segmentSize) {
+        long segments = segmentCount(containerLength, headerLength, segmentSize);
+        return containerLength - headerLength - segments * TAG_LENGTH;
+    }
+
+    private static long segmentOffset(long segmentIndex, int headerLength, int segmentSize) {
+        return headerLength + segmentIndex * (segmentSize + TAG_LENGTH);
+    }
+
+    private static long containerLength(long plaintextLength, int headerLength, int segmentSize) {
+        long segments = Math.max(1, (plaintextLength + segmentSize - 1) / segmentSize);
+        return headerLength + plaintextLength + segments * TAG_LENGTH;
+    }
+
+    public static byte[] nonce(byte[] noncePrefix, long segmentIndex, boolean last) {
+        return nonce(noncePrefix, 0, segmentIndex, last);
+    }
+
+    private static byte[] nonce(byte[] noncePrefixes, int prefixOffset, long segmentIndex, boolean last) {
+        if (segmentIndex < 0 || segmentIndex > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("Segment index out of range: " + segmentIndex);
+        }
+        return ByteBuffer.allocate(NONCE_LENGTH)
+                .put(noncePrefixes, prefixOffset, NONCE_PREFIX_LENGTH)
+                .putInt((int) segmentIndex)
+                .put((byte) (last ? 1 : 0))
+                .array();
+    }
+
+    /**
+     * A parsed header. Version 1 has {@code chunkSegments == 0} and a single nonce prefix;
+     * version 2 has one prefix per chunk, back to back in {@code noncePrefixes}.
+     */
+    public record Header(byte version, byte algorithm, byte flags, int segmentSize, int chunkSegments, byte[] noncePrefixes) {
+
+        public static Header create(AeadAlgorithm algorithm, byte[] noncePrefix) {
+            return create(algorithm, noncePrefix, (byte) 0);
+        }
+
+        public static Header create(AeadAlgorithm algorithm, byte[] noncePrefix, byte flags) {
+            return new Header(VERSION, algorithm.id(), flags, SEGMENT_SIZE, 0, noncePrefix);
+        }
+
+        // noncePrefixes holds chunkCount prefixes; only the ones of chunks being sealed need to be final
+        public static Header chunked(AeadAlgorithm algorithm, int chunkSegments, byte[] noncePrefixes) {
+            if (chunkSegments <= 0 || noncePrefixes.length == 0 || noncePrefixes.length % NONCE_PREFIX_LENGTH != 0) {
+                throw new IllegalArgumentException("Invalid chunk layout");
+            }
+            return new Header(CHUNKED_VERSION, algorithm.id(), (byte) 0, SEGMENT_SIZE, chunkSegments, noncePrefixes);
+        }
+
+        // Segments hold a deflated stream, so offsets no longer map onto the original bytes
+        public boolean deflated() {
+            return (flags & FLAG_DEFLATE) != 0;
+        }
+
+        public boolean chunked() {
+            return version == CHUNKED_VERSION;
+        }
+
+        public int chunkCount() {
+            return chunked() ? noncePrefixes.length / NONCE_PREFIX_LENGTH : 1;
+        }
+
+        public int length() {
+            return chunked() ? CHUNKED_HEADER_LENGTH + noncePrefixes.length : HEADER_LENGTH;
+        }
+
+        public long segmentCount(long containerLength) {
+            return SegmentedFormat.segmentCount(containerLength, length(), segmentSize);
+        }
+
+        public long plaintextLength(long containerLength) {
+            return SegmentedFormat.plaintextLength(containerLength, length(), segmentSize);
+        }
+
+        public long segmentOffset(long segmentIndex) {
+            return SegmentedFormat.segmentOffset(segmentIndex, length(), segmentSize);
+        }
+
+        public long containerLength(long plaintextLength) {
+            return SegmentedFormat.containerLength(plaintextLength, length(), segmentSize);
+        }
+
+        public byte[] nonce(long segmentIndex, boolean last) {
+            long chunk = chunked() ? segmentIndex / chunkSegments : 0;
+            if (chunk >= chunkCount()) {
+                throw new IllegalArgumentException("Segment " + segmentIndex + " is past the last chunk");
+            }
+            return SegmentedFormat.nonce(noncePrefixes, (int) chunk * NONCE_PREFIX_LENGTH, segmentIndex, last);
+        }
+
+        // Authenticated with every segment: the whole header, less a chunked header's nonce prefixes
+        public byte[] aad() {
+            byte[] bytes = toBytes();
+            return chunked() ? Arrays.copyOf(bytes, CHUNKED_HEADER_LENGTH) : bytes;
+        }
+
+        public byte[] toBytes() {
+            ByteBuffer buffer = ByteBuffer.allocate(length())
+                    .put(MAGIC)
+                    .put(version)
+                    .put(algorithm)
+                    .put(flags)
+                    .putInt(segmentSize);
+            if (chunked()) {
+                buffer.putInt(chunkSegments).putInt(chunkCount());
+            }
+            return buffer.put(noncePrefixes).array();
+        }
+
+        public static Header parse(byte[] bytes) throws IOException {
+            return read(new ByteArrayInputStream(bytes));
+        }
+
+        // Reads exactly the header, leaving the stream on the first segment
+        public static Header read(InputStream in) throws IOException {
+            DataInputStream data = new DataInputStream(in);
+            byte[] magic = new byte[MAGIC.length];
+            if (data.readNBytes(magic, 0, magic.length) < magic.length || !Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a segmented ciphertext container");
+            }
+            byte version = data.readByte();
+            if (version != VERSION && version != CHUNKED_VERSION) {
+                throw new IOException("Unsupported container version: " + version);
+            }
+            byte algorithm = data.readByte();
+            byte flags = data.readByte();
+            int segmentSize = data.readInt();
+            if (segmentSize <= 0) {
+                throw new IOException("Invalid segment size: " + segmentSize);
+            }
+            int chunkSegments = 0;
+            int prefixes = 1;
+            if (version == CHUNKED_VERSION) {
+                chunkSegments = data.readInt();
+                prefixes = data.readInt();
+                if (chunkSegments <= 0 || prefixes <= 0 || prefixes > MAX_CHUNKS) {
+                    throw new IOException("Invalid chunk layout: " + prefixes + " chunks of " + chunkSegments + " segments");
+                }
+            }
+            byte[] noncePrefixes = new byte[prefixes * NONCE_PREFIX_LENGTH];
+            data.readFully(noncePrefixes);
+            return new Header(version, algorithm, flags, segmentSize, chunkSegments, noncePrefixes);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.EncryptedFileSharing.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class AsyncDownloadConfigTests {
+
+	@Autowired
+	private RequestMappingHandlerAdapter handlerAdapter;
+
+	@Test
+	void streamedBodiesRunOnTheDownloadPool() throws Exception {
+		AsyncTaskExecutor executor = (AsyncTaskExecutor) ReflectionTestUtils.getField(handlerAdapter, "taskExecutor");
+		assertNotNull(executor);
+
+		// Well past the 8 threads of Boot's shared pool, all running at once
+		int downloads = 50;
+		CountDownLatch started = new CountDownLatch(downloads);
+		CountDownLatch release = new CountDownLatch(1);
+		List<Future<String>> threads = new ArrayList<>();
+		for (int i = 0; i < downloads; i++) {
+			threads.add(executor.submit(() -> {
+				started.countDown();
+				release.await();
+				return Thread.currentThread().getName();
+			}));
+		}
+		try {
+			assertTrue(started.await(10, TimeUnit.SECONDS), "only " + (downloads - started.getCount()) + " ran at once");
+		} finally {
+			release.countDown();
+		}
+		for (Future<String> thread : threads) {
+			assertTrue(thread.get().startsWith("download-"), thread.get());
+		}
+	}
+}
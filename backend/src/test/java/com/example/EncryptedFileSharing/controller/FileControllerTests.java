@@ -0,0 +1,358 @@
+package com.example.EncryptedFileSharing.controller;
+
+import com.example.EncryptedFileSharing.repository.StoredFileRepository;
+import com.example.EncryptedFileSharing.repository.UserRepository;
+import com.example.EncryptedFileSharing.security.JwtUtil;
+import com.example.EncryptedFileSharing.service.ContentBlobService;
+import com.example.EncryptedFileSharing.util.UserDetails;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Through the real servlet stack: streamed bodies, Range headers and multipart parsing all come from the container
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class FileControllerTests {
+
+	private static final int SEGMENT = 64 * 1024;
+	private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+	private static final Pattern UPLOAD_ID = Pattern.compile("\"uploadId\"\\s*:\\s*\"([^\"]+)\"");
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Autowired
+	private UserRepository users;
+
+	@Autowired
+	private StoredFileRepository files;
+
+	@Autowired
+	private ContentBlobService contentBlobService;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private final HttpClient http = HttpClient.newHttpClient();
+
+	@Test
+	void rangesAreServedAsPartialContent() throws Exception {
+		String token = token("range-user");
+		byte[] data = bytes(3 * SEGMENT + 17, 1);
+		long id = upload(token, "range.bin", data);
+
+		HttpResponse<byte[]> first = download(token, id, "Range", "bytes=0-99");
+		assertEquals(206, first.statusCode());
+		assertEquals("bytes 0-99/" + data.length, header(first, "Content-Range"));
+		assertArrayEquals(Arrays.copyOfRange(data, 0, 100), first.body());
+
+		HttpResponse<byte[]> straddling = download(token, id, "Range", "bytes=" + (SEGMENT - 3) + "-" + (SEGMENT + 2));
+		assertEquals(206, straddling.statusCode());
+		assertArrayEquals(Arrays.copyOfRange(data, SEGMENT - 3, SEGMENT + 3), straddling.body());
+
+		HttpResponse<byte[]> suffix = download(token, id, "Range", "bytes=-10");
+		assertEquals(206, suffix.statusCode());
+		assertEquals("bytes " + (data.length - 10) + "-" + (data.length - 1) + "/" + data.length, header(suffix, "Content-Range"));
+		assertArrayEquals(Arrays.copyOfRange(data, data.length - 10, data.length), suffix.body());
+
+		HttpResponse<byte[]> open = download(token, id, "Range", "bytes=" + (2 * SEGMENT) + "-");
+		assertEquals(206, open.statusCode());
+		assertArrayEquals(Arrays.copyOfRange(data, 2 * SEGMENT, data.length), open.body());
+
+		// Past the end: clamped
+		HttpResponse<byte[]> clamped = download(token, id, "Range", "bytes=" + (data.length - 5) + "-" + (data.length + 1000));
+		assertEquals(206, clamped.statusCode());
+		assertEquals(5, clamped.body().length);
+	}
+
+	@Test
+	void unsatisfiableRangeIsRejectedWithTheLength() throws Exception {
+		String token = token("unsatisfiable-user");
+		byte[] data = bytes(1000, 2);
+		long id = upload(token, "short.bin", data);
+
+		HttpResponse<byte[]> response = download(token, id, "Range", "bytes=1000-2000");
+		assertEquals(416, response.statusCode());
+		assertEquals("bytes */1000", header(response, "Content-Range"));
+	}
+
+	@Test
+	void wholeFileIsSentWhenTheRangeCannotBeHonoured() throws Exception {
+		String token = token("whole-user");
+		byte[] data = bytes(2 * SEGMENT, 3);
+		long id = upload(token, "whole.bin", data);
+
+		HttpResponse<byte[]> full = download(token, id);
+		assertEquals(200, full.statusCode());
+		assertEquals("bytes", header(full, "Accept-Ranges"));
+		assertArrayEquals(data, full.body());
+		String eTag = header(full, "ETag");
+		assertNotNull(eTag);
+
+		// Multi-range, malformed, and an If-Range that no longer matches
+		assertArrayEquals(data, ok(download(token, id, "Range", "bytes=0-1,5-6")));
+		assertArrayEquals(data, ok(download(token, id, "Range", "bytes=abc")));
+		assertArrayEquals(data, ok(download(token, id, "Range", "bytes=0-9", "If-Range", "\"stale\"")));
+
+		HttpResponse<byte[]> current = download(token, id, "Range", "bytes=0-9", "If-Range", eTag);
+		assertEquals(206, current.statusCode());
+		assertArrayEquals(Arrays.copyOfRange(data, 0, 10), current.body());
+	}
+
+	@Test
+	void currentCopyIsRevalidatedWithoutABody() throws Exception {
+		String token = token("etag-user");
+		byte[] data = bytes(SEGMENT + 10, 7);
+		long id = upload(token, "etag.bin", data);
+		String eTag = header(download(token, id), "ETag");
+		assertNotNull(eTag);
+
+		HttpResponse<byte[]> current = download(token, id, "If-None-Match", eTag);
+		assertEquals(304, current.statusCode());
+		assertEquals(0, current.body().length);
+		assertEquals(eTag, header(current, "ETag"));
+		// Compared weakly, and any one of a list is enough
+		assertEquals(304, download(token, id, "If-None-Match", "W/" + eTag).statusCode());
+		assertEquals(304, download(token, id, "If-None-Match", "\"other\", " + eTag).statusCode());
+
+		assertArrayEquals(data, ok(download(token, id, "If-None-Match", "\"other\"")));
+	}
+
+	@Test
+	void chunksAreValidatedAndCommittedInIndexOrder() throws Exception {
+		String token = token("chunk-user");
+		byte[] data = bytes(2 * SEGMENT + 100, 4);
+
+		assertEquals(400, send(token, "POST", "/files/uploads?fileName=x.bin&totalSize=" + data.length + "&chunkSize=1000", null).statusCode());
+		assertEquals(400, send(token, "POST", "/files/uploads?fileName=x.bin&totalSize=0", null).statusCode());
+
+		HttpResponse<String> created = send(token, "POST",
+				"/files/uploads?fileName=chunked.bin&totalSize=" + data.length + "&chunkSize=" + SEGMENT, null);
+		assertEquals(200, created.statusCode(), created.body());
+		String uploadId = match(UPLOAD_ID, created.body());
+		String chunks = "/files/uploads/" + uploadId + "/chunks/";
+
+		assertEquals(400, send(token, "PUT", chunks + 3, new byte[100]).statusCode());
+		assertEquals(400, send(token, "PUT", chunks + 0, new byte[SEGMENT - 1]).statusCode());
+		assertEquals(400, send(token, "PUT", chunks + 2, new byte[101]).statusCode());
+		assertEquals(409, send(token, "POST", "/files/uploads/" + uploadId + "/commit", null).statusCode());
+		// Someone else's session does not exist for them
+		assertEquals(404, send(token("chunk-intruder"), "PUT", chunks + 0, chunk(data, 0)).statusCode());
+
+		for (int index = 2; index >= 0; index--) {
+			HttpResponse<String> put = send(token, "PUT", chunks + index, chunk(data, index));
+			assertEquals(200, put.statusCode(), put.body());
+		}
+		HttpResponse<String> again = send(token, "PUT", chunks + 1, new byte[SEGMENT]);
+		assertEquals(200, again.statusCode());
+		assertTrue(again.body().contains("Chunk already received"), again.body());
+
+		HttpResponse<String> committed = send(token, "POST", "/files/uploads/" + uploadId + "/commit", null);
+		assertEquals(200, committed.statusCode(), committed.body());
+		long id = Long.parseLong(match(ID, committed.body()));
+		assertArrayEquals(data, ok(download(token, id)));
+		assertEquals(404, send(token, "GET", "/files/uploads/" + uploadId, null).statusCode());
+	}
+
+	@Test
+	void identicalUploadsShareOneBlobUntilTheLastIsDeleted() throws Exception {
+		String token = token("dedup-user");
+		byte[] data = bytes(SEGMENT + 1, 5);
+		long first = upload(token, "one.bin", data);
+		long second = upload(token, "two.bin", data);
+
+		String blobKey = files.findById(first).orElseThrow().getBlobKey();
+		assertEquals(blobKey, files.findById(second).orElseThrow().getBlobKey());
+		assertEquals(2, contentBlobService.find(blobKey).orElseThrow().getRefCount());
+
+		// Another user's copy is stored separately
+		long foreign = upload(token("dedup-other"), "one.bin", data);
+		assertNotEquals(blobKey, files.findById(foreign).orElseThrow().getBlobKey());
+
+		assertEquals(200, send(token, "DELETE", "/files/" + first, null).statusCode());
+		assertEquals(1, contentBlobService.find(blobKey).orElseThrow().getRefCount());
+		assertArrayEquals(data, ok(download(token, second)));
+
+		assertEquals(200, send(token, "DELETE", "/files/" + second, null).statusCode());
+		assertTrue(contentBlobService.find(blobKey).isEmpty());
+	}
+
+	@Test
+	void myFilesArePagedByCursorNewestFirst() throws Exception {
+		String token = token("page-user");
+		// Three rows share a timestamp: the id breaks the tie, so none is skipped or repeated
+		Instant base = Instant.parse("2026-01-01T00:00:00Z");
+		List<Long> expected = new ArrayList<>();
+		for (Instant createdAt : List.of(base, base.plusSeconds(60), base.plusSeconds(60), base.plusSeconds(60), base.plusSeconds(120))) {
+			expected.add(insertFile("page-user", createdAt));
+		}
+		insertFile("other-page-user", base.plusSeconds(90));
+		expected.sort(Comparator.comparing((Long id) -> createdAt(id)).thenComparing(id -> id).reversed());
+
+		assertEquals(expected, pages(token, "/files/my-files?limit=2"));
+		assertEquals(expected, pages(token, "/files/my-files?limit=100"));
+		assertEquals(400, send(token, "GET", "/files/my-files?cursor=not-a-cursor", null).statusCode());
+	}
+
+	@Test
+	void sharedWithMeIsPagedByShareTimeInEitherOrder() throws Exception {
+		String token = token("shared-page-user");
+		Instant base = Instant.parse("2026-02-01T00:00:00Z");
+		List<Long> newestFirst = new ArrayList<>();
+		List<Instant> sharedAt = List.of(base, base.plusSeconds(30), base.plusSeconds(30), base.plusSeconds(30), base.plusSeconds(90));
+		for (int i = sharedAt.size() - 1; i >= 0; i--) {
+			long fileId = insertFile("shared-page-owner", base);
+			jdbcTemplate.update("insert into file_access (file_id, shared_with, shared_by, created_at) values (?, ?, ?, ?)",
+					fileId, "shared-page-user", "shared-page-owner", Timestamp.from(sharedAt.get(i)));
+			newestFirst.add(fileId);
+		}
+		// Same share time: the later share (higher id) is listed first
+		newestFirst.sort(Comparator.comparing((Long id) -> sharedAt(id)).thenComparing(this::accessId).reversed());
+
+		assertEquals(newestFirst, pages(token, "/files/shared-with-me?limit=2"));
+		assertEquals(newestFirst.reversed(), pages(token, "/files/shared-with-me?order=asc&limit=2"));
+		HttpResponse<String> page = send(token, "GET", "/files/shared-with-me?limit=1", null);
+		assertTrue(page.body().contains("\"sharedBy\":\"shared-page-owner\""), page.body());
+		assertEquals(400, send(token, "GET", "/files/shared-with-me?order=sideways", null).statusCode());
+	}
+
+	private String token(String username) {
+		if (users.findByUsername(username).isEmpty()) {
+			users.save(UserDetails.builder()
+					.username(username)
+					.email(username + "@example.com")
+					.password("unused")
+					.enabled(true)
+					.build());
+		}
+		return jwtUtil.generateToken(username);
+	}
+
+	private long upload(String token, String fileName, byte[] data) throws Exception {
+		String boundary = UUID.randomUUID().toString();
+		byte[] head = ("--" + boundary + "\r\nContent-Disposition: form-data; name=\"file\"; filename=\"" + fileName
+				+ "\"\r\nContent-Type: application/octet-stream\r\n\r\n").getBytes();
+		byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes();
+		byte[] body = new byte[head.length + data.length + tail.length];
+		System.arraycopy(head, 0, body, 0, head.length);
+		System.arraycopy(data, 0, body, head.length, data.length);
+		System.arraycopy(tail, 0, body, head.length + data.length, tail.length);
+
+		HttpResponse<String> response = http.send(request(token, "/files/upload")
+				.header("Content-Type", "multipart/form-data; boundary=" + boundary)
+				.POST(HttpRequest.BodyPublishers.ofByteArray(body))
+				.build(), HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, response.statusCode(), response.body());
+		return Long.parseLong(match(ID, response.body()));
+	}
+
+	// Follows X-Next-Cursor to the last page; returns the ids in the order they were listed
+	private List<Long> pages(String token, String path) throws Exception {
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		int limit = Integer.parseInt(path.replaceAll(".*limit=(\\d+).*", "$1"));
+		do {
+			HttpResponse<String> page = send(token, "GET", cursor == null ? path : path + "&cursor=" + cursor, null);
+			assertEquals(200, page.statusCode(), page.body());
+			Matcher matcher = ID.matcher(page.body());
+			int rows = 0;
+			while (matcher.find()) {
+				ids.add(Long.parseLong(matcher.group(1)));
+				rows++;
+			}
+			assertTrue(rows <= limit, page.body());
+			cursor = header(page, "X-Next-Cursor");
+		} while (cursor != null);
+		return ids;
+	}
+
+	// Listings read metadata only, so these rows need no blob
+	private long insertFile(String owner, Instant createdAt) {
+		jdbcTemplate.update("insert into stored_file (file_name, content_type, uploaded_by, created_at) values (?, ?, ?, ?)",
+				owner + ".txt", "text/plain", owner, Timestamp.from(createdAt));
+		return jdbcTemplate.queryForObject("select max(id) from stored_file where uploaded_by = ?", Long.class, owner);
+	}
+
+	private Instant sharedAt(long fileId) {
+		return jdbcTemplate.queryForObject("select created_at from file_access where file_id = ?", Timestamp.class, fileId).toInstant();
+	}
+
+	private long accessId(long fileId) {
+		return jdbcTemplate.queryForObject("select id from file_access where file_id = ?", Long.class, fileId);
+	}
+
+	private Instant createdAt(long fileId) {
+		return jdbcTemplate.queryForObject("select created_at from stored_file where id = ?", Timestamp.class, fileId).toInstant();
+	}
+
+	private HttpResponse<byte[]> download(String token, long id, String... headers) throws Exception {
+		HttpRequest.Builder builder = request(token, "/files/download/" + id);
+		for (int i = 0; i < headers.length; i += 2) {
+			builder.header(headers[i], headers[i + 1]);
+		}
+		return http.send(builder.GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+	}
+
+	private HttpResponse<String> send(String token, String method, String path, byte[] body) throws Exception {
+		HttpRequest.Builder builder = request(token, path);
+		if (body != null) {
+			builder.header("Content-Type", "application/octet-stream");
+		}
+		builder.method(method, body != null
+				? HttpRequest.BodyPublishers.ofByteArray(body)
+				: HttpRequest.BodyPublishers.noBody());
+		return http.send(builder.build(), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private HttpRequest.Builder request(String token, String path) {
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Authorization", "Bearer " + token);
+	}
+
+	private static byte[] ok(HttpResponse<byte[]> response) {
+		assertEquals(200, response.statusCode());
+		return response.body();
+	}
+
+	private static String header(HttpResponse<?> response, String name) {
+		return response.headers().firstValue(name).orElse(null);
+	}
+
+	private static String match(Pattern pattern, String body) {
+		Matcher matcher = pattern.matcher(body);
+		assertTrue(matcher.find(), body);
+		return matcher.group(1);
+	}
+
+	private static byte[] chunk(byte[] data, int index) {
+		return Arrays.copyOfRange(data, index * SEGMENT, Math.min(data.length, (index + 1) * SEGMENT));
+	}
+
+	// Random, so the upload path never deflates it and ranges stay available
+	private static byte[] bytes(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+}
@@ -0,0 +1,82 @@
+package com.example.EncryptedFileSharing.otp;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryOtpStoreTests {
+
+	private final InMemoryOtpStore store = new InMemoryOtpStore(3);
+
+	@AfterEach
+	void close() {
+		store.close();
+	}
+
+	@Test
+	void codeIsAcceptedOnce() {
+		store.issue("alice", "123456", Duration.ofMinutes(5));
+
+		assertTrue(store.verify("alice", "123456"));
+		assertFalse(store.verify("alice", "123456"));
+	}
+
+	@Test
+	void wrongGuessesUseUpTheCode() {
+		store.issue("alice", "123456", Duration.ofMinutes(5));
+
+		assertFalse(store.verify("alice", "000000"));
+		assertFalse(store.verify("alice", "000001"));
+		assertFalse(store.verify("alice", "000002"));
+		// The right code no longer helps once the attempts are gone
+		assertFalse(store.verify("alice", "123456"));
+	}
+
+	@Test
+	void newCodeReplacesTheOldOneAndResetsAttempts() {
+		store.issue("alice", "111111", Duration.ofMinutes(5));
+		assertFalse(store.verify("alice", "000000"));
+		assertFalse(store.verify("alice", "000001"));
+
+		store.issue("alice", "222222", Duration.ofMinutes(5));
+		assertFalse(store.verify("alice", "111111"));
+		assertFalse(store.verify("alice", "000002"));
+		assertTrue(store.verify("alice", "222222"));
+	}
+
+	@Test
+	void expiredCodeIsRejected() throws Exception {
+		store.issue("alice", "123456", Duration.ofMillis(50));
+		Thread.sleep(100);
+
+		assertFalse(store.verify("alice", "123456"));
+	}
+
+	@Test
+	void concurrentCorrectGuessesSucceedOnce() throws Exception {
+		store.issue("alice", "123456", Duration.ofMinutes(5));
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<Boolean>> guesses = new ArrayList<>();
+			for (int i = 0; i < 8; i++) {
+				guesses.add(() -> store.verify("alice", "123456"));
+			}
+			int accepted = 0;
+			for (Future<Boolean> result : executor.invokeAll(guesses)) {
+				accepted += result.get() ? 1 : 0;
+			}
+			assertEquals(1, accepted);
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,123 @@
+package com.example.EncryptedFileSharing.otp;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Two stores on one table, the way two nodes behind a load balancer share it
+@SpringBootTest
+class JdbcOtpStoreTests {
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private JdbcOtpStore nodeA;
+	private JdbcOtpStore nodeB;
+
+	@BeforeEach
+	void setUp() {
+		jdbcTemplate.update("delete from otp_code");
+		nodeA = new JdbcOtpStore(jdbcTemplate, 3);
+		nodeB = new JdbcOtpStore(jdbcTemplate, 3);
+	}
+
+	@Test
+	void codeIssuedOnOneNodeIsAcceptedOnceAnywhere() {
+		nodeA.issue("alice", "123456", Duration.ofMinutes(5));
+		nodeA.flush();
+
+		assertTrue(nodeB.verify("alice", "123456"));
+		assertFalse(nodeA.verify("alice", "123456"));
+		assertFalse(nodeB.verify("alice", "123456"));
+	}
+
+	@Test
+	void unflushedCodeIsWrittenBeforeItIsVerified() {
+		nodeA.issue("alice", "123456", Duration.ofMinutes(5));
+
+		assertTrue(nodeA.verify("alice", "123456"));
+		assertEquals(0, rows("alice"));
+	}
+
+	@Test
+	void attemptLimitHoldsAcrossNodes() {
+		nodeA.issue("alice", "123456", Duration.ofMinutes(5));
+		nodeA.flush();
+
+		assertFalse(nodeA.verify("alice", "000000"));
+		assertFalse(nodeB.verify("alice", "000001"));
+		assertFalse(nodeA.verify("alice", "000002"));
+		// Spreading guesses over nodes does not buy more of them
+		assertFalse(nodeB.verify("alice", "123456"));
+		assertEquals(0, rows("alice"));
+	}
+
+	@Test
+	void newCodeResetsAttempts() {
+		nodeA.issue("alice", "111111", Duration.ofMinutes(5));
+		assertFalse(nodeA.verify("alice", "000000"));
+		assertFalse(nodeB.verify("alice", "000001"));
+
+		nodeB.issue("alice", "222222", Duration.ofMinutes(5));
+		nodeB.flush();
+		assertFalse(nodeA.verify("alice", "111111"));
+		assertFalse(nodeA.verify("alice", "000002"));
+		assertTrue(nodeA.verify("alice", "222222"));
+	}
+
+	@Test
+	void expiredCodeIsRejectedAndPurged() throws Exception {
+		nodeA.issue("alice", "123456", Duration.ofMillis(50));
+		nodeA.flush();
+		Thread.sleep(100);
+
+		assertFalse(nodeB.verify("alice", "123456"));
+		nodeB.purgeExpired();
+		assertEquals(0, rows("alice"));
+	}
+
+	@Test
+	void flushRacingAVerifyLeavesOneRow() throws Exception {
+		// Holds the flush between its delete and its insert
+		CountDownLatch deleted = new CountDownLatch(1);
+		JdbcOtpStore node = new JdbcOtpStore(new JdbcTemplate(jdbcTemplate.getDataSource()) {
+			@Override
+			public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+				if (sql.startsWith("insert") && Thread.currentThread().getName().equals("otp-flush")) {
+					deleted.countDown();
+					try {
+						Thread.sleep(200);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return super.batchUpdate(sql, batchArgs);
+			}
+		}, 3);
+		node.issue("alice", "111111", Duration.ofMinutes(5));
+		Thread flush = new Thread(node::flush, "otp-flush");
+		flush.start();
+		assertTrue(deleted.await(10, TimeUnit.SECONDS));
+
+		// A newer code, verified while the older one is still being written
+		node.issue("alice", "222222", Duration.ofMinutes(5));
+		assertFalse(node.verify("alice", "000000"));
+		flush.join();
+
+		assertEquals(1, rows("alice"));
+		assertTrue(node.verify("alice", "222222"));
+	}
+
+	private int rows(String username) {
+		return jdbcTemplate.queryForObject("select count(*) from otp_code where username = ?", Integer.class, username);
+	}
+}
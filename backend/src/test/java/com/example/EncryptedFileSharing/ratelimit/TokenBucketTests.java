@@ -0,0 +1,101 @@
+package com.example.EncryptedFileSharing.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTests {
+
+	@Test
+	void burstIsAllowedThenTheCallerIsToldHowLongToWait() {
+		// One token per 10 seconds: nothing refills during the test
+		TokenBucket bucket = new TokenBucket(5, 0.1);
+		for (int i = 0; i < 5; i++) {
+			assertEquals(0, bucket.tryConsume(1), "request " + i);
+		}
+
+		long wait = bucket.tryConsume(1);
+		assertTrue(wait > TimeUnit.SECONDS.toNanos(9) && wait <= TimeUnit.SECONDS.toNanos(10), "wait " + wait);
+		// A rejected request takes nothing
+		assertEquals(wait, bucket.tryConsume(1), TimeUnit.MILLISECONDS.toNanos(100));
+	}
+
+	@Test
+	void requestLargerThanTheBucketIsNeverAllowed() {
+		TokenBucket bucket = new TokenBucket(5, 0.1);
+
+		assertTrue(bucket.tryConsume(6) > 0);
+		assertEquals(0, bucket.tryConsume(5));
+	}
+
+	@Test
+	void tokensRefillAtTheConfiguredRate() throws Exception {
+		TokenBucket bucket = new TokenBucket(1, 20);
+		assertEquals(0, bucket.tryConsume(1));
+		assertTrue(bucket.tryConsume(1) > 0);
+
+		Thread.sleep(100);
+		assertEquals(0, bucket.tryConsume(1));
+	}
+
+	@Test
+	void reserveBorrowsAgainstTheFuture() {
+		TokenBucket bucket = new TokenBucket(10, 10);
+
+		assertEquals(0, bucket.reserve(10));
+		long wait = bucket.reserve(10);
+		assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(900) && wait <= TimeUnit.SECONDS.toNanos(1), "wait " + wait);
+		// Borrowed tokens are gone for everyone else too
+		assertTrue(bucket.tryConsume(1) > TimeUnit.MILLISECONDS.toNanos(900));
+	}
+
+	@Test
+	void fractionalIntervalsKeepTheExactRate() {
+		// 8 MB/s is 119.2 ns per byte; whole nanoseconds would make a second's worth 998 ms
+		long perSecond = 8L << 20;
+		TokenBucket bucket = new TokenBucket(perSecond, perSecond);
+
+		assertEquals(0, bucket.reserve(perSecond));
+		long wait = bucket.reserve(perSecond);
+		assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(999) && wait <= TimeUnit.SECONDS.toNanos(1), "wait " + wait);
+	}
+
+	@Test
+	void concurrentCallersNeverExceedTheCapacity() throws Exception {
+		TokenBucket bucket = new TokenBucket(100, 0.1);
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		try {
+			List<Callable<Integer>> callers = new ArrayList<>();
+			for (int t = 0; t < 8; t++) {
+				callers.add(() -> {
+					int granted = 0;
+					for (int i = 0; i < 1000; i++) {
+						granted += bucket.tryConsume(1) == 0 ? 1 : 0;
+					}
+					return granted;
+				});
+			}
+			int granted = 0;
+			for (Future<Integer> result : executor.invokeAll(callers)) {
+				granted += result.get();
+			}
+			assertEquals(100, granted);
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	void invalidSettingsAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new TokenBucket(1, 0));
+	}
+}
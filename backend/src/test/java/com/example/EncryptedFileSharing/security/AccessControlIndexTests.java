@@ -0,0 +1,85 @@
+package com.example.EncryptedFileSharing.security;
+
+import com.example.EncryptedFileSharing.dto.AccessGrant;
+import com.example.EncryptedFileSharing.repository.StoredFileRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class AccessControlIndexTests {
+
+	private final StoredFileRepository files = mock(StoredFileRepository.class);
+	private final AccessControlIndex index =
+			new AccessControlIndex(files, new SimpleMeterRegistry(), 1000, Duration.ofMillis(200));
+
+	@Test
+	void allowedReadsAreAnsweredFromMemory() {
+		when(files.findAccessGrants(1L)).thenReturn(List.of(grant("alice", "bob")));
+
+		assertTrue(index.canRead("alice", 1L));
+		assertTrue(index.canRead("bob", 1L));
+		verify(files, times(1)).findAccessGrants(1L);
+	}
+
+	@Test
+	void localShareIsAppliedToTheCachedEntry() {
+		when(files.findAccessGrants(1L)).thenReturn(List.of(grant("alice", null)));
+		assertTrue(index.canRead("alice", 1L));
+
+		index.granted(1L, List.of("carol"));
+		assertTrue(index.canRead("carol", 1L));
+		verify(files, times(1)).findAccessGrants(1L);
+	}
+
+	@Test
+	void cachedDenialIsRecheckedForSharesMadeElsewhere() {
+		when(files.findAccessGrants(1L)).thenReturn(List.of(grant("alice", null)));
+		assertTrue(index.canRead("alice", 1L));
+		assertFalse(index.canRead("carol", 1L));
+
+		// Shared through another node: only the database knows
+		when(files.findAccessGrants(1L)).thenReturn(List.of(grant("alice", null), grant("alice", "carol")));
+		assertTrue(index.canRead("carol", 1L));
+	}
+
+	@Test
+	void entriesExpire() throws Exception {
+		when(files.findAccessGrants(1L)).thenReturn(List.of(grant("alice", "bob")));
+		assertTrue(index.canRead("bob", 1L));
+
+		// Deleted through another node
+		when(files.findAccessGrants(1L)).thenReturn(List.of());
+		Thread.sleep(300);
+		assertFalse(index.canRead("bob", 1L));
+		assertFalse(index.canRead("alice", 1L));
+	}
+
+	@Test
+	void removedFileIsNotReadable() {
+		when(files.findAccessGrants(1L)).thenReturn(List.of(grant("alice", null)));
+		assertTrue(index.canRead("alice", 1L));
+
+		when(files.findAccessGrants(1L)).thenReturn(List.of());
+		index.removed(1L);
+		assertFalse(index.canRead("alice", 1L));
+	}
+
+	private static AccessGrant grant(String owner, String grantee) {
+		return new AccessGrant() {
+			@Override
+			public String getOwner() {
+				return owner;
+			}
+
+			@Override
+			public String getGrantee() {
+				return grantee;
+			}
+		};
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.EncryptedFileSharing.security;
+
+import com.example.EncryptedFileSharing.repository.UserRepository;
+import com.example.EncryptedFileSharing.service.UserService;
+import com.example.EncryptedFileSharing.util.UserDetails;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class PrincipalCacheTests {
+
+	@Autowired
+	private PrincipalCache principalCache;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository users;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Test
+	void disablingAUserDropsTheirCachedTokens() {
+		users.save(UserDetails.builder()
+				.username("cached-user")
+				.email("cached-user@example.com")
+				.password("unused")
+				.enabled(true)
+				.build());
+		String token = jwtUtil.generateToken("cached-user");
+		assertEquals("cached-user", principalCache.resolve(token).orElseThrow().username());
+
+		userService.setEnabled("cached-user", false);
+		assertTrue(principalCache.resolve(token).isEmpty());
+
+		userService.setEnabled("cached-user", true);
+		assertTrue(principalCache.resolve(token).isPresent());
+	}
+
+	@Test
+	void invalidTokensAreNotResolved() {
+		assertTrue(principalCache.resolve("not-a-token").isEmpty());
+		// Well formed, but for a user that does not exist
+		assertTrue(principalCache.resolve(jwtUtil.generateToken("nobody-at-all")).isEmpty());
+	}
+}
@@ -0,0 +1,183 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.dto.FileMetadata;
+import com.example.EncryptedFileSharing.model.ContentBlob;
+import com.example.EncryptedFileSharing.model.StoredFile;
+import com.example.EncryptedFileSharing.model.UploadChunk;
+import com.example.EncryptedFileSharing.model.UploadSession;
+import com.example.EncryptedFileSharing.repository.StoredFileRepository;
+import com.example.EncryptedFileSharing.repository.UploadSessionRepository;
+import com.example.EncryptedFileSharing.storage.BlobChecksum;
+import com.example.EncryptedFileSharing.storage.BlobStore;
+import com.example.EncryptedFileSharing.util.SegmentedFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ChunkedUploadServiceTests {
+
+	private static final int SEGMENT = SegmentedFormat.SEGMENT_SIZE;
+
+	@Autowired
+	private ChunkedUploadService uploads;
+
+	@Autowired
+	private UploadSessionRepository sessions;
+
+	@Autowired
+	private FileEncryptionService fileEncryptionService;
+
+	@Autowired
+	private ContentBlobService contentBlobService;
+
+	@Autowired
+	private StoredFileRepository files;
+
+	@Autowired
+	private BlobStore blobStore;
+
+	@Test
+	void chunksAreSealedInPlaceAndPublishedAsTheBlob() throws Exception {
+		byte[] data = bytes(5 * SEGMENT + 123, 1);
+		UploadSession session = uploads.createSession("chunk-owner", "in-place.bin", null, data.length, 2 * SEGMENT);
+
+		// A failed attempt leaves nothing recorded; the retry seals under a prefix of its own
+		assertThrows(IllegalArgumentException.class,
+				() -> uploads.writeChunk(session.getId(), 1, new ByteArrayInputStream(new byte[SEGMENT]), "chunk-owner"));
+		for (int index : new int[]{2, 1, 0}) {
+			assertTrue(uploads.writeChunk(session.getId(), index, new ByteArrayInputStream(chunk(data, index, 2 * SEGMENT)), "chunk-owner"));
+		}
+		assertFalse(uploads.writeChunk(session.getId(), 1, new ByteArrayInputStream(new byte[2 * SEGMENT]), "chunk-owner"));
+		List<UploadChunk> chunks = uploads.receivedChunks(session.getId());
+		assertEquals(3, chunks.size());
+		assertEquals(3, chunks.stream().map(chunk -> Arrays.toString(chunk.getNoncePrefix())).distinct().count());
+
+		StoredFile file = uploads.commit(session.getId(), "chunk-owner");
+
+		ContentBlob blob = contentBlobService.find(file.getBlobKey()).orElseThrow();
+		try (InputStream in = blobStore.openStream(file.getBlobKey())) {
+			SegmentedFormat.Header header = SegmentedFormat.Header.read(in);
+			assertTrue(header.chunked());
+			assertEquals(3, header.chunkCount());
+		}
+		// What the scrubber and ETag rely on, without the blob ever having been read whole
+		try (InputStream in = blobStore.openStream(file.getBlobKey())) {
+			assertEquals(blob.getChecksum(), BlobChecksum.read(in));
+		}
+		assertEquals(blobStore.size(file.getBlobKey()), blob.getEncryptedSize());
+
+		FileMetadata metadata = files.findMetadataById(file.getId()).orElseThrow();
+		assertEquals(data.length, fileEncryptionService.plaintextLength(metadata));
+		ByteArrayOutputStream whole = new ByteArrayOutputStream();
+		fileEncryptionService.streamFile(metadata, whole);
+		assertArrayEquals(data, whole.toByteArray());
+		// Across the boundary between the first and second chunk
+		ByteArrayOutputStream range = new ByteArrayOutputStream();
+		fileEncryptionService.streamRange(metadata, 2L * SEGMENT - 10, 2L * SEGMENT + 9, range);
+		assertArrayEquals(Arrays.copyOfRange(data, 2 * SEGMENT - 10, 2 * SEGMENT + 10), range.toByteArray());
+	}
+
+	@Test
+	void concurrentCommitsPublishOneFile() throws Exception {
+		byte[] data = bytes(3 * SEGMENT, 2);
+		UploadSession session = uploads.createSession("commit-owner", "twice.bin", null, data.length, SEGMENT);
+		for (int index = 0; index < 3; index++) {
+			uploads.writeChunk(session.getId(), index, new ByteArrayInputStream(chunk(data, index, SEGMENT)), "commit-owner");
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<StoredFile>> commits = new ArrayList<>();
+		try {
+			for (int i = 0; i < 2; i++) {
+				commits.add(executor.submit(() -> {
+					start.await();
+					return uploads.commit(session.getId(), "commit-owner");
+				}));
+			}
+			start.countDown();
+			int published = 0;
+			for (Future<StoredFile> commit : commits) {
+				try {
+					commit.get();
+					published++;
+				} catch (ExecutionException e) {
+					// Rejected by the state flip, or the session was already gone
+					assertTrue(e.getCause() instanceof IllegalStateException
+							|| e.getCause() instanceof NoSuchElementException, String.valueOf(e.getCause()));
+				}
+			}
+			assertEquals(1, published);
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(1, files.findByUploadedByOrderByCreatedAtDescIdDesc("commit-owner", Limit.of(10)).size());
+	}
+
+	@Test
+	void noChunkIsWrittenOnceACommitHasStarted() throws Exception {
+		byte[] data = bytes(2 * SEGMENT, 3);
+		UploadSession session = uploads.createSession("late-owner", "late.bin", null, data.length, SEGMENT);
+		uploads.writeChunk(session.getId(), 0, new ByteArrayInputStream(chunk(data, 0, SEGMENT)), "late-owner");
+
+		assertEquals(1, sessions.startCommit(session.getId()));
+		assertThrows(IllegalStateException.class,
+				() -> uploads.writeChunk(session.getId(), 1, new ByteArrayInputStream(chunk(data, 1, SEGMENT)), "late-owner"));
+		assertThrows(IllegalStateException.class, () -> uploads.commit(session.getId(), "late-owner"));
+		sessions.cancelCommit(session.getId());
+
+		// An incomplete commit reopens the session for the missing chunks
+		assertThrows(IllegalStateException.class, () -> uploads.commit(session.getId(), "late-owner"));
+		assertTrue(uploads.writeChunk(session.getId(), 1, new ByteArrayInputStream(chunk(data, 1, SEGMENT)), "late-owner"));
+		StoredFile file = uploads.commit(session.getId(), "late-owner");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		fileEncryptionService.streamFile(files.findMetadataById(file.getId()).orElseThrow(), out);
+		assertArrayEquals(data, out.toByteArray());
+	}
+
+	@Test
+	void identicalChunkedUploadsShareOneBlob() throws Exception {
+		byte[] data = bytes(2 * SEGMENT + 5, 4);
+		StoredFile first = upload("dedup-chunk-owner", data);
+		StoredFile second = upload("dedup-chunk-owner", data);
+
+		assertEquals(first.getBlobKey(), second.getBlobKey());
+		assertEquals(2, contentBlobService.find(first.getBlobKey()).orElseThrow().getRefCount());
+	}
+
+	private StoredFile upload(String username, byte[] data) throws Exception {
+		UploadSession session = uploads.createSession(username, "same.bin", null, data.length, SEGMENT);
+		for (int index = 0; index < session.chunkCount(); index++) {
+			uploads.writeChunk(session.getId(), index, new ByteArrayInputStream(chunk(data, index, SEGMENT)), username);
+		}
+		return uploads.commit(session.getId(), username);
+	}
+
+	private static byte[] chunk(byte[] data, int index, int chunkSize) {
+		return Arrays.copyOfRange(data, index * chunkSize, Math.min(data.length, (index + 1) * chunkSize));
+	}
+
+	private static byte[] bytes(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+}
@@ -0,0 +1,66 @@
+package com.example.EncryptedFileSharing.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionPolicyTests {
+
+	private final CompressionPolicy policy = new CompressionPolicy();
+	private final byte[] text = "timestamp,level,message\n2026-01-01,INFO,started\n".repeat(200).getBytes(StandardCharsets.US_ASCII);
+	private final byte[] random = new byte[64 * 1024];
+
+	@BeforeEach
+	void setUp() {
+		// The @Value defaults
+		ReflectionTestUtils.setField(policy, "enabled", true);
+		ReflectionTestUtils.setField(policy, "level", 6);
+		ReflectionTestUtils.setField(policy, "maxEntropy", 7.5);
+		new Random(1).nextBytes(random);
+	}
+
+	@Test
+	void alreadyCompressedFormatsAreSkippedWhateverTheirBytes() {
+		assertFalse(policy.shouldCompress("image/jpeg", text));
+		assertFalse(policy.shouldCompress("application/zip", text));
+		assertFalse(policy.shouldCompress("video/mp4", text));
+		assertFalse(policy.shouldCompress("audio/mpeg", text));
+		// Parameters and case do not hide the type
+		assertFalse(policy.shouldCompress("Image/JPEG; q=0.9", text));
+	}
+
+	@Test
+	void textTypesAreAlwaysCompressed() {
+		assertTrue(policy.shouldCompress("text/csv", random));
+		assertTrue(policy.shouldCompress("application/json; charset=utf-8", random));
+		assertTrue(policy.shouldCompress("application/vnd.api+json", random));
+		assertTrue(policy.shouldCompress("image/svg+xml", random));
+	}
+
+	@Test
+	void otherTypesAreJudgedByTheEntropyOfTheFirstBlock() {
+		assertTrue(policy.shouldCompress("application/octet-stream", text));
+		assertTrue(policy.shouldCompress(null, text));
+		assertFalse(policy.shouldCompress("application/octet-stream", random));
+		assertFalse(policy.shouldCompress(null, random));
+	}
+
+	@Test
+	void entropyIsMeasuredInBitsPerByte() {
+		assertEquals(0, CompressionPolicy.entropy(new byte[1000]), 1e-9);
+		assertEquals(1, CompressionPolicy.entropy(new byte[]{0, 1, 0, 1}), 1e-9);
+		assertTrue(CompressionPolicy.entropy(random) > 7.9);
+	}
+
+	@Test
+	void nothingIsCompressedWhenDisabledOrEmpty() {
+		assertFalse(policy.shouldCompress("text/plain", new byte[0]));
+		ReflectionTestUtils.setField(policy, "enabled", false);
+		assertFalse(policy.shouldCompress("text/plain", text));
+	}
+}
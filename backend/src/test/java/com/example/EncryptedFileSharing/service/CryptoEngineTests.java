@@ -0,0 +1,254 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.util.AeadAlgorithm;
+import com.example.EncryptedFileSharing.util.DeflatingOutputStream;
+import com.example.EncryptedFileSharing.util.SegmentRangeDecryptor;
+import com.example.EncryptedFileSharing.util.SegmentedFormat;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CryptoEngineTests {
+
+	private static final int SEGMENT = SegmentedFormat.SEGMENT_SIZE;
+
+	private final CryptoEngine engine = new CryptoEngine("0123456789abcdef", AeadAlgorithm.AES_GCM, new SimpleMeterRegistry());
+	private final byte[] dataKey = bytes(32, 1);
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 1000, SEGMENT - 1, SEGMENT, SEGMENT + 1, 3 * SEGMENT, 3 * SEGMENT + 17})
+	void containerRoundTrips(int size) throws IOException {
+		byte[] plain = bytes(size, size);
+		byte[] container = encrypt(plain, dataKey);
+
+		assertEquals(SegmentedFormat.containerLength(size, SEGMENT), container.length);
+		assertEquals(size, SegmentedFormat.plaintextLength(container.length, SEGMENT));
+		assertArrayEquals(plain, decrypt(container, dataKey));
+	}
+
+	@ParameterizedTest
+	@EnumSource(AeadAlgorithm.class)
+	void everyAlgorithmRoundTripsWithDataAndLegacyKeys(AeadAlgorithm algorithm) throws IOException {
+		CryptoEngine other = new CryptoEngine("0123456789abcdef", algorithm, new SimpleMeterRegistry());
+		byte[] plain = bytes(2 * SEGMENT + 5, 7);
+
+		assertArrayEquals(plain, decrypt(other, encrypt(other, plain, dataKey), dataKey));
+		assertArrayEquals(plain, decrypt(other, encrypt(other, plain, null), null));
+		// The algorithm comes from the header, not the reader's configuration
+		assertArrayEquals(plain, decrypt(encrypt(other, plain, dataKey), dataKey));
+	}
+
+	@Test
+	void flippedCiphertextByteIsRejected() throws IOException {
+		byte[] container = encrypt(bytes(2 * SEGMENT, 3), dataKey);
+		// Inside the second segment
+		container[(int) SegmentedFormat.segmentOffset(1, SEGMENT) + 10] ^= 1;
+
+		assertThrows(IOException.class, () -> decrypt(container, dataKey));
+	}
+
+	@Test
+	void flippedHeaderByteIsRejected() throws IOException {
+		byte[] container = encrypt(bytes(1000, 3), dataKey);
+		// Last byte of the nonce prefix, which every segment's nonce is built from
+		container[SegmentedFormat.HEADER_LENGTH - 1] ^= 1;
+
+		assertThrows(IOException.class, () -> decrypt(container, dataKey));
+	}
+
+	@Test
+	void wrongDataKeyIsRejected() throws IOException {
+		byte[] container = encrypt(bytes(1000, 3), dataKey);
+
+		assertThrows(IOException.class, () -> decrypt(container, bytes(32, 2)));
+	}
+
+	@Test
+	void containerCutAtASegmentBoundaryIsRejected() throws IOException {
+		byte[] container = encrypt(bytes(3 * SEGMENT + 17, 4), dataKey);
+		// Drops the short final segment; what is left still decrypts segment by segment, but none is marked last
+		byte[] truncated = Arrays.copyOf(container, (int) SegmentedFormat.segmentOffset(3, SEGMENT));
+
+		assertThrows(IOException.class, () -> decrypt(truncated, dataKey));
+	}
+
+	@Test
+	void containerCutInsideASegmentIsRejected() throws IOException {
+		byte[] container = encrypt(bytes(2 * SEGMENT, 4), dataKey);
+		byte[] truncated = Arrays.copyOf(container, container.length - 1);
+
+		assertThrows(IOException.class, () -> decrypt(truncated, dataKey));
+	}
+
+	@Test
+	void reorderedSegmentsAreRejected() throws IOException {
+		byte[] container = encrypt(bytes(3 * SEGMENT, 5), dataKey);
+		int first = (int) SegmentedFormat.segmentOffset(0, SEGMENT);
+		int second = (int) SegmentedFormat.segmentOffset(1, SEGMENT);
+		int length = second - first;
+		byte[] swapped = container.clone();
+		System.arraycopy(container, second, swapped, first, length);
+		System.arraycopy(container, first, swapped, second, length);
+
+		assertThrows(IOException.class, () -> decrypt(swapped, dataKey));
+	}
+
+	@Test
+	void deflatedContainerInflatesOnTheWayOut() throws IOException {
+		byte[] plain = "the same line over and over\n".repeat(20_000).getBytes();
+		ByteArrayOutputStream container = new ByteArrayOutputStream();
+		DeflatingOutputStream out = engine.compressingStream(container, dataKey, 6);
+		try (out) {
+			out.write(plain);
+		}
+
+		assertEquals(plain.length, out.bytesIn());
+		assertTrue(container.size() < plain.length / 10, "container is " + container.size() + " bytes");
+		assertArrayEquals(plain, decrypt(container.toByteArray(), dataKey));
+	}
+
+	@Test
+	void flippedDeflatedByteIsRejected() throws IOException {
+		byte[] plain = bytes(200_000, 6);
+		ByteArrayOutputStream container = new ByteArrayOutputStream();
+		try (OutputStream out = engine.compressingStream(container, dataKey, 1)) {
+			out.write(plain);
+		}
+		byte[] tampered = container.toByteArray();
+		tampered[SegmentedFormat.HEADER_LENGTH + 20] ^= 1;
+
+		assertThrows(IOException.class, () -> decrypt(tampered, dataKey));
+	}
+
+	@Test
+	void rangesDecryptOnlyTheRequestedBytes() throws IOException {
+		byte[] plain = bytes(3 * SEGMENT + 17, 8);
+		Path blob = Files.createTempFile("range", ".bin");
+		try {
+			Files.write(blob, encrypt(plain, dataKey));
+			try (SeekableByteChannel channel = Files.newByteChannel(blob)) {
+				SegmentRangeDecryptor ranges = engine.rangeDecryptor(channel, dataKey);
+				assertNotNull(ranges);
+				assertEquals(plain.length, ranges.plaintextLength());
+
+				long[][] cases = {
+						{0, 0},
+						{0, plain.length - 1},
+						{10, 99},
+						{SEGMENT - 1, SEGMENT},
+						{SEGMENT, 2L * SEGMENT - 1},
+						{SEGMENT - 5, 2L * SEGMENT + 5},
+						{plain.length - 17, plain.length - 1},
+						{plain.length - 1, plain.length - 1}
+				};
+				for (long[] range : cases) {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					ranges.copyRange(range[0], range[1], out);
+					assertArrayEquals(Arrays.copyOfRange(plain, (int) range[0], (int) range[1] + 1), out.toByteArray(),
+							"bytes " + range[0] + "-" + range[1]);
+				}
+				assertThrows(IllegalArgumentException.class,
+						() -> ranges.copyRange(0, plain.length, new ByteArrayOutputStream()));
+			}
+		} finally {
+			Files.delete(blob);
+		}
+	}
+
+	@Test
+	void deflatedContainerHasNoRangeDecryptor() throws IOException {
+		ByteArrayOutputStream container = new ByteArrayOutputStream();
+		try (OutputStream out = engine.compressingStream(container, dataKey, 6)) {
+			out.write(bytes(1000, 9));
+		}
+		Path blob = Files.createTempFile("range", ".bin");
+		try {
+			Files.write(blob, container.toByteArray());
+			try (SeekableByteChannel channel = Files.newByteChannel(blob)) {
+				assertNull(engine.rangeDecryptor(channel, dataKey));
+			}
+		} finally {
+			Files.delete(blob);
+		}
+	}
+
+	@Test
+	void concurrentStreamsOnVirtualThreadsRoundTrip() throws Exception {
+		List<Future<?>> streams = new ArrayList<>();
+		try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < 32; i++) {
+				byte[] plain = bytes(2 * SEGMENT + i, 100 + i);
+				byte[] key = bytes(32, 200 + i);
+				streams.add(executor.submit(() -> {
+					assertArrayEquals(plain, decrypt(encrypt(plain, key), key));
+					return null;
+				}));
+			}
+			for (Future<?> stream : streams) {
+				stream.get();
+			}
+		}
+	}
+
+	@Test
+	void segmentsAreTimedAndCountedPerDirection() throws IOException {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		CryptoEngine metered = new CryptoEngine("0123456789abcdef", AeadAlgorithm.AES_GCM, registry);
+		byte[] plain = bytes(2 * SEGMENT + 5, 10);
+
+		decrypt(metered, encrypt(metered, plain, dataKey), dataKey);
+
+		for (String operation : new String[]{"encrypt", "decrypt"}) {
+			assertEquals(3, registry.get("crypto.segment").tag("operation", operation).timer().count());
+			assertEquals(plain.length, registry.get("crypto.bytes").tag("operation", operation).counter().count());
+		}
+	}
+
+	private byte[] encrypt(byte[] plain, byte[] key) throws IOException {
+		return encrypt(engine, plain, key);
+	}
+
+	private byte[] decrypt(byte[] container, byte[] key) throws IOException {
+		return decrypt(engine, container, key);
+	}
+
+	private static byte[] encrypt(CryptoEngine engine, byte[] plain, byte[] key) throws IOException {
+		ByteArrayOutputStream container = new ByteArrayOutputStream();
+		try (OutputStream out = engine.encryptingStream(container, key)) {
+			out.write(plain);
+		}
+		return container.toByteArray();
+	}
+
+	private static byte[] decrypt(CryptoEngine engine, byte[] container, byte[] key) throws IOException {
+		try (InputStream in = engine.decryptingStream(new ByteArrayInputStream(container), key)) {
+			return in.readAllBytes();
+		}
+	}
+
+	private static byte[] bytes(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+}
@@ -0,0 +1,146 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.dto.FileMetadata;
+import com.example.EncryptedFileSharing.model.ContentBlob;
+import com.example.EncryptedFileSharing.model.StoredFile;
+import com.example.EncryptedFileSharing.repository.StoredFileRepository;
+import com.example.EncryptedFileSharing.storage.BlobStore;
+import com.example.EncryptedFileSharing.util.SegmentedFormat;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class FileEncryptionServiceTests {
+
+	private static final int SEGMENT = SegmentedFormat.SEGMENT_SIZE;
+
+	@Autowired
+	private FileEncryptionService fileEncryptionService;
+
+	@Autowired
+	private StoredFileRepository files;
+
+	@Autowired
+	private BlobStore blobStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Test
+	void uploadIsEncryptedAsAStreamIntoTheBlobStore() throws Exception {
+		byte[] data = bytes(3 * SEGMENT + 17, 2);
+		// Streaming only: reading the whole upload into memory fails the test
+		MockMultipartFile upload = new MockMultipartFile("file", "streamed.bin", "application/octet-stream", data) {
+			@Override
+			public byte[] getBytes() {
+				throw new AssertionError("upload read into memory");
+			}
+		};
+
+		StoredFile stored = fileEncryptionService.uploadFile(upload, "stream-owner");
+
+		FileMetadata file = files.findMetadataById(stored.getId()).orElseThrow();
+		byte[] container;
+		try (InputStream in = blobStore.openStream(file.getBlobKey())) {
+			container = in.readAllBytes();
+		}
+		// Random bytes are not worth deflating: a plain container of fixed-size segments
+		SegmentedFormat.Header header = SegmentedFormat.Header.parse(container);
+		assertFalse(header.deflated());
+		assertEquals(SegmentedFormat.containerLength(data.length, SEGMENT), container.length);
+		assertEquals(container.length, file.getEncryptedSize());
+		assertEquals(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(container)), file.getChecksum());
+
+		assertEquals(data.length, fileEncryptionService.plaintextLength(file));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		fileEncryptionService.streamFile(file, out);
+		assertArrayEquals(data, out.toByteArray());
+	}
+
+	@Test
+	void textIsDeflatedBeforeEncryptionAndInflatedOnDownload() throws Exception {
+		byte[] data = "2026-01-01T00:00:00Z INFO request served in 12 ms\n".repeat(10_000).getBytes(StandardCharsets.US_ASCII);
+
+		StoredFile stored = fileEncryptionService.uploadFile(
+				new MockMultipartFile("file", "server.log", "text/plain", data), "deflate-owner");
+
+		FileMetadata file = files.findMetadataById(stored.getId()).orElseThrow();
+		ContentBlob blob = fileEncryptionService.storageStats(file).orElseThrow();
+		assertTrue(blob.isCompressed());
+		assertEquals(data.length, blob.getPlainSize());
+		assertTrue(blob.getEncryptedSize() < data.length / 10, "stored " + blob.getEncryptedSize());
+		assertNotNull(blob.getCompressionCpuNanos());
+		// Deflated offsets no longer map onto the original bytes: whole-file reads only
+		assertEquals(-1, fileEncryptionService.plaintextLength(file));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		fileEncryptionService.streamFile(file, out);
+		assertArrayEquals(data, out.toByteArray());
+	}
+
+	@Test
+	void emptyUploadIsRejected() {
+		assertThrows(IllegalArgumentException.class, () -> fileEncryptionService.uploadFile(
+				new MockMultipartFile("file", "empty.bin", "application/octet-stream", new byte[0]), "stream-owner"));
+	}
+
+	@Test
+	void deleteTakesEffectOnlyWhenItCommits() throws Exception {
+		StoredFile stored = fileEncryptionService.uploadFile(
+				new MockMultipartFile("file", "delete-me.bin", "application/octet-stream", bytes(10_000, 1)), "delete-owner");
+		jdbcTemplate.update("insert into file_access (file_id, shared_with, shared_by, created_at) values (?, ?, ?, ?)",
+				stored.getId(), "delete-grantee", "delete-owner", Timestamp.from(Instant.now()));
+		FileMetadata file = files.findMetadataById(stored.getId()).orElseThrow();
+
+		// Rolled back: the row, its share and the blob are all still there
+		transactionTemplate.executeWithoutResult(status -> {
+			delete(file);
+			status.setRollbackOnly();
+		});
+		assertTrue(files.existsById(file.getId()));
+		assertEquals(1, shares(file.getId()));
+		assertTrue(blobStore.exists(file.getBlobKey()));
+
+		fileEncryptionService.deleteFile(file);
+		assertFalse(files.existsById(file.getId()));
+		assertEquals(0, shares(file.getId()));
+		assertFalse(blobStore.exists(file.getBlobKey()));
+	}
+
+	private void delete(FileMetadata file) {
+		try {
+			fileEncryptionService.deleteFile(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private int shares(long fileId) {
+		return jdbcTemplate.queryForObject("select count(*) from file_access where file_id = ?", Integer.class, fileId);
+	}
+
+	private static byte[] bytes(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+}
@@ -0,0 +1,93 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.model.FileAccess;
+import com.example.EncryptedFileSharing.model.StoredFile;
+import com.example.EncryptedFileSharing.repository.FileAccessRepository;
+import com.example.EncryptedFileSharing.repository.StoredFileRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class FileNameIndexTests {
+
+	@Autowired
+	private FileNameIndex index;
+
+	@Autowired
+	private StoredFileRepository files;
+
+	@Autowired
+	private FileAccessRepository shares;
+
+	@Test
+	void matchesSubstringPrefixAndExtensionNewestFirst() {
+		index.added(9_000_001, "Quarterly_Report.pdf", "searcher");
+		index.added(9_000_002, "report-draft.docx", "searcher");
+		index.added(9_000_003, "holiday.jpg", "searcher");
+		index.added(9_000_004, "report.pdf", "someone-else");
+
+		assertEquals(List.of(9_000_002L, 9_000_001L), ids(index.search("searcher", "REPORT", null, null, 10)));
+		assertEquals(List.of(9_000_002L), ids(index.search("searcher", null, "rep", null, 10)));
+		assertEquals(List.of(9_000_001L), ids(index.search("searcher", "report", null, ".PDF", 10)));
+		assertEquals(List.of(9_000_003L), ids(index.search("searcher", "ho", null, null, 10)));
+		assertEquals(List.of(9_000_002L), ids(index.search("searcher", "report", null, null, 1)));
+		assertTrue(index.search("searcher", "invoice", null, null, 10).isEmpty());
+		assertTrue(index.search("nobody", "report", null, null, 10).isEmpty());
+	}
+
+	@Test
+	void sharedAndRemovedFilesFollowTheShareAndDeletePaths() {
+		index.added(9_100_001, "budget.xlsx", "owner-a");
+		assertTrue(index.search("grantee-a", "budget", null, null, 10).isEmpty());
+
+		index.shared(9_100_001, List.of("grantee-a"));
+		assertEquals(List.of(9_100_001L), ids(index.search("grantee-a", "budget", null, null, 10)));
+
+		index.removed(9_100_001);
+		assertTrue(index.search("grantee-a", "budget", null, null, 10).isEmpty());
+		assertTrue(index.search("owner-a", "budget", null, null, 10).isEmpty());
+	}
+
+	@Test
+	void picksUpChangesMadeThroughOtherNodes() {
+		// Written straight to the tables, the way another node's upload and share land here
+		StoredFile file = files.save(StoredFile.builder()
+				.fileName("elsewhere-notes.txt").contentType("text/plain").uploadedBy("remote-owner").build());
+		shares.save(FileAccess.builder().fileId(file.getId()).sharedWith("remote-grantee").sharedBy("remote-owner").build());
+
+		await(() -> {
+			index.catchUp();
+			return ids(index.search("remote-grantee", "elsewhere", null, null, 10)).equals(List.of(file.getId()));
+		});
+		assertEquals(List.of(file.getId()), ids(index.search("remote-owner", "notes", null, null, 10)));
+
+		files.deleteById(file.getId());
+		index.sweepDeleted();
+		assertTrue(index.search("remote-owner", "elsewhere", null, null, 10).isEmpty());
+		assertTrue(index.search("remote-grantee", "elsewhere", null, null, 10).isEmpty());
+	}
+
+	private static List<Long> ids(List<FileNameIndex.Hit> hits) {
+		return hits.stream().map(FileNameIndex.Hit::fileId).toList();
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Condition not met within 10s");
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,64 @@
+package com.example.EncryptedFileSharing.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyRingTests {
+
+	private static final String LEGACY_SECRET = "0123456789abcdef";
+	private static final String MASTER_KEY_2 = "fedcba9876543210fedcba9876543210";
+
+	private final KeyRing original = new KeyRing(new MockEnvironment(), LEGACY_SECRET, 1);
+	private final KeyRing rotated = new KeyRing(
+			new MockEnvironment().withProperty("app.crypto.master-keys.2", MASTER_KEY_2), LEGACY_SECRET, 2);
+
+	@Test
+	void dataKeyUnwrapsToTheSameMaterial() {
+		KeyRing.DataKey key = original.newDataKey();
+
+		assertEquals(KeyRing.DATA_KEY_LENGTH, key.material().length);
+		assertEquals(1, key.version());
+		assertArrayEquals(key.material(), original.unwrap(1, key.wrapped()).material());
+		assertFalse(Arrays.equals(key.material(), original.newDataKey().material()));
+	}
+
+	@Test
+	void rewrapMovesAnOldKeyToTheActiveVersion() {
+		KeyRing.DataKey old = original.newDataKey();
+
+		KeyRing.DataKey moved = rotated.rewrap(rotated.unwrap(1, old.wrapped()));
+		assertEquals(2, moved.version());
+		assertArrayEquals(old.material(), moved.material());
+		assertArrayEquals(old.material(), rotated.unwrap(2, moved.wrapped()).material());
+		// The ring that only knows version 1 cannot read it any more
+		assertThrows(IllegalStateException.class, () -> original.unwrap(2, moved.wrapped()));
+	}
+
+	@Test
+	void keyUnderTheActiveVersionIsNotRewrapped() {
+		KeyRing.DataKey key = rotated.newDataKey();
+
+		assertSame(key, rotated.rewrap(key));
+	}
+
+	@Test
+	void keyWrappedUnderAnotherMasterKeyDoesNotUnwrap() {
+		KeyRing.DataKey key = rotated.newDataKey();
+
+		assertThrows(IllegalStateException.class, () -> rotated.unwrap(1, key.wrapped()));
+		byte[] tampered = key.wrapped().clone();
+		tampered[0] ^= 1;
+		assertThrows(IllegalStateException.class, () -> rotated.unwrap(2, tampered));
+	}
+
+	@Test
+	void misconfiguredRingsAreRejected() {
+		assertThrows(IllegalStateException.class, () -> new KeyRing(new MockEnvironment(), LEGACY_SECRET, 2));
+		assertThrows(IllegalStateException.class, () -> new KeyRing(
+				new MockEnvironment().withProperty("app.crypto.master-keys.2", "too-short"), LEGACY_SECRET, 2));
+	}
+}
@@ -0,0 +1,79 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.model.ContentBlob;
+import com.example.EncryptedFileSharing.repository.ContentBlobRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Version 2 is active, so rows written under version 1 (the derived key) are due for re-wrapping
+@SpringBootTest(properties = {
+		"app.crypto.key=0123456789abcdef",
+		"app.crypto.master-keys.2=fedcba9876543210fedcba9876543210",
+		"app.crypto.master-key-version=2",
+		"app.crypto.rotation.batch-size=3",
+		"app.crypto.rotation.interval-ms=50"
+})
+class KeyRotationServiceTests {
+
+	@Autowired
+	private KeyRotationService rotation;
+
+	@Autowired
+	private KeyRing keyRing;
+
+	@Autowired
+	private ContentBlobRepository blobs;
+
+	@Test
+	void keysUnderOldVersionsAreRewrappedToTheActiveOne() {
+		KeyRing previous = new KeyRing(new MockEnvironment(), "0123456789abcdef", 1);
+		List<KeyRing.DataKey> keys = new ArrayList<>();
+		List<Long> ids = new ArrayList<>();
+		// More rows than one batch, so the scan has to resume from its cursor
+		for (int i = 0; i < 10; i++) {
+			KeyRing.DataKey key = previous.newDataKey();
+			keys.add(key);
+			ids.add(blobs.save(ContentBlob.builder()
+					.owner("rotation-owner")
+					.contentHash("rotation-" + i)
+					.blobKey("rotation-blob-" + i)
+					.wrappedKey(key.wrapped())
+					.keyVersion(key.version())
+					.refCount(1)
+					.build()).getId());
+		}
+		assertEquals(10L, rotation.remaining().get("content_blob"));
+
+		rotation.checkPending();
+		await(() -> rotation.remaining().values().stream().allMatch(count -> count == 0)
+				&& !(Boolean) rotation.progress().get("running"));
+
+		for (int i = 0; i < ids.size(); i++) {
+			ContentBlob blob = blobs.findById(ids.get(i)).orElseThrow();
+			assertEquals(2, blob.getKeyVersion());
+			assertArrayEquals(keys.get(i).material(), keyRing.unwrap(2, blob.getWrappedKey()).material());
+		}
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Condition not met within 10s");
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.model.OutboundMail;
+import com.example.EncryptedFileSharing.repository.OutboundMailRepository;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the outbox against GreenMail, an in-process SMTP server
+@SpringBootTest(properties = {
+		"spring.mail.host=localhost",
+		"spring.mail.port=3025",
+		"app.mail.initial-backoff=100ms",
+		"app.mail.poll-interval-ms=100"
+})
+class MailDispatcherTests {
+
+	@RegisterExtension
+	static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP);
+
+	@Autowired
+	private OtpService otpService;
+
+	@Autowired
+	private MailDispatcher mailDispatcher;
+
+	@Autowired
+	private OutboundMailRepository outbox;
+
+	@BeforeEach
+	void clearOutbox() {
+		outbox.deleteAll();
+	}
+
+	@Test
+	void otpIsQueuedThenDelivered() throws Exception {
+		otpService.generateOtp("mailtest", "mailtest@example.com");
+
+		assertTrue(greenMail.waitForIncomingEmail(5000, 1));
+		MimeMessage received = greenMail.getReceivedMessages()[0];
+		assertEquals("Your OTP Code", received.getSubject());
+		assertEquals("mailtest@example.com", received.getAllRecipients()[0].toString());
+		await(() -> outbox.count() == 0);
+	}
+
+	@Test
+	void burstIsSentInBatches() {
+		for (int i = 0; i < 50; i++) {
+			mailDispatcher.enqueue("user" + i + "@example.com", "Message " + i, "Body " + i);
+		}
+
+		assertTrue(greenMail.waitForIncomingEmail(10000, 50));
+		await(() -> outbox.count() == 0);
+	}
+
+	@Test
+	void failedDeliveryIsRetried() {
+		greenMail.stop();
+		mailDispatcher.enqueue("retry@example.com", "Retry", "Body");
+		await(() -> outbox.findAll().stream().anyMatch(m -> m.getAttempts() > 0));
+		OutboundMail pending = outbox.findAll().getFirst();
+		assertEquals(OutboundMail.Status.PENDING, pending.getStatus());
+		assertNotNull(pending.getLastError());
+
+		greenMail.start();
+		assertTrue(greenMail.waitForIncomingEmail(10000, 1));
+		await(() -> outbox.count() == 0);
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Condition not met within 10s");
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,36 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.otp.OtpStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+class OtpServiceTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final OtpStore otpStore = mock(OtpStore.class);
+	private final EmailService emailService = mock(EmailService.class);
+	private final OtpService otpService = new OtpService(otpStore, emailService, registry);
+
+	@Test
+	void issuedCodeIsMailedAndTheRequestTimed() {
+		otpService.generateOtp("otp-user", "otp-user@example.com");
+
+		ArgumentCaptor<String> code = ArgumentCaptor.forClass(String.class);
+		verify(otpStore).issue(eq("otp-user"), code.capture(), any(Duration.class));
+		assertTrue(code.getValue().matches("\\d{6}"), code.getValue());
+		ArgumentCaptor<String> text = ArgumentCaptor.forClass(String.class);
+		verify(emailService).MailSender(eq("otp-user@example.com"), any(), text.capture());
+		assertTrue(text.getValue().contains(code.getValue()));
+
+		assertEquals(1, registry.get("otp.request").timer().count());
+	}
+}
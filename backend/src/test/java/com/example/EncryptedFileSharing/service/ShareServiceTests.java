@@ -0,0 +1,140 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.model.FileAccess;
+import com.example.EncryptedFileSharing.repository.UserRepository;
+import com.example.EncryptedFileSharing.util.UserDetails;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class ShareServiceTests {
+
+	@Autowired
+	private ShareService shareService;
+
+	@Autowired
+	private UserRepository users;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void duplicateSharesFromBeforeTheConstraintAreRemovedAndItIsAdded() {
+		// The schema as it was before the constraint, with the duplicates it allowed
+		jdbcTemplate.execute("alter table file_access drop constraint " + FileAccess.UNIQUE_SHARE);
+		for (int i = 0; i < 3; i++) {
+			insertShare(8_000_001L, "dup-grantee", Timestamp.from(Instant.now()));
+		}
+		insertShare(8_000_001L, "other-grantee", Timestamp.from(Instant.now()));
+
+		shareService.enforceUniqueShares();
+
+		assertEquals(1, count(8_000_001L, "dup-grantee"));
+		assertEquals(1, count(8_000_001L, "other-grantee"));
+		assertThrows(DataIntegrityViolationException.class,
+				() -> insertShare(8_000_001L, "dup-grantee", Timestamp.from(Instant.now())));
+		// Already there: nothing to do
+		shareService.enforceUniqueShares();
+	}
+
+	@Test
+	void sharesWithoutTimestampsGetOne() {
+		insertShare(8_000_002L, "untimed-grantee", null);
+
+		shareService.backfillShareTimestamps();
+
+		assertNotNull(jdbcTemplate.queryForObject(
+				"select created_at from file_access where file_id = ? and shared_with = ?",
+				Timestamp.class, 8_000_002L, "untimed-grantee"));
+	}
+
+	@Test
+	void everyPairGetsItsOwnStatus() {
+		for (String username : List.of("bulk-owner", "bulk-other-owner", "bulk-recipient-a", "bulk-recipient-b")) {
+			ensureUser(username);
+		}
+		long first = insertFile("bulk-owner");
+		long second = insertFile("bulk-owner");
+		long foreign = insertFile("bulk-other-owner");
+		long missing = Long.MAX_VALUE;
+		List<Long> fileIds = List.of(first, second, foreign, missing, first);
+		List<String> recipients = List.of("bulk-recipient-a", "bulk-recipient-b", "bulk-nobody", "bulk-owner");
+
+		List<ShareService.Result> results = shareService.share("bulk-owner", fileIds, recipients);
+
+		// Repeated ids are shared once: 4 distinct files x 4 recipients
+		assertEquals(16, results.size());
+		for (String recipient : List.of("bulk-recipient-a", "bulk-recipient-b")) {
+			assertEquals(ShareService.Status.SHARED, status(results, first, recipient));
+			assertEquals(ShareService.Status.SHARED, status(results, second, recipient));
+		}
+		assertEquals(ShareService.Status.UNKNOWN_USER, status(results, first, "bulk-nobody"));
+		assertEquals(ShareService.Status.SELF, status(results, first, "bulk-owner"));
+		// Someone else's file, or none at all, whoever the recipient
+		assertEquals(ShareService.Status.FORBIDDEN, status(results, foreign, "bulk-recipient-a"));
+		assertEquals(ShareService.Status.FORBIDDEN, status(results, foreign, "bulk-owner"));
+		assertEquals(ShareService.Status.NOT_FOUND, status(results, missing, "bulk-recipient-a"));
+		assertEquals(1, count(first, "bulk-recipient-a"));
+		assertEquals(0, count(foreign, "bulk-recipient-a"));
+
+		List<ShareService.Result> again = shareService.share("bulk-owner", List.of(first), List.of("bulk-recipient-a"));
+		assertEquals(ShareService.Status.ALREADY_SHARED, again.getFirst().status());
+		assertEquals(1, count(first, "bulk-recipient-a"));
+	}
+
+	@Test
+	void emptyAndOversizedRequestsAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> shareService.share("bulk-owner", List.of(), List.of("bulk-recipient-a")));
+		assertThrows(IllegalArgumentException.class, () -> shareService.share("bulk-owner", List.of(1L), List.of()));
+		List<Long> fileIds = LongStream.rangeClosed(1, 101).boxed().toList();
+		List<String> recipients = IntStream.range(0, 100).mapToObj(i -> "bulk-recipient-" + i).toList();
+		// Over app.share.max-bulk-items (10,000 pairs)
+		assertThrows(IllegalArgumentException.class, () -> shareService.share("bulk-owner", fileIds, recipients));
+	}
+
+	private static ShareService.Status status(List<ShareService.Result> results, long fileId, String recipient) {
+		return results.stream()
+				.filter(result -> result.fileId() == fileId && result.recipient().equals(recipient))
+				.map(ShareService.Result::status)
+				.findFirst()
+				.orElseThrow();
+	}
+
+	private void ensureUser(String username) {
+		if (users.findByUsername(username).isEmpty()) {
+			users.save(UserDetails.builder()
+					.username(username)
+					.email(username + "@example.com")
+					.password("unused")
+					.enabled(true)
+					.build());
+		}
+	}
+
+	private long insertFile(String owner) {
+		jdbcTemplate.update("insert into stored_file (file_name, content_type, uploaded_by, created_at) values (?, ?, ?, ?)",
+				owner + ".txt", "text/plain", owner, Timestamp.from(Instant.now()));
+		return jdbcTemplate.queryForObject("select max(id) from stored_file where uploaded_by = ?", Long.class, owner);
+	}
+
+	private void insertShare(long fileId, String sharedWith, Timestamp createdAt) {
+		jdbcTemplate.update("insert into file_access (file_id, shared_with, shared_by, created_at) values (?, ?, ?, ?)",
+				fileId, sharedWith, "share-owner", createdAt);
+	}
+
+	private int count(long fileId, String sharedWith) {
+		return jdbcTemplate.queryForObject("select count(*) from file_access where file_id = ? and shared_with = ?",
+				Integer.class, fileId, sharedWith);
+	}
+}
@@ -0,0 +1,44 @@
+package com.example.EncryptedFileSharing.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferMetricsTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final TransferMetrics metrics = new TransferMetrics(registry);
+
+	@Test
+	void transfersAreTimedInTheirSizeBucket() {
+		// Bucket limits are inclusive
+		metrics.upload(64L << 10, 1_000);
+		metrics.upload((64L << 10) + 1, 1_000);
+		metrics.upload(1L << 30, 1_000);
+
+		assertEquals(1, count("files.upload", "64KB", "full"));
+		assertEquals(1, count("files.upload", "1MB", "full"));
+		assertEquals(1, count("files.upload", "larger", "full"));
+		assertEquals((64L << 10) * 2 + 1 + (1L << 30), registry.get("files.upload.bytes").counter().count());
+	}
+
+	@Test
+	void rangeDownloadsAreKeptApartFromFullOnes() {
+		metrics.download(10, 2_000_000, true);
+		metrics.download(5L << 20, 3_000_000, false);
+
+		assertEquals(1, count("files.download", "64KB", "range"));
+		assertEquals(0, count("files.download", "64KB", "full"));
+		assertEquals(1, count("files.download", "16MB", "full"));
+		assertEquals(3.0, registry.get("files.download").tag("size", "16MB").tag("kind", "full").timer()
+				.totalTime(TimeUnit.MILLISECONDS));
+		assertEquals(10 + (5L << 20), registry.get("files.download.bytes").counter().count());
+	}
+
+	private long count(String name, String size, String kind) {
+		return registry.get(name).tag("size", size).tag("kind", kind).timer().count();
+	}
+}
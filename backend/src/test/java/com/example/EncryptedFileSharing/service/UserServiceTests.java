@@ -0,0 +1,47 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.dto.LoginRequest;
+import com.example.EncryptedFileSharing.dto.LoginResponse;
+import com.example.EncryptedFileSharing.dto.SignUpReq;
+import com.example.EncryptedFileSharing.security.JwtUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class UserServiceTests {
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private JwtUtil jwtUtil;
+
+	@Test
+	void onlyVerifiedAccountsGetAToken() {
+		SignUpReq signUp = new SignUpReq();
+		signUp.setUsername("login-user");
+		signUp.setEmail("login-user@example.com");
+		signUp.setPassword("secret-password");
+		assertEquals("user created successfully", userService.register(signUp));
+
+		LoginRequest login = new LoginRequest();
+		login.setUsername("login-user");
+		login.setPassword("secret-password");
+
+		// Signed up but the OTP not verified yet
+		LoginResponse unverified = userService.login(login);
+		assertNull(unverified.getToken());
+		assertTrue(unverified.getMessage().contains("not verified"), unverified.getMessage());
+
+		userService.setEnabled("login-user", true);
+		LoginResponse verified = userService.login(login);
+		assertEquals("login successful", verified.getMessage());
+		assertEquals("login-user", jwtUtil.parseClaims(verified.getToken()).getSubject());
+
+		login.setPassword("wrong-password");
+		assertNull(userService.login(login).getToken());
+	}
+}
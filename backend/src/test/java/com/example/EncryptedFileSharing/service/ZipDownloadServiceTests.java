@@ -0,0 +1,119 @@
+package com.example.EncryptedFileSharing.service;
+
+import com.example.EncryptedFileSharing.dto.FileMetadata;
+import com.example.EncryptedFileSharing.model.StoredFile;
+import com.example.EncryptedFileSharing.storage.BlobStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A ring of two buffers, so the reader is held back by the writer within every entry. A database
+// of its own, as a new context recreates the schema under the ids the cached contexts have seen.
+@SpringBootTest(properties = {
+		"app.zip.read-ahead-buffers=2",
+		"spring.datasource.url=jdbc:h2:mem:efs-zip;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+})
+class ZipDownloadServiceTests {
+
+	@Autowired
+	private ZipDownloadService zipDownloadService;
+
+	@Autowired
+	private FileEncryptionService fileEncryptionService;
+
+	@Autowired
+	private BlobStore blobStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void entriesAreDecryptedIntoTheArchiveInRequestOrder() throws Exception {
+		byte[] large = bytes(1_500_000, 1);
+		byte[] text = "line of text\n".repeat(5_000).getBytes();
+		byte[] small = bytes(10, 2);
+		StoredFile first = upload("zip-owner", "report.pdf", "application/pdf", large);
+		StoredFile second = upload("zip-owner", "report.pdf", "text/plain", text);
+		StoredFile third = upload("zip-owner", "a/b.txt", "text/plain", small);
+
+		List<FileMetadata> files = zipDownloadService.readableFiles("zip-owner",
+				List.of(first.getId(), second.getId(), third.getId(), first.getId()));
+		ByteArrayOutputStream archive = new ByteArrayOutputStream();
+		zipDownloadService.writeZip(files, archive);
+
+		// Unique, path-free names; a repeated id is archived once
+		Map<String, byte[]> entries = unzip(archive.toByteArray());
+		assertEquals(List.of("report.pdf", "report (2).pdf", "a_b.txt"), List.copyOf(entries.keySet()));
+		assertArrayEquals(large, entries.get("report.pdf"));
+		assertArrayEquals(text, entries.get("report (2).pdf"));
+		assertArrayEquals(small, entries.get("a_b.txt"));
+	}
+
+	@Test
+	void onlyFilesTheUserMayReadAreArchived() throws Exception {
+		StoredFile own = upload("zip-reader", "own.bin", "application/octet-stream", bytes(100, 3));
+		StoredFile foreign = upload("zip-stranger", "foreign.bin", "application/octet-stream", bytes(100, 4));
+		StoredFile shared = upload("zip-stranger", "shared.bin", "application/octet-stream", bytes(100, 5));
+		jdbcTemplate.update("insert into file_access (file_id, shared_with, shared_by, created_at) values (?, ?, ?, ?)",
+				shared.getId(), "zip-reader", "zip-stranger", Timestamp.from(Instant.now()));
+
+		assertEquals(List.of(shared.getId(), own.getId()), zipDownloadService.readableFiles("zip-reader",
+				List.of(shared.getId(), own.getId())).stream().map(FileMetadata::getId).toList());
+		NoSuchElementException denied = assertThrows(NoSuchElementException.class,
+				() -> zipDownloadService.readableFiles("zip-reader", List.of(own.getId(), foreign.getId())));
+		assertTrue(denied.getMessage().contains(String.valueOf(foreign.getId())), denied.getMessage());
+		assertThrows(IllegalArgumentException.class, () -> zipDownloadService.readableFiles("zip-reader", List.of()));
+
+		assertEquals(List.of(shared.getId()),
+				zipDownloadService.sharedFiles("zip-reader").stream().map(FileMetadata::getId).toList());
+	}
+
+	@Test
+	void unreadableEntryFailsTheArchive() throws Exception {
+		StoredFile intact = upload("zip-broken-owner", "intact.bin", "application/octet-stream", bytes(200_000, 6));
+		StoredFile lost = upload("zip-broken-owner", "lost.bin", "application/octet-stream", bytes(200_000, 7));
+		blobStore.delete(lost.getBlobKey());
+
+		List<FileMetadata> files = zipDownloadService.readableFiles("zip-broken-owner", List.of(intact.getId(), lost.getId()));
+		ByteArrayOutputStream archive = new ByteArrayOutputStream();
+		assertThrows(IOException.class, () -> zipDownloadService.writeZip(files, archive));
+	}
+
+	private StoredFile upload(String owner, String fileName, String contentType, byte[] data) throws Exception {
+		return fileEncryptionService.uploadFile(new MockMultipartFile("file", fileName, contentType, data), owner);
+	}
+
+	private static Map<String, byte[]> unzip(byte[] archive) throws IOException {
+		Map<String, byte[]> entries = new LinkedHashMap<>();
+		try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(archive))) {
+			ZipEntry entry;
+			while ((entry = zip.getNextEntry()) != null) {
+				entries.put(entry.getName(), zip.readAllBytes());
+			}
+		}
+		return entries;
+	}
+
+	private static byte[] bytes(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+}
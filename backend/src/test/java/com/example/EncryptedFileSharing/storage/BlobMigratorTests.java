@@ -0,0 +1,90 @@
+package com.example.EncryptedFileSharing.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.InputStream;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Recreates the pre-blob-store schema: ciphertext in a NOT NULL stored_file.encrypted_data column
+@SpringBootTest
+class BlobMigratorTests {
+
+	@Autowired
+	private BlobMigrator migrator;
+
+	@Autowired
+	private BlobStore blobStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@BeforeEach
+	void addLegacyColumn() {
+		jdbcTemplate.execute("alter table stored_file add column encrypted_data longblob default X'' not null");
+	}
+
+	@AfterEach
+	void dropLegacyColumn() throws Exception {
+		for (String blobKey : jdbcTemplate.queryForList(
+				"select blob_key from stored_file where uploaded_by = 'legacy-owner' and blob_key is not null", String.class)) {
+			blobStore.delete(blobKey);
+		}
+		jdbcTemplate.update("delete from stored_file where uploaded_by = 'legacy-owner'");
+		jdbcTemplate.execute("alter table stored_file drop column encrypted_data");
+	}
+
+	@Test
+	void legacyRowsMoveToTheBlobStore() throws Exception {
+		migrator.prepareLegacyColumn();
+		assertTrue(legacyColumnNullable());
+
+		byte[] ciphertext = new byte[200_000];
+		new Random(1).nextBytes(ciphertext);
+		jdbcTemplate.update("insert into stored_file (file_name, content_type, uploaded_by, created_at, encrypted_data)"
+				+ " values (?, ?, ?, ?, ?)", "legacy.bin", "application/octet-stream", "legacy-owner",
+				Timestamp.from(Instant.now()), ciphertext);
+		// Written the new way: no legacy bytes at all
+		jdbcTemplate.update("insert into stored_file (file_name, content_type, uploaded_by, created_at, blob_key, encrypted_data)"
+				+ " values (?, ?, ?, ?, ?, null)", "new.bin", "application/octet-stream", "legacy-owner",
+				Timestamp.from(Instant.now()), "not-a-legacy-row");
+
+		// One pass migrates, the next finds nothing left and finishes
+		for (int i = 0; i < 3; i++) {
+			migrator.migrateBatch();
+		}
+
+		Map<String, Object> row = jdbcTemplate.queryForMap(
+				"select blob_key, encrypted_size, checksum, encrypted_data from stored_file where file_name = 'legacy.bin'");
+		assertNull(row.get("encrypted_data"));
+		assertEquals((long) ciphertext.length, ((Number) row.get("encrypted_size")).longValue());
+		assertNotNull(row.get("checksum"));
+		try (InputStream in = blobStore.openStream((String) row.get("blob_key"))) {
+			assertArrayEquals(ciphertext, in.readAllBytes());
+		}
+		assertEquals("not-a-legacy-row", jdbcTemplate.queryForObject(
+				"select blob_key from stored_file where file_name = 'new.bin'", String.class));
+	}
+
+	private boolean legacyColumnNullable() {
+		return jdbcTemplate.execute((ConnectionCallback<Boolean>) con -> {
+			DatabaseMetaData meta = con.getMetaData();
+			try (ResultSet rs = meta.getColumns(con.getCatalog(), con.getSchema(), "stored_file", "encrypted_data")) {
+				assertTrue(rs.next());
+				return rs.getInt("NULLABLE") == DatabaseMetaData.columnNullable;
+			}
+		});
+	}
+}
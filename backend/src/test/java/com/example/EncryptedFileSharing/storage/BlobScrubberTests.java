@@ -0,0 +1,105 @@
+package com.example.EncryptedFileSharing.storage;
+
+import com.example.EncryptedFileSharing.model.StoredFile;
+import com.example.EncryptedFileSharing.model.UploadSession;
+import com.example.EncryptedFileSharing.service.ChunkedUploadService;
+import com.example.EncryptedFileSharing.service.FileEncryptionService;
+import com.example.EncryptedFileSharing.util.SegmentedFormat;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.ByteArrayInputStream;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// A database and blob root of its own: the scrubber walks every table, and the other tests
+// leave rows behind whose blobs they have removed. Closed afterwards, which stops the scrubber.
+@SpringBootTest(properties = {
+		"app.storage.scrub.enabled=true",
+		"app.storage.scrub.pass-interval=200ms",
+		"spring.datasource.url=jdbc:h2:mem:efs-scrub;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+		"app.storage.root=${java.io.tmpdir}/efs-test-scrub-blobs"
+})
+@DirtiesContext
+class BlobScrubberTests {
+
+	private static final int SEGMENT = SegmentedFormat.SEGMENT_SIZE;
+
+	@Autowired
+	private FileEncryptionService fileEncryptionService;
+
+	@Autowired
+	private ChunkedUploadService uploads;
+
+	@Autowired
+	private BlobStore blobStore;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void passesCountIntactCorruptAndMissingBlobs() throws Exception {
+		fileEncryptionService.uploadFile(
+				new MockMultipartFile("file", "intact.bin", "application/octet-stream", bytes(50_000, 1)), "scrub-owner");
+		byte[] data = bytes(2 * SEGMENT + 7, 2);
+		UploadSession session = uploads.createSession("scrub-owner", "chunked.bin", null, data.length, SEGMENT);
+		for (int index = 0; index < session.chunkCount(); index++) {
+			byte[] chunk = Arrays.copyOfRange(data, index * SEGMENT, Math.min(data.length, (index + 1) * SEGMENT));
+			uploads.writeChunk(session.getId(), index, new ByteArrayInputStream(chunk), "scrub-owner");
+		}
+		uploads.commit(session.getId(), "scrub-owner");
+
+		// Same length, different bytes: only the checksum can tell
+		StoredFile damaged = fileEncryptionService.uploadFile(
+				new MockMultipartFile("file", "damaged.bin", "application/octet-stream", bytes(50_000, 3)), "scrub-owner");
+		int size = (int) blobStore.size(damaged.getBlobKey());
+		try (BlobOutputStream out = blobStore.create(damaged.getBlobKey())) {
+			out.write(bytes(size, 4));
+			out.commit();
+		}
+
+		jdbcTemplate.update("insert into content_blob (owner, content_hash, blob_key, checksum, compressed, ref_count, created_at)"
+						+ " values (?, ?, ?, ?, ?, ?, ?)", "scrub-owner", "0".repeat(64), "scrub-missing-blob", "0".repeat(64),
+				false, 1, Timestamp.from(Instant.now()));
+
+		await(() -> count("ok") >= 2 && count("corrupt") >= 1 && count("missing") >= 1);
+		assertTrue(meterRegistry.get("storage.scrub.bytes").counter().count() > 0);
+	}
+
+	private double count(String result) {
+		return meterRegistry.get("storage.scrub.blobs").tag("result", result).counter().count();
+	}
+
+	private static void await(BooleanSupplier condition) {
+		long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+		while (!condition.getAsBoolean()) {
+			assertTrue(System.nanoTime() < deadline, "Condition not met within 10s");
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+			}
+		}
+	}
+
+	private static byte[] bytes(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+}
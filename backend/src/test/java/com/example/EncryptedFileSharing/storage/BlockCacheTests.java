@@ -0,0 +1,75 @@
+package com.example.EncryptedFileSharing.storage;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockCacheTests {
+
+	private static final int BLOCK = 4096;
+
+	private final BlockCache cache = new BlockCache(16 * BLOCK, BLOCK, new SimpleMeterRegistry());
+	private final AtomicInteger fills = new AtomicInteger();
+
+	@Test
+	void loadedBlockIsReadBack() throws Exception {
+		BlockCache.BlockKey key = new BlockCache.BlockKey("blob", 0);
+		ByteBuffer first = ByteBuffer.allocate(BLOCK);
+		assertEquals(-1, cache.read(key, 0, first));
+		assertEquals(BLOCK, read(key, first));
+
+		ByteBuffer tail = ByteBuffer.allocate(BLOCK);
+		assertEquals(BLOCK - 100, cache.read(key, 100, tail));
+		assertEquals(content(key, 100), tail.get(0));
+		assertEquals(1, fills.get());
+	}
+
+	@Test
+	void hotBlockIsAdmittedOnceTheCacheIsFull() throws Exception {
+		for (int i = 0; i < 16; i++) {
+			read(new BlockCache.BlockKey("cold", i), ByteBuffer.allocate(BLOCK));
+		}
+		BlockCache.BlockKey hot = new BlockCache.BlockKey("hot", 0);
+		int before = fills.get();
+		for (int i = 0; i < 1000; i++) {
+			ByteBuffer dst = ByteBuffer.allocate(BLOCK);
+			assertEquals(BLOCK, read(hot, dst));
+			assertEquals(content(hot, BLOCK - 1), dst.get(BLOCK - 1));
+		}
+		// Admission may take a few reads while TinyLFU learns the block's frequency
+		assertTrue(fills.get() - before < 10, "hot block was read from the store " + (fills.get() - before) + " times");
+	}
+
+	@Test
+	void invalidatedBlockIsLoadedAgain() throws Exception {
+		BlockCache.BlockKey key = new BlockCache.BlockKey("blob", 0);
+		read(key, ByteBuffer.allocate(BLOCK));
+		cache.invalidate("blob", 1);
+		assertEquals(-1, cache.read(key, 0, ByteBuffer.allocate(BLOCK)));
+	}
+
+	// Served from the cache when it has the block, otherwise filled the way CachingBlobStore does
+	private int read(BlockCache.BlockKey key, ByteBuffer dst) throws Exception {
+		int n = cache.read(key, 0, dst);
+		if (n >= 0) {
+			return n;
+		}
+		n = cache.load(key, 0, dst, target -> {
+			fills.incrementAndGet();
+			for (int i = 0; i < BLOCK; i++) {
+				target.put(i, content(key, i));
+			}
+			return BLOCK;
+		});
+		assertNotEquals(-1, n, "no free slot");
+		return n;
+	}
+
+	private static byte content(BlockCache.BlockKey key, int offset) {
+		return (byte) (key.blobKey().hashCode() + key.index() * 31 + offset);
+	}
+}
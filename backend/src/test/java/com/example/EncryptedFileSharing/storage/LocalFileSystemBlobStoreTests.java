@@ -0,0 +1,139 @@
+package com.example.EncryptedFileSharing.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalFileSystemBlobStoreTests {
+
+	@TempDir
+	Path root;
+
+	private LocalFileSystemBlobStore store;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		store = new LocalFileSystemBlobStore(root.toString());
+	}
+
+	@Test
+	void blobIsVisibleOnlyOnceCommitted() throws IOException {
+		String key = BlobStore.newKey();
+		byte[] data = bytes(100_000, 1);
+
+		try (BlobOutputStream out = store.create(key)) {
+			out.write(data);
+			// Closing seals the bytes but publishes nothing
+			out.close();
+			assertFalse(store.exists(key));
+			out.commit();
+		}
+
+		assertTrue(store.exists(key));
+		assertEquals(data.length, store.size(key));
+		assertArrayEquals(data, read(key));
+		// Sharded by the first two pairs of characters of the key
+		assertTrue(Files.exists(root.resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key)));
+		assertEquals(0, stagedFiles());
+	}
+
+	@Test
+	void abortedBlobLeavesNothingBehind() throws IOException {
+		String key = BlobStore.newKey();
+		BlobOutputStream out = store.create(key);
+		out.write(bytes(10_000, 2));
+		out.abort();
+		// Safe to repeat, as writers call it in a finally block
+		out.abort();
+
+		assertFalse(store.exists(key));
+		assertThrows(NoSuchFileException.class, () -> store.open(key));
+		assertEquals(0, stagedFiles());
+	}
+
+	@Test
+	void abortAfterCommitKeepsTheBlob() throws IOException {
+		String key = BlobStore.newKey();
+		BlobOutputStream out = store.create(key);
+		try {
+			out.write(bytes(10, 3));
+			out.commit();
+		} finally {
+			out.abort();
+		}
+
+		assertTrue(store.exists(key));
+		store.delete(key);
+		assertFalse(store.exists(key));
+	}
+
+	@Test
+	void stagingAcceptsPositionalWritesAndIsPublishedWhole() throws IOException {
+		String key = BlobStore.newKey();
+		byte[] data = bytes(20_000, 4);
+		// Second half first, through separate channels, the way concurrent chunk uploads write
+		try (FileChannel second = store.openStaging("upload-1")) {
+			second.write(ByteBuffer.wrap(data, 10_000, 10_000), 10_000);
+		}
+		try (FileChannel first = store.openStaging("upload-1")) {
+			first.write(ByteBuffer.wrap(data, 0, 10_000), 0);
+		}
+		assertFalse(store.exists(key));
+
+		store.commitStaging("upload-1", key);
+
+		assertArrayEquals(data, read(key));
+		assertEquals(0, stagedFiles());
+	}
+
+	@Test
+	void deletedStagingAreaStartsOverEmpty() throws IOException {
+		try (FileChannel channel = store.openStaging("upload-2")) {
+			channel.write(ByteBuffer.wrap(bytes(100, 5)), 0);
+		}
+		store.deleteStaging("upload-2");
+
+		try (FileChannel channel = store.openStaging("upload-2")) {
+			assertEquals(0, channel.size());
+		}
+		store.deleteStaging("upload-2");
+	}
+
+	@Test
+	void keysThatCouldLeaveTheRootAreRejected() {
+		assertThrows(IllegalArgumentException.class, () -> store.create("../../etc/passwd"));
+		assertThrows(IllegalArgumentException.class, () -> store.open("ab/cd"));
+		assertThrows(IllegalArgumentException.class, () -> store.openStaging(".."));
+		assertThrows(IllegalArgumentException.class, () -> store.exists(null));
+	}
+
+	private byte[] read(String key) throws IOException {
+		try (InputStream in = store.openStream(key)) {
+			return in.readAllBytes();
+		}
+	}
+
+	private long stagedFiles() throws IOException {
+		try (Stream<Path> files = Files.list(root.resolve("tmp"))) {
+			return files.count();
+		}
+	}
+
+	private static byte[] bytes(int length, long seed) {
+		byte[] data = new byte[length];
+		new Random(seed).nextBytes(data);
+		return data;
+	}
+}
@@ -6,7 +6,9 @@ export default function Dashboard() {
   const [loading, setLoading] = useState(false);
 
   const [sharedFiles, setSharedFiles] = useState([]);
+  const [sharedFilesCursor, setSharedFilesCursor] = useState(null);
   const [myFiles, setMyFiles] = useState([]);
+  const [myFilesCursor, setMyFilesCursor] = useState(null);
 
   // Toast notification state
   const [toast, setToast] = useState({ show: false, message: "", type: "" });
@@ -15,6 +17,7 @@ export default function Dashboard() {
   const [shareFileId, setShareFileId] = useState("");
   const [shareUsername, setShareUsername] = useState("");
   const [sharing, setSharing] = useState(false);
+  const [zipping, setZipping] = useState(false);
 
   const username = localStorage.getItem("username");
   const token = localStorage.getItem("token");
@@ -68,7 +71,7 @@ export default function Dashboard() {
         try {
           const myFilesRes = await api.get("/files/my-files");
           if (myFilesRes.data && myFilesRes.data.length > 0) {
-            const latestFile = myFilesRes.data[myFilesRes.data.length - 1];
+            const latestFile = myFilesRes.data[0];
             fileId = latestFile.id;
           }
         } catch (err) {
@@ -95,7 +98,52 @@ export default function Dashboard() {
     }
   };
 
+  /* ===================== DELETE ===================== */
+  const deleteFile = async (id) => {
+    if (!window.confirm("Delete this file? Anyone it was shared with loses access.")) return;
+    try {
+      await api.delete(`/files/${id}`);
+      setMyFiles((prev) => prev.filter((f) => f.id !== id));
+      showToast("File deleted", "success");
+    } catch (err) {
+      handleAxiosError(err, "Delete failed");
+    }
+  };
+
   /* ===================== DOWNLOAD ===================== */
+  const saveBlob = (blob, fileName) => {
+    const url = window.URL.createObjectURL(blob);
+    const a = document.createElement("a");
+    a.href = url;
+    a.download = fileName;
+    a.style.display = "none";
+    document.body.appendChild(a);
+    a.click();
+
+    setTimeout(() => {
+      document.body.removeChild(a);
+      window.URL.revokeObjectURL(url);
+    }, 100);
+  };
+
+  // Everything shared with me as one ZIP, built by the server while it streams
+  const downloadSharedZip = async () => {
+    if (!token) return alert("Not authenticated");
+    setZipping(true);
+    try {
+      const res = await api.get("/files/download/zip", {
+        params: { shared: true },
+        responseType: "blob",
+      });
+      saveBlob(res.data, "shared-with-me.zip");
+      showToast("Shared files downloaded as ZIP", "success");
+    } catch (err) {
+      handleAxiosError(err, "ZIP download failed");
+    } finally {
+      setZipping(false);
+    }
+  };
+
   const downloadFile = async (id) => {
     if (!id) return alert("Invalid file ID");
     if (!token) return alert("Not authenticated");
@@ -131,18 +179,7 @@ export default function Dashboard() {
         }
       }
 
-      const url = window.URL.createObjectURL(res.data);
-      const a = document.createElement("a");
-      a.href = url;
-      a.download = fileName;
-      a.style.display = "none";
-      document.body.appendChild(a);
-      a.click();
-      
-      setTimeout(() => {
-        document.body.removeChild(a);
-        window.URL.revokeObjectURL(url);
-      }, 100);
+      saveBlob(res.data, fileName);
 
       showToast(`File "${fileName}" downloaded successfully`, "success");
     } catch (err) {
@@ -158,37 +195,47 @@ export default function Dashboard() {
   };
 
   /* ===================== SHARE FILE ===================== */
+  // Both fields take comma-separated lists; every file is shared with every user in one request
+  const splitList = (value) =>
+    value
+      .split(",")
+      .map((v) => v.trim())
+      .filter(Boolean);
+
   const shareFile = async () => {
     if (!shareFileId || !shareUsername)
       return alert("Enter file ID and username");
 
     if (!token) return alert("Not authenticated");
 
+    const fileIds = splitList(shareFileId).map(Number);
+    if (fileIds.some((id) => !Number.isInteger(id)))
+      return alert("File IDs must be numbers");
+
     setSharing(true);
 
     try {
-      const res = await api.post(
-        "/files/share",
-        null,
-        {
-          params: {
-            fileId: shareFileId,
-            usernameToShare: shareUsername,
-          },
-        }
-      );
+      const res = await api.post("/files/share/bulk", {
+        fileIds,
+        recipients: splitList(shareUsername),
+      });
 
-      let messageText = "File shared successfully";
-      if (res.data) {
-        if (typeof res.data === "string") {
-          messageText = res.data;
-        } else if (typeof res.data === "object" && res.data.message) {
-          messageText = res.data.message;
-        } else if (typeof res.data === "object") {
-          messageText = JSON.stringify(res.data);
-        }
+      const { shared, alreadyShared, failed, results } = res.data;
+      if (failed > 0) {
+        const problems = results
+          .filter((r) => r.status !== "SHARED" && r.status !== "ALREADY_SHARED")
+          .slice(0, 3)
+          .map((r) => `#${r.fileId} → ${r.recipient}: ${r.status.toLowerCase().replace("_", " ")}`)
+          .join(", ");
+        showToast(`Shared ${shared}, ${failed} failed (${problems})`, "error");
+        return;
       }
-      showToast(messageText, "success");
+      showToast(
+        alreadyShared > 0
+          ? `Shared ${shared} (${alreadyShared} already shared)`
+          : "File shared successfully",
+        "success"
+      );
       setShareFileId("");
       setShareUsername("");
     } catch (err) {
@@ -199,22 +246,29 @@ export default function Dashboard() {
   };
 
   /* ===================== MY FILES ===================== */
-  const loadMyFiles = async () => {
+  // Newest first, one page at a time; passing the cursor appends the next page
+  const loadMyFiles = async (cursor) => {
     if (!token) return;
     try {
-      const res = await api.get("/files/my-files");
-      setMyFiles(res.data);
+      const res = await api.get("/files/my-files", {
+        params: cursor ? { cursor } : {},
+      });
+      setMyFiles((prev) => (cursor ? [...prev, ...res.data] : res.data));
+      setMyFilesCursor(res.headers["x-next-cursor"] || null);
     } catch (err) {
       console.error("Failed to load my files", err);
     }
   };
 
   /* ===================== SHARED FILES ===================== */
-  const loadSharedFiles = async () => {
+  const loadSharedFiles = async (cursor) => {
     if (!token) return;
     try {
-      const res = await api.get("/files/shared-with-me");
-      setSharedFiles(res.data);
+      const res = await api.get("/files/shared-with-me", {
+        params: cursor ? { cursor } : {},
+      });
+      setSharedFiles((prev) => (cursor ? [...prev, ...res.data] : res.data));
+      setSharedFilesCursor(res.headers["x-next-cursor"] || null);
     } catch (err) {
       console.error("Failed to load shared files", err);
     }
@@ -399,23 +453,23 @@ export default function Dashboard() {
               
               <div className="space-y-4 mb-6">
                 <div>
-                  <label className="block text-sm font-medium mb-2">File ID</label>
+                  <label className="block text-sm font-medium mb-2">File IDs</label>
                   <input
-                    type="number"
+                    type="text"
                     value={shareFileId}
                     onChange={(e) => setShareFileId(e.target.value)}
                     className="w-full px-4 py-3 rounded-xl bg-white/5 border border-white/10 focus:border-indigo-400 focus:outline-none transition-all duration-300 hover:bg-white/10"
-                    placeholder="Enter file ID"
+                    placeholder="e.g. 12, 15, 18"
                   />
                 </div>
                 <div>
-                  <label className="block text-sm font-medium mb-2">Username</label>
+                  <label className="block text-sm font-medium mb-2">Usernames</label>
                   <input
                     type="text"
                     value={shareUsername}
                     onChange={(e) => setShareUsername(e.target.value)}
                     className="w-full px-4 py-3 rounded-xl bg-white/5 border border-white/10 focus:border-indigo-400 focus:outline-none transition-all duration-300 hover:bg-white/10"
-                    placeholder="Username to share with"
+                    placeholder="Usernames to share with, comma-separated"
                   />
                 </div>
               </div>
@@ -478,15 +532,35 @@ export default function Dashboard() {
                         Download
                       </button>
                       <button
-                        onClick={() => setShareFileId(String(f.id))}
+                        onClick={() =>
+                          setShareFileId((prev) =>
+                            splitList(prev).includes(String(f.id))
+                              ? prev
+                              : [...splitList(prev), String(f.id)].join(", ")
+                          )
+                        }
                         className="px-3 py-1.5 rounded-lg bg-white/5 hover:bg-white/10 text-xs font-medium transition-all duration-300 hover:scale-105"
                       >
                         Share
                       </button>
+                      <button
+                        onClick={() => deleteFile(f.id)}
+                        className="px-3 py-1.5 rounded-lg bg-red-500/10 text-red-300 hover:bg-red-500/20 text-xs font-medium transition-all duration-300 hover:scale-105"
+                      >
+                        Delete
+                      </button>
                     </div>
                   </div>
                 ))
               )}
+              {myFilesCursor && (
+                <button
+                  onClick={() => loadMyFiles(myFilesCursor)}
+                  className="w-full py-2 rounded-xl bg-white/5 hover:bg-white/10 text-xs font-medium transition-all duration-300"
+                >
+                  Load more
+                </button>
+              )}
             </div>
           </div>
 
@@ -494,9 +568,20 @@ export default function Dashboard() {
           <div className="card hover-lift bg-white/5 backdrop-blur-xl rounded-3xl p-8 border border-white/10 transition-all duration-300">
             <div className="flex items-center justify-between mb-6">
               <h3 className="text-xl font-bold">📥 Shared With Me</h3>
-              <span className="px-3 py-1 rounded-full bg-purple-500/20 text-purple-300 text-xs font-semibold">
-                {sharedFiles.length} files
-              </span>
+              <div className="flex items-center gap-2">
+                <span className="px-3 py-1 rounded-full bg-purple-500/20 text-purple-300 text-xs font-semibold">
+                  {sharedFiles.length} files
+                </span>
+                {sharedFiles.length > 0 && (
+                  <button
+                    onClick={downloadSharedZip}
+                    disabled={zipping}
+                    className="px-3 py-1 rounded-full bg-gradient-to-r from-purple-500/20 to-pink-500/20 text-purple-300 hover:from-purple-500/30 hover:to-pink-500/30 text-xs font-semibold transition-all duration-300 disabled:opacity-50"
+                  >
+                    {zipping ? "Zipping..." : "Download all (ZIP)"}
+                  </button>
+                )}
+              </div>
             </div>
             
             <div className="space-y-2 max-h-96 overflow-auto">
@@ -531,6 +616,14 @@ export default function Dashboard() {
                   </div>
                 ))
               )}
+              {sharedFilesCursor && (
+                <button
+                  onClick={() => loadSharedFiles(sharedFilesCursor)}
+                  className="w-full py-2 rounded-xl bg-white/5 hover:bg-white/10 text-xs font-medium transition-all duration-300"
+                >
+                  Load more
+                </button>
+              )}
             </div>
           </div>
         </div>